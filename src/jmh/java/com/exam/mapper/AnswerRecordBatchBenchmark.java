@@ -0,0 +1,169 @@
+package com.exam.mapper;
+
+import com.baomidou.mybatisplus.core.MybatisConfiguration;
+import com.baomidou.mybatisplus.core.MybatisSqlSessionFactoryBuilder;
+import com.exam.entity.AnswerRecord;
+import com.exam.service.SyntheticPapers;
+import com.zaxxer.hikari.HikariDataSource;
+import org.apache.ibatis.builder.xml.XMLMapperBuilder;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 整份答卷写入与判卷结果回写：多行INSERT / CASE批量UPDATE（insertBatch、updateGradingBatch）对比逐行insert / updateById
+ * 需要可连接的MySQL（已建好answer_record表），连接信息与应用相同，从环境变量DB_URL、DB_USERNAME、DB_PASSWORD读取；
+ * answer_record有外键约束时通过 -p examRecordId=<已存在的考试记录ID> 指定。
+ * 每次调用在一个事务中执行后回滚，不留下数据；回写对比使用试验开始时插入、结束时删除的答题记录。
+ * 示例：mvn -Pjmh test-compile exec:exec -Djmh.args="AnswerRecordBatch -p rows=50"
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AnswerRecordBatchBenchmark {
+
+    private static final String MAPPER_XML = "mapper/AnswerRecordMapper.xml";
+
+    @Param({"10", "50", "200"})
+    private int rows;
+
+    @Param({"1"})
+    private int examRecordId;
+
+    private HikariDataSource dataSource;
+    private SqlSessionFactory sqlSessionFactory;
+    private List<AnswerRecord> answers;
+    private List<AnswerRecord> graded;
+
+    @Setup
+    public void setup() throws Exception {
+        SyntheticPapers.quietLogging();
+        dataSource = new HikariDataSource();
+        dataSource.setJdbcUrl(env("DB_URL", "jdbc:mysql://localhost:3306/exam_system?useUnicode=true"
+            + "&characterEncoding=utf8&allowPublicKeyRetrieval=true&useSSL=false&serverTimezone=Asia/Shanghai"));
+        dataSource.setUsername(env("DB_USERNAME", "root"));
+        dataSource.setPassword(env("DB_PASSWORD", ""));
+        dataSource.setMaximumPoolSize(1);
+
+        MybatisConfiguration configuration = new MybatisConfiguration();
+        configuration.setMapUnderscoreToCamelCase(true);
+        configuration.setEnvironment(new Environment("jmh", new JdbcTransactionFactory(), dataSource));
+        try (InputStream inputStream = Resources.getResourceAsStream(MAPPER_XML)) {
+            // 解析XML时按namespace绑定AnswerRecordMapper，同时注入BaseMapper的通用方法
+            new XMLMapperBuilder(inputStream, configuration, MAPPER_XML, configuration.getSqlFragments()).parse();
+        }
+        sqlSessionFactory = new MybatisSqlSessionFactoryBuilder().build(configuration);
+
+        answers = SyntheticPapers.answers(SyntheticPapers.questions(rows, 0.2), 42L).stream()
+            .map(record -> new AnswerRecord(examRecordId, record.getQuestionId(), record.getUserAnswer()))
+            .collect(Collectors.toList());
+
+        // 回写对比使用的答题记录：提交到数据库，并填好判卷结果
+        graded = copyOf(answers);
+        try (SqlSession session = sqlSessionFactory.openSession(true)) {
+            session.getMapper(AnswerRecordMapper.class).insertBatch(graded);
+        }
+        for (AnswerRecord record : graded) {
+            record.setScore(record.getQuestionId() % 3 == 0 ? 0 : 2);
+            record.setIsCorrect(record.getQuestionId() % 3 == 0 ? 0 : 1);
+            record.setAiCorrection(record.getQuestionId() % 5 == 0 ? "要点基本正确，缺少适用场景说明" : null);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        try (SqlSession session = sqlSessionFactory.openSession(true)) {
+            session.getMapper(AnswerRecordMapper.class)
+                .deleteBatchIds(graded.stream().map(AnswerRecord::getId).collect(Collectors.toList()));
+        }
+        dataSource.close();
+    }
+
+    @Benchmark
+    public int insertBatch() {
+        try (SqlSession session = sqlSessionFactory.openSession(false)) {
+            int inserted = session.getMapper(AnswerRecordMapper.class).insertBatch(copyOf(answers));
+            session.rollback(true);
+            return inserted;
+        }
+    }
+
+    @Benchmark
+    public int insertPerRow() {
+        try (SqlSession session = sqlSessionFactory.openSession(false)) {
+            AnswerRecordMapper mapper = session.getMapper(AnswerRecordMapper.class);
+            int inserted = 0;
+            for (AnswerRecord record : copyOf(answers)) {
+                inserted += mapper.insert(record);
+            }
+            session.rollback(true);
+            return inserted;
+        }
+    }
+
+    @Benchmark
+    public int updateGradingBatch() {
+        try (SqlSession session = sqlSessionFactory.openSession(false)) {
+            int updated = session.getMapper(AnswerRecordMapper.class).updateGradingBatch(graded);
+            session.rollback(true);
+            return updated;
+        }
+    }
+
+    @Benchmark
+    public int updatePerRow() {
+        try (SqlSession session = sqlSessionFactory.openSession(false)) {
+            AnswerRecordMapper mapper = session.getMapper(AnswerRecordMapper.class);
+            int updated = 0;
+            for (AnswerRecord record : graded) {
+                updated += mapper.updateById(record);
+            }
+            session.rollback(true);
+            return updated;
+        }
+    }
+
+    /**
+     * 复制答题记录（插入时会回填自增ID，每次调用使用新对象）
+     */
+    private static List<AnswerRecord> copyOf(List<AnswerRecord> records) {
+        List<AnswerRecord> copies = new ArrayList<>(records.size());
+        for (AnswerRecord record : records) {
+            AnswerRecord copy = new AnswerRecord(record.getExamRecordId(), record.getQuestionId(), record.getUserAnswer());
+            copy.setId(record.getId());
+            copy.setScore(record.getScore());
+            copy.setIsCorrect(record.getIsCorrect());
+            copy.setAiCorrection(record.getAiCorrection());
+            copies.add(copy);
+        }
+        return copies;
+    }
+
+    private static String env(String name, String defaultValue) {
+        String value = System.getenv(name);
+        return value != null && !value.isEmpty() ? value : defaultValue;
+    }
+}
@@ -0,0 +1,68 @@
+package com.exam.service;
+
+import com.exam.entity.AnswerRecord;
+import com.exam.entity.Question;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 客观题判分吞吐量：每次操作判完一整份答卷（只含选择题和判断题）
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ObjectiveGradingBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int questionCount;
+
+    private List<Question> questions;
+    private AnswerKeyService.AnswerKey answerKey;
+    private List<AnswerRecord> answers;
+
+    @Setup
+    public void setup() {
+        SyntheticPapers.quietLogging();
+        questions = SyntheticPapers.questions(questionCount, 0);
+        answerKey = SyntheticPapers.answerKey(questions);
+        answers = SyntheticPapers.answers(questions, 42L);
+    }
+
+    /**
+     * 基于编译答案判分（二分查找题目 + 位掩码/布尔比较）
+     */
+    @Benchmark
+    public int gradeWithAnswerKey() {
+        int totalScore = 0;
+        for (AnswerRecord record : answers) {
+            int index = answerKey.indexOf(record.getQuestionId());
+            if (index >= 0 && answerKey.isCorrect(index, record.getUserAnswer())) {
+                totalScore += answerKey.getMaxScore(index);
+            }
+        }
+        return totalScore;
+    }
+
+    /**
+     * 编译答案的构建成本（试卷发布或缓存过期时发生一次）
+     */
+    @Benchmark
+    public AnswerKeyService.AnswerKey compileAnswerKey() {
+        return SyntheticPapers.answerKey(questions);
+    }
+}
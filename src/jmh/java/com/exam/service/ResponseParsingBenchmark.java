@@ -0,0 +1,66 @@
+package com.exam.service;
+
+import com.exam.entity.Question;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 提示词构建与大模型响应解析：JSON响应、非JSON响应（先JSON解析失败再走文本解析）以及直接文本解析
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResponseParsingBenchmark {
+
+    private static final String JSON_RESPONSE =
+        "{\"score\": 7, \"feedback\": \"要点基本正确，AOF重写机制未提及\", \"reason\": \"缺少部分要点\"}";
+
+    private static final String TEXT_RESPONSE = "判卷结果如下：\n"
+        + "该答案说明了RDB和AOF的基本区别，\n"
+        + "但没有提到AOF重写和混合持久化。\n"
+        + "得分：7分\n"
+        + "建议补充两种方式的适用场景。";
+
+    private KimiGradingService gradingService;
+    private Question question;
+
+    @Setup
+    public void setup() {
+        SyntheticPapers.quietLogging();
+        gradingService = new StubLlmGradingService(0);
+        question = SyntheticPapers.questions(1, 1.0).get(0);
+    }
+
+    @Benchmark
+    public String buildGradingPrompt() {
+        return gradingService.buildGradingPrompt(question, "RDB是快照，AOF记录写命令", 10);
+    }
+
+    @Benchmark
+    public KimiGradingService.GradingResult parseJsonResponse() {
+        return gradingService.parseGradingResponse(JSON_RESPONSE, 10);
+    }
+
+    @Benchmark
+    public KimiGradingService.GradingResult parseTextResponseWithFallback() {
+        return gradingService.parseGradingResponse(TEXT_RESPONSE, 10);
+    }
+
+    @Benchmark
+    public KimiGradingService.GradingResult parseTextResponse() {
+        return gradingService.parseTextResponse(TEXT_RESPONSE, 10);
+    }
+}
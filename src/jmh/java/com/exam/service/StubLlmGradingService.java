@@ -0,0 +1,66 @@
+package com.exam.service;
+
+import com.exam.config.GradingConfig;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 模拟大模型的判卷服务：不发起HTTP请求，按配置的延迟返回固定的JSON判卷结果，
+ * 批量判卷提示词按答案数返回JSON数组；其余流程（缓存key计算、提示词构建、响应解析）与线上相同；判卷结果缓存关闭，保证每次都走"大模型"
+ */
+public class StubLlmGradingService extends KimiGradingService {
+
+    private static final String RESPONSE =
+        "{\"score\": 7, \"feedback\": \"要点基本正确，AOF重写机制未提及\", \"reason\": \"缺少部分要点\"}";
+
+    private final long latencyMillis;
+
+    public StubLlmGradingService(long latencyMillis) {
+        this(latencyMillis, 1);
+    }
+
+    public StubLlmGradingService(long latencyMillis, int batchGradingSize) {
+        this.latencyMillis = latencyMillis;
+        GradingConfig gradingConfig = new GradingConfig();
+        gradingConfig.setCacheEnabled(false);
+        gradingConfig.setBatchGradingSize(batchGradingSize);
+        GradingCacheService gradingCacheService = new GradingCacheService();
+        ReflectionTestUtils.setField(gradingCacheService, "gradingConfig", gradingConfig);
+        ReflectionTestUtils.setField(this, "gradingCacheService", gradingCacheService);
+        ReflectionTestUtils.setField(this, "gradingConfig", gradingConfig);
+        LocalGradingService localGradingService = new LocalGradingService();
+        ReflectionTestUtils.setField(localGradingService, "gradingConfig", gradingConfig);
+        ReflectionTestUtils.setField(this, "localGradingService", localGradingService);
+    }
+
+    @Override
+    String callQwenAPI(String prompt, LlmGateway.Priority priority, String caller, Duration timeout) {
+        if (latencyMillis > 0) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(latencyMillis));
+        }
+        int answers = countAnswers(prompt);
+        if (answers == 0) {
+            return RESPONSE;
+        }
+        // 批量判卷提示词：按答案编号返回JSON数组
+        StringBuilder sb = new StringBuilder("[");
+        for (int i = 1; i <= answers; i++) {
+            if (i > 1) {
+                sb.append(',');
+            }
+            sb.append("{\"index\": ").append(i).append(", ").append(RESPONSE, 1, RESPONSE.length());
+        }
+        return sb.append(']').toString();
+    }
+
+    private static int countAnswers(String prompt) {
+        int count = 0;
+        for (int i = prompt.indexOf("【答案"); i >= 0; i = prompt.indexOf("【答案", i + 1)) {
+            count++;
+        }
+        return count;
+    }
+}
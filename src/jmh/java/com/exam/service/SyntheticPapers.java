@@ -0,0 +1,106 @@
+package com.exam.service;
+
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import com.exam.entity.AnswerRecord;
+import com.exam.entity.Question;
+import com.exam.entity.QuestionAnswer;
+import org.slf4j.LoggerFactory;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 基准测试用的合成试卷与答卷
+ * 题目ID从1开始连续编号；题型按比例分配（主观题在前若干个位置循环出现），学生答案约70%正确，
+ * 并混入大小写、空格、T/TRUE/正确等不同写法
+ */
+public final class SyntheticPapers {
+
+    private static final String[] CHOICE_ANSWERS = {"A", "B", "C", "D", "A,C", "B,D"};
+    private static final String[] JUDGE_TRUE = {"T", "TRUE", "正确", " true "};
+    private static final String[] JUDGE_FALSE = {"F", "FALSE", "错误", "false"};
+
+    private SyntheticPapers() {
+    }
+
+    /**
+     * 构建合成题目列表
+     * @param questionCount 题目数量
+     * @param textRatio 主观题比例（0~1）
+     */
+    public static List<Question> questions(int questionCount, double textRatio) {
+        int textPerTen = (int) Math.round(textRatio * 10);
+        List<Question> questions = new ArrayList<>(questionCount);
+        for (int i = 0; i < questionCount; i++) {
+            Question question = new Question();
+            question.setId((long) i + 1);
+            question.setPaperScore(BigDecimal.valueOf(i % 10 < textPerTen ? 10 : 2));
+            QuestionAnswer answer = new QuestionAnswer();
+            answer.setQuestionId(question.getId());
+            if (i % 10 < textPerTen) {
+                question.setType("TEXT");
+                question.setTitle("简述第" + (i + 1) + "题中Redis持久化RDB与AOF的区别及适用场景");
+                answer.setAnswer("RDB为定时快照，恢复快、可能丢失最近数据；AOF记录每条写命令，数据更安全但文件更大、恢复较慢。");
+            } else if (i % 2 == 0) {
+                question.setType("CHOICE");
+                question.setTitle("第" + (i + 1) + "题（选择题）");
+                answer.setAnswer(CHOICE_ANSWERS[i % CHOICE_ANSWERS.length]);
+            } else {
+                question.setType("JUDGE");
+                question.setTitle("第" + (i + 1) + "题（判断题）");
+                answer.setAnswer(i % 3 == 0 ? "TRUE" : "FALSE");
+            }
+            question.setAnswer(answer);
+            questions.add(question);
+        }
+        return questions;
+    }
+
+    /**
+     * 将题目编译为AnswerKey（与试卷发布时的预编译相同）
+     */
+    public static AnswerKeyService.AnswerKey answerKey(List<Question> questions) {
+        int totalScore = questions.stream().mapToInt(q -> q.getPaperScore().intValue()).sum();
+        AnswerKeyService.AnswerKey answerKey = new AnswerKeyService.AnswerKey(1, questions.size(), totalScore);
+        for (int i = 0; i < questions.size(); i++) {
+            answerKey.set(i, questions.get(i));
+        }
+        return answerKey;
+    }
+
+    /**
+     * 构建一份学生答卷（固定随机种子，保证每次运行的数据一致）
+     */
+    public static List<AnswerRecord> answers(List<Question> questions, long seed) {
+        Random random = new Random(seed);
+        List<AnswerRecord> records = new ArrayList<>(questions.size());
+        for (Question question : questions) {
+            boolean correct = random.nextInt(10) < 7;
+            String standard = question.getAnswer().getAnswer();
+            String userAnswer = switch (question.getType()) {
+                case "CHOICE" -> correct ? (random.nextBoolean() ? standard : standard.toLowerCase())
+                    : CHOICE_ANSWERS[random.nextInt(CHOICE_ANSWERS.length)];
+                case "JUDGE" -> {
+                    boolean expected = "TRUE".equals(standard);
+                    String[] pool = expected == correct ? JUDGE_TRUE : JUDGE_FALSE;
+                    yield pool[random.nextInt(pool.length)];
+                }
+                default -> correct ? "RDB是快照，恢复快但可能丢数据；AOF记录写命令，更安全，文件大恢复慢。" : "不知道";
+            };
+            AnswerRecord record = new AnswerRecord(1, question.getId().intValue(), userAnswer);
+            record.setId(question.getId().intValue());
+            records.add(record);
+        }
+        return records;
+    }
+
+    /**
+     * 关闭DEBUG/INFO日志，避免日志输出影响测量结果（基准测试不经过Spring Boot的日志配置）
+     */
+    public static void quietLogging() {
+        ((Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+    }
+}
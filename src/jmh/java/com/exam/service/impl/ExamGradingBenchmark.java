@@ -0,0 +1,86 @@
+package com.exam.service.impl;
+
+import com.exam.config.GradingConfig;
+import com.exam.entity.AnswerRecord;
+import com.exam.entity.Question;
+import com.exam.service.AnswerKeyService;
+import com.exam.service.StubLlmGradingService;
+import com.exam.service.SyntheticPapers;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 整份答卷判分（ExamServiceImpl.gradeAnswers，不含数据库读写和考试总评）
+ * 主观题通过模拟大模型判卷，延迟和每包答案数可配置；配合 -prof gc 可得到每份答卷的分配量
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExamGradingBenchmark {
+
+    @Param({"10", "100", "1000"})
+    private int questionCount;
+
+    @Param({"0.2"})
+    private double textRatio;
+
+    @Param({"0", "50"})
+    private long llmLatencyMs;
+
+    @Param({"8"})
+    private int aiConcurrency;
+
+    @Param({"1", "5"})
+    private int batchGradingSize;
+
+    private ExamServiceImpl examService;
+    private ThreadPoolTaskExecutor gradingExecutor;
+    private AnswerKeyService.AnswerKey answerKey;
+    private List<AnswerRecord> answers;
+
+    @Setup
+    public void setup() {
+        SyntheticPapers.quietLogging();
+        List<Question> questions = SyntheticPapers.questions(questionCount, textRatio);
+        answerKey = SyntheticPapers.answerKey(questions);
+        answers = SyntheticPapers.answers(questions, 42L);
+
+        GradingConfig gradingConfig = new GradingConfig();
+        gradingConfig.setAiConcurrency(aiConcurrency);
+        gradingConfig.setAiQueueCapacity(Math.max(200, questionCount));
+        gradingExecutor = gradingConfig.gradingExecutor();
+
+        examService = new ExamServiceImpl();
+        ReflectionTestUtils.setField(examService, "kimiGradingService", new StubLlmGradingService(llmLatencyMs, batchGradingSize));
+        ReflectionTestUtils.setField(examService, "gradingConfig", gradingConfig);
+        ReflectionTestUtils.setField(examService, "gradingExecutor", gradingExecutor);
+    }
+
+    @TearDown
+    public void tearDown() {
+        gradingExecutor.shutdown();
+    }
+
+    @Benchmark
+    public int gradeExam() {
+        return examService.gradeAnswers(answers, answerKey).totalScore;
+    }
+}
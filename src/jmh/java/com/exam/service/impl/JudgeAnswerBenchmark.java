@@ -0,0 +1,55 @@
+package com.exam.service.impl;
+
+import com.exam.entity.Question;
+import com.exam.service.AnswerKeyService;
+import com.exam.service.SyntheticPapers;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 判断题答案识别：字符串规范化（normalizeJudgeAnswer，用于展示）与编译答案比较（判分使用）
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class JudgeAnswerBenchmark {
+
+    @Param({"T", " true ", "正确", "FALSE", "不确定"})
+    private String answer;
+
+    private AnswerKeyService.AnswerKey answerKey;
+    private int judgeIndex;
+
+    @Setup
+    public void setup() {
+        SyntheticPapers.quietLogging();
+        List<Question> questions = SyntheticPapers.questions(2, 0);
+        answerKey = SyntheticPapers.answerKey(questions);
+        judgeIndex = answerKey.indexOf(2L); // 第2题为判断题
+    }
+
+    @Benchmark
+    public String normalizeJudgeAnswer() {
+        return ExamServiceImpl.normalizeJudgeAnswer(answer);
+    }
+
+    @Benchmark
+    public boolean compiledJudge() {
+        return answerKey.isCorrect(judgeIndex, answer);
+    }
+}
@@ -3,6 +3,7 @@ package com.exam;
 import org.mybatis.spring.annotation.MapperScan;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 /**
  * 智能学习平台主启动类
@@ -23,6 +24,7 @@ import org.springframework.boot.autoconfigure.SpringBootApplication;
  */
 @SpringBootApplication  // Spring Boot核心注解，启用自动配置、组件扫描等功能
 @MapperScan("com.exam.mapper")  // 扫描指定包下的MyBatis Mapper接口，自动注册为Spring Bean
+@EnableScheduling  // 启用定时任务（答题草稿回写等）
 public class ExamSystemServerApplication {
 
     /**
@@ -65,4 +65,129 @@ public class CacheConstants {
      * 热点数据缓存过期时间（秒）
      */
     public static final long HOT_DATA_EXPIRE_SECONDS = 3600; // 1小时
-}
\ No newline at end of file
+
+    /**
+     * 随机抽题候选池（按分类、难度筛选的题目ID数组）在本节点的缓存时间（秒）
+     */
+    public static final long RANDOM_POOL_EXPIRE_SECONDS = 300; // 5分钟
+
+    /**
+     * 判卷任务队列（Redis Stream）key
+     */
+    public static final String GRADING_STREAM_KEY = "grading:stream";
+
+    /**
+     * 判卷任务消费者组名称
+     */
+    public static final String GRADING_CONSUMER_GROUP = "grading-workers";
+
+    /**
+     * 判卷任务状态key前缀
+     */
+    public static final String GRADING_STATUS_KEY = "grading:status:";
+
+    /**
+     * 判卷任务状态过期时间（秒）
+     */
+    public static final long GRADING_STATUS_EXPIRE_SECONDS = 86400; // 1天
+
+    /**
+     * 延迟判卷任务有序集合键（score为重新入队时间）
+     */
+    public static final String GRADING_DEFERRED_KEY = "grading:deferred";
+
+    /**
+     * 判卷结果缓存key前缀
+     */
+    public static final String GRADING_RESULT_KEY = "grading:result:";
+
+    /**
+     * 考试总评缓存key前缀（按得分率区间、题目数、答对比例区间分桶）
+     */
+    public static final String EXAM_SUMMARY_KEY = "grading:summary:";
+
+    /**
+     * 大模型用量日汇总key前缀（Hash：调用方|模型|指标 -> 累计值），后缀为日期yyyy-MM-dd
+     */
+    public static final String LLM_USAGE_KEY = "llm:usage:";
+
+    /**
+     * AI学习建议缓存key前缀（Hash：fingerprint、suggestion、updateTime）
+     */
+    public static final String AI_SUGGESTION_KEY = "ai:suggestion:";
+
+    /**
+     * AI学习建议刷新锁key前缀
+     */
+    public static final String AI_SUGGESTION_REFRESH_LOCK_KEY = "ai:suggestion:refreshing:";
+
+    /**
+     * 答题草稿key前缀（Hash：题目ID -> 答案）
+     */
+    public static final String EXAM_DRAFT_KEY = "exam:draft:";
+
+    /**
+     * 答题草稿索引key（ZSet：考试记录ID -> 最后保存时间），用于回写长时间未更新的草稿
+     */
+    public static final String EXAM_DRAFT_INDEX_KEY = "exam:draft:index";
+
+    /**
+     * 进行中考试索引key前缀（试卷ID:考生 -> 考试记录ID），用于O(1)恢复考试
+     */
+    public static final String EXAM_SESSION_ACTIVE_KEY = "exam:session:active:";
+
+    /**
+     * 考试会话key前缀（Hash：开始时间、截止时间、心跳时间等）
+     */
+    public static final String EXAM_SESSION_KEY = "exam:session:";
+
+    /**
+     * 考试截止时间索引key（ZSet：考试记录ID -> 截止时间），到期后自动交卷
+     */
+    public static final String EXAM_DEADLINE_KEY = "exam:session:deadlines";
+
+    /**
+     * 整卷重判进度key前缀（Hash：状态、总数、已处理数、检查点）
+     */
+    public static final String REGRADE_PROGRESS_KEY = "grading:regrade:";
+
+    /**
+     * 整卷重判任务锁key前缀，同一试卷同时只允许一个重判任务
+     */
+    public static final String REGRADE_LOCK_KEY = "grading:regrade:lock:";
+
+    /**
+     * 整卷重判进度保留时间（秒）
+     */
+    public static final long REGRADE_PROGRESS_EXPIRE_SECONDS = 604800; // 7天
+
+    /**
+     * 题目导入任务key前缀（Hash：状态、文件名、已解析数、已导入数、失败数、检查点）
+     */
+    public static final String QUESTION_IMPORT_JOB_KEY = "question:import:job:";
+
+    /**
+     * 题目导入失败明细key前缀（List）
+     */
+    public static final String QUESTION_IMPORT_FAILURES_KEY = "question:import:failures:";
+
+    /**
+     * 题目导入任务锁key前缀，同一任务同时只在一个节点上执行
+     */
+    public static final String QUESTION_IMPORT_LOCK_KEY = "question:import:lock:";
+
+    /**
+     * 未完成的题目导入任务索引key（ZSet：任务ID -> 创建时间）
+     */
+    public static final String QUESTION_IMPORT_JOBS_KEY = "question:import:jobs";
+
+    /**
+     * Excel导入预览key前缀（Hash：文件名、题目数、校验结果、压缩后的题目列表）
+     */
+    public static final String QUESTION_IMPORT_PREVIEW_KEY = "question:import:preview:";
+
+    /**
+     * 题目导入任务进度保留时间（秒）
+     */
+    public static final long QUESTION_IMPORT_JOB_EXPIRE_SECONDS = 604800; // 7天
+}
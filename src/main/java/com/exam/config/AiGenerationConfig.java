@@ -0,0 +1,18 @@
+package com.exam.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * AI出题配置类
+ * 题目数量较多时按题型和数量拆分为多个子请求并发生成，合并去重后返回
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "ai.generation")
+public class AiGenerationConfig {
+
+    private Integer chunkSize = 10;    // 每个子请求生成的题目数上限，数量不超过该值时不拆分
+    private Integer concurrency = 4;   // 同一次出题同时进行的子请求数上限（同时受大模型网关的全局并发限制）
+}
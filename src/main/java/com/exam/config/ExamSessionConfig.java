@@ -0,0 +1,28 @@
+package com.exam.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 考试会话配置类
+ * 配置考试会话（进行中的考试状态）以及答题草稿（自动保存）的存储与回写参数
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "exam.session")
+public class ExamSessionConfig {
+
+    private Long sessionGraceSeconds = 300L;        // 考试会话在截止时间之后额外保留的时长（秒）
+    private Long sessionNoLimitTtlSeconds = 86400L; // 试卷未设置时长时考试会话的保留时长（秒）
+    private Long sessionCreateLockSeconds = 10L;    // 创建考试记录时占位锁的过期时间（秒）
+    private Long sessionCreateWaitMs = 3000L;       // 并发开考时等待其他请求创建考试记录的最长时间（毫秒）
+    private Long autoSubmitGraceSeconds = 30L;      // 截止时间之后等待学生自行交卷的宽限时间（秒），超过后自动交卷
+    private Long deadlineScanIntervalMs = 1000L;    // 到期考试扫描间隔（毫秒）
+    private Integer deadlineBatchSize = 200;        // 每次扫描最多自动交卷的考试数
+    private Long deadlineRetrySeconds = 30L;        // 自动交卷失败后的重试间隔（秒）
+    private Long draftTtlSeconds = 86400L;          // 答题草稿在Redis中的保留时长（秒）
+    private Long draftIdleFlushSeconds = 1800L;     // 草稿超过该时长未更新则回写到数据库（秒），防止浏览器崩溃后丢失
+    private Long draftFlushIntervalMs = 60000L;     // 草稿回写任务的执行间隔（毫秒）
+    private Integer draftFlushBatchSize = 100;      // 每次回写任务最多处理的草稿数
+}
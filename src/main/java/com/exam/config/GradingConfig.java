@@ -0,0 +1,131 @@
+package com.exam.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * 判卷配置类
+ * 配置AI判卷（主观题）使用的有界线程池、本地预判阈值、异步判卷队列消费、答卷批量写入、判卷结果缓存、考试总评缓存、编译答案以及整卷重判等参数
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "grading")
+public class GradingConfig {
+
+    private Integer aiConcurrency = 8;       // 同时进行的AI判卷请求数上限
+    private Integer aiQueueCapacity = 200;   // 等待队列容量，超出后由调用线程执行（背压）
+    private Long aiTimeoutSeconds = 60L;     // 单道主观题AI判卷的最长等待时间（秒）
+    private Integer batchGradingSize = 5;    // 批量判卷时每个提示词包含的答案数，设为1则逐题判卷
+
+    private Boolean preGradeEnabled = true;          // 是否启用主观题本地预判
+    private Double preGradeFullKeywordCoverage = 1.0; // 评分关键词覆盖率达到该值时直接给满分（题目未设置关键词时只有与标准答案一致才给满分）
+    private Double preGradeZeroSimilarity = 0.08;    // 相似度不高于该值且未命中任何关键词时判为答非所问，直接给0分
+
+    private Integer queueWorkers = 2;            // 本节点消费判卷队列的工作线程数
+    private Integer queueMaxAttempts = 3;        // 判卷任务最大投递次数，超过后标记为失败
+    private Long queueClaimIdleSeconds = 300L;   // 任务被领取后超过该时长未确认，视为节点宕机并由其他节点接管
+    private Long deferRetrySeconds = 60L;        // AI服务熔断时判卷任务延迟重新入队的时间（秒）
+    private Integer deferBatchSize = 100;        // 每次重新入队的延迟判卷任务数上限
+
+    private Integer answerBatchSize = 100;       // 答题记录批量插入/更新时每条SQL包含的行数
+
+    private Boolean cacheEnabled = true;         // 是否启用判卷结果缓存
+    private Long cacheTtlSeconds = 604800L;      // 判卷结果在Redis中的过期时间（秒），默认7天
+    private Integer cacheLocalSize = 10000;      // 本地（L1）判卷结果缓存最大条数
+
+    private Boolean summaryCacheEnabled = true;   // 是否按成绩区间缓存考试总评
+    private Integer summaryScoreBandPercent = 10; // 总评分桶的得分率区间宽度（百分比）
+    private Integer summaryCorrectBandPercent = 20; // 总评分桶的答对比例区间宽度（百分比）
+    private Long summaryCacheTtlSeconds = 604800L; // 考试总评在Redis中的过期时间（秒），默认7天
+    private Integer summaryConcurrency = 2;       // 后台生成考试总评的线程数
+    private Integer summaryQueueCapacity = 1000;  // 后台生成考试总评的等待队列容量，超出后保留默认总评
+
+    private Long answerKeyTtlSeconds = 600L;     // 编译答案在本节点的缓存时长（秒），多节点下修改试卷后的最长生效延迟
+
+    private Integer regradeJobs = 2;             // 本节点同时执行的整卷重判任务数
+    private Integer regradePageSize = 50;        // 整卷重判每页读取的考试记录数（每页结束后批量回写并记录检查点）
+    private Long regradeLockSeconds = 1800L;     // 重判任务锁的过期时间（秒），每页完成后续期；节点宕机后超时即可续跑
+    private Integer bulkAiConcurrency = 4;       // 后台批量任务（整卷重判）同时进行的AI判卷和总评请求数上限
+    private Integer bulkAiQueueCapacity = 200;   // 后台批量AI线程池等待队列容量，超出后由调用线程（重判任务线程）执行
+
+    /**
+     * 创建AI判卷线程池Bean
+     * 一场考试的所有简答题同时提交到该线程池，整体耗时约等于一次大模型调用
+     * @return 判卷线程池
+     */
+    @Bean(name = "gradingExecutor")
+    public ThreadPoolTaskExecutor gradingExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(aiConcurrency);     // 核心线程数
+        executor.setMaxPoolSize(aiConcurrency);      // 最大线程数，保持与核心数一致以严格限流
+        executor.setQueueCapacity(aiQueueCapacity);  // 队列容量
+        executor.setThreadNamePrefix("ai-grading-"); // 线程名前缀，便于排查
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy()); // 队列满时由调用方执行
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * 创建考试总评生成线程池Bean
+     * 判卷完成后总评在后台生成并回写，队列满时拒绝任务（TaskRejectedException），由提交方放弃本次生成：
+     * 考试记录保留判卷时写入的默认总评；AI学习建议的后台刷新也使用该线程池，被拒绝时释放刷新锁
+     * @return 总评生成线程池
+     */
+    @Bean(name = "summaryExecutor")
+    public ThreadPoolTaskExecutor summaryExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(summaryConcurrency);
+        executor.setMaxPoolSize(summaryConcurrency);
+        executor.setQueueCapacity(summaryQueueCapacity);
+        executor.setThreadNamePrefix("exam-summary-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * 创建后台批量AI线程池Bean
+     * 整卷重判的主观题判卷和总评生成使用独立线程池，不与交卷判卷争抢判卷线程池的线程和队列，
+     * 交卷判卷（INTERACTIVE）的请求能及时进入大模型网关，由网关按优先级先于批量请求派发
+     * @return 后台批量AI线程池
+     */
+    @Bean(name = "bulkGradingExecutor")
+    public ThreadPoolTaskExecutor bulkGradingExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(bulkAiConcurrency);
+        executor.setMaxPoolSize(bulkAiConcurrency);
+        executor.setQueueCapacity(bulkAiQueueCapacity);
+        executor.setThreadNamePrefix("ai-bulk-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy()); // 队列满时由重判任务线程执行
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * 创建整卷重判任务线程池Bean
+     * 任务线程负责读取答卷和客观题判分，主观题仍提交到判卷线程池并发执行
+     * @return 重判任务线程池
+     */
+    @Bean(name = "regradeExecutor")
+    public ThreadPoolTaskExecutor regradeExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(regradeJobs);
+        executor.setMaxPoolSize(regradeJobs);
+        executor.setQueueCapacity(0);                // 不排队，超出并发任务数时直接拒绝
+        executor.setThreadNamePrefix("regrade-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.initialize();
+        return executor;
+    }
+}
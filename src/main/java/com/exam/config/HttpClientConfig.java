@@ -0,0 +1,81 @@
+package com.exam.config;
+
+import io.netty.channel.ChannelOption;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * HTTP客户端配置类
+ * 大模型等外部接口调用共用一个带连接池的reactor-netty HttpClient：长连接复用（避免每次调用都重新进行TCP和TLS握手）、
+ * 按目标地址限制连接数、连接/获取连接/读取超时，并将连接池状态注册为监控指标
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "http.client")
+public class HttpClientConfig {
+
+    private Integer defaultMaxPerRoute = 20;         // 每个目标地址（主机+端口）默认最大连接数
+    private Integer maxPendingAcquires = 1000;       // 每个目标地址等待获取连接的请求数上限
+    private Long connectTimeoutMs = 3000L;           // 建立连接超时（毫秒）
+    private Long connectionRequestTimeoutMs = 5000L; // 从连接池获取连接的最长等待时间（毫秒）
+    private Long readTimeoutMs = 60000L;             // 读取响应超时（毫秒），按相邻两次读取的间隔计算，大模型生成较慢，需留足时间
+    private Long idleEvictSeconds = 30L;             // 空闲超过该时长的连接由后台任务关闭（秒）
+    private List<Route> routes = new ArrayList<>();  // 按目标地址单独设置最大连接数
+
+    /**
+     * 单个目标地址的连接数配置
+     */
+    @Data
+    public static class Route {
+        private String url;                          // 目标地址，如 https://dashscope.aliyuncs.com/compatible-mode/v1
+        private Integer maxConnections;              // 该地址的最大连接数
+    }
+
+    /**
+     * 创建连接池
+     * 开启metrics后连接池状态以reactor.netty.connection.provider.*指标
+     * （total/active/idle/pending.connections、max.connections等，按name和remote.address区分）注册到Micrometer
+     * @return 连接池
+     */
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider httpConnectionProvider() {
+        ConnectionProvider.Builder builder = ConnectionProvider.builder("http-client")
+            .maxConnections(defaultMaxPerRoute)
+            .pendingAcquireMaxCount(maxPendingAcquires)
+            .pendingAcquireTimeout(Duration.ofMillis(connectionRequestTimeoutMs))
+            .maxIdleTime(Duration.ofSeconds(idleEvictSeconds))
+            .evictInBackground(Duration.ofSeconds(idleEvictSeconds))
+            .lifo()                                   // 优先复用最近使用的连接，其余连接自然空闲后被回收
+            .metrics(true);
+        for (Route route : routes) {
+            URI uri = URI.create(route.getUrl());
+            boolean secure = "https".equalsIgnoreCase(uri.getScheme());
+            int port = uri.getPort() > 0 ? uri.getPort() : (secure ? 443 : 80); // 与连接池按目标地址查找时的默认端口保持一致
+            builder.forRemoteHost(InetSocketAddress.createUnresolved(uri.getHost(), port),
+                spec -> spec.maxConnections(route.getMaxConnections()));
+        }
+        return builder.build();
+    }
+
+    /**
+     * 创建HttpClient
+     * @param connectionProvider 连接池
+     * @return HttpClient
+     */
+    @Bean
+    public HttpClient httpClient(ConnectionProvider connectionProvider) {
+        return HttpClient.create(connectionProvider)
+            .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutMs.intValue())
+            .responseTimeout(Duration.ofMillis(readTimeoutMs));
+    }
+}
@@ -0,0 +1,37 @@
+package com.exam.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 大模型网关配置类
+ * 配置所有大模型调用共用的并发上限、请求速率（RPS）与Token速率（TPM）预算、排队、重试、熔断和用量统计参数
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "llm.gateway")
+public class LlmGatewayConfig {
+
+    private Integer maxInFlight = 16;              // 同时进行中的大模型请求数上限
+    private Double requestsPerSecond = 10.0;       // 全局请求速率上限（每秒请求数）
+    private Long tokensPerMinute = 300000L;        // 全局Token速率上限（每分钟Token数，含提示词和生成内容）
+    private Double tokensPerChar = 0.7;            // 发送前按提示词字符数估算Token数的系数，响应返回后按实际用量校正
+    private Integer maxQueued = 2000;              // 排队等待的请求数上限，超出后直接拒绝
+    private Long queueTimeoutSeconds = 120L;       // 请求在队列中的最长等待时间（秒）
+    private Long requestTimeoutSeconds = 60L;      // 单次请求默认超时（秒）
+    private Long streamIdleTimeoutSeconds = 30L;   // 流式请求相邻两段内容之间的最长间隔（秒）
+    private Integer maxRetries = 3;                // 限流、超时、5xx等可重试错误的最大重试次数
+    private Long retryMinBackoffMs = 500L;         // 重试初始退避时间（毫秒），按指数增长并加入随机抖动
+    private Long retryMaxBackoffMs = 10000L;       // 重试最大退避时间（毫秒）
+    private Long rateLimitPauseMs = 2000L;         // 收到服务端限流响应后暂停派发新请求的时长（毫秒）
+    private Boolean breakerEnabled = true;         // 是否启用熔断
+    private Integer breakerWindowSize = 20;        // 熔断统计的滑动窗口大小（最近调用次数）
+    private Integer breakerMinimumCalls = 10;      // 窗口内至少有该数量的调用后才计算失败率
+    private Double breakerFailureRateThreshold = 50.0; // 失败率（百分比）达到该值时打开熔断
+    private Long breakerSlowCallMs = 30000L;       // 调用耗时超过该值（毫秒）视为失败
+    private Long breakerOpenSeconds = 30L;         // 熔断打开后进入半开状态前的等待时间（秒）
+    private Integer breakerHalfOpenProbes = 3;     // 半开状态下放行的探测请求数，全部成功后关闭熔断
+    private Integer usageRetentionDays = 90;       // 用量日汇总在Redis中的保留天数
+    private Integer maxResponseBytes = 16 * 1024 * 1024; // 响应体最大字节数（批量出题的响应较大）
+}
@@ -0,0 +1,50 @@
+package com.exam.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * 题目批量导入配置类
+ * 题目、选项、答案分别使用多行INSERT批量写入，并按分段提交事务，避免长时间持有一个大事务；
+ * 导入在后台任务中执行，上传的文件保存在任务目录中，节点重启后可从检查点继续；
+ * Excel预览的解析结果压缩后保存在Redis中，确认导入时直接使用
+ */
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "question.import")
+public class QuestionImportConfig {
+
+    private Integer chunkSize = 500;   // 每个事务提交的题目数
+    private Integer batchSize = 200;   // 每条多行INSERT包含的行数
+
+    private String jobDir = "./uploads/import-jobs/"; // 导入任务文件目录；默认为节点本地目录，配置为共享目录后中断的任务才能由其他节点接管
+    private Integer jobConcurrency = 2;      // 本节点同时执行的导入任务数
+    private Integer jobQueueCapacity = 20;   // 本节点等待执行的导入任务数，超出后留在Redis中等待下次调度
+    private Long jobLockSeconds = 300L;      // 导入任务锁的过期时间（秒），每提交一段续期；节点宕机后锁过期，任务可被重新调度
+    private Integer maxFailureDetails = 1000; // 每个任务最多保留的失败题目明细数
+
+    private Long previewTtlSeconds = 1800L;          // Excel预览结果在Redis中的保留时间（秒）
+    private Integer previewMaxBytes = 32 * 1024 * 1024; // 预览结果压缩后的大小上限（字节），超出时不保存，导入需重新上传文件
+
+    /**
+     * 导入任务线程池
+     * 有界队列，队列满时拒绝提交，任务保持排队状态，由恢复任务稍后重新调度
+     * @return 导入任务线程池
+     */
+    @Bean(name = "importExecutor")
+    public ThreadPoolTaskExecutor importExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(jobConcurrency);
+        executor.setMaxPoolSize(jobConcurrency);
+        executor.setQueueCapacity(jobQueueCapacity);
+        executor.setThreadNamePrefix("question-import-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.initialize();
+        return executor;
+    }
+}
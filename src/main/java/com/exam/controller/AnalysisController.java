@@ -6,7 +6,7 @@ import com.exam.common.Result;
 import com.exam.entity.ExamRecord;
 import com.exam.service.ExamRecordService;
 import com.exam.service.PaperService;
-import com.exam.service.KimiGradingService;
+import com.exam.service.LearningSuggestionService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -30,7 +30,7 @@ public class AnalysisController {
     private PaperService paperService;
 
     @Autowired
-    private KimiGradingService kimiGradingService;
+    private LearningSuggestionService learningSuggestionService;
 
     @GetMapping("/student/{studentName}")
     @Operation(summary = "获取学生学习分析", description = "根据学生姓名获取详细的学习分析数据")
@@ -94,57 +94,12 @@ public class AnalysisController {
     }
 
     @GetMapping("/ai-suggestion/{studentName}")
-    @Operation(summary = "获取AI学习建议", description = "基于学生的考试表现，使用AI生成个性化学习建议")
+    @Operation(summary = "获取AI学习建议", description = "基于学生最近10次已批阅考试的表现返回个性化学习建议；建议在后台生成并缓存，成绩变化后自动刷新")
     public Result<String> getAISuggestion(
             @Parameter(description = "学生姓名") @PathVariable String studentName
     ) {
         try {
-            QueryWrapper<ExamRecord> wrapper = new QueryWrapper<>();
-            wrapper.eq("student_name", studentName);
-            wrapper.eq("status", "已批阅");
-            wrapper.orderByDesc("create_time");
-            wrapper.last("LIMIT 10");
-            List<ExamRecord> records = examRecordService.list(wrapper);
-
-            if (records.isEmpty()) {
-                return Result.success("暂无考试数据，请先参加考试后获取学习建议。");
-            }
-
-            int totalScore = records.stream().mapToInt(ExamRecord::getScore).sum();
-            int avgScore = totalScore / records.size();
-            int passCount = (int) records.stream().filter(r -> r.getScore() >= 60).count();
-            double passRate = (double) passCount / records.size() * 100;
-
-            int[] recentScores = records.stream().limit(5).mapToInt(ExamRecord::getScore).toArray();
-            boolean isImproving = true;
-            for (int i = 1; i < recentScores.length; i++) {
-                if (recentScores[i] < recentScores[i - 1]) {
-                    isImproving = false;
-                    break;
-                }
-            }
-
-            StringBuilder prompt = new StringBuilder();
-            prompt.append("你是一名专业的教育顾问，请为以下学生提供个性化学习建议：\n\n");
-            prompt.append("【学生信息】\n");
-            prompt.append("姓名：").append(studentName).append("\n");
-            prompt.append("最近10次考试平均分：").append(avgScore).append("\n");
-            prompt.append("及格率：").append(String.format("%.1f%%", passRate)).append("\n");
-            prompt.append("最近5次成绩：").append(Arrays.toString(recentScores)).append("\n");
-            prompt.append("成绩趋势：").append(isImproving ? "呈上升趋势" : "波动较大或呈下降趋势").append("\n\n");
-
-            prompt.append("【要求】\n");
-            prompt.append("1. 提供一份200-300字的个性化学习建议\n");
-            prompt.append("2. 肯定学生的进步，指出存在的问题\n");
-            prompt.append("3. 给出3-5条具体的改进建议\n");
-            prompt.append("4. 鼓励学生继续努力学习\n\n");
-            prompt.append("请直接返回建议内容，无需特殊格式。");
-
-            String suggestion = kimiGradingService.generateExamSummary(
-                    avgScore, 100, records.size(), passCount
-            );
-
-            return Result.success(suggestion);
+            return Result.success(learningSuggestionService.getSuggestion(studentName));
         } catch (Exception e) {
             log.error("获取AI学习建议失败", e);
             return Result.error("获取AI学习建议失败: " + e.getMessage());
@@ -4,7 +4,10 @@ import com.exam.common.Result;
 import com.exam.dto.StartExamDto;
 import com.exam.dto.SubmitAnswerDto;
 import com.exam.entity.ExamRecord;
+import com.exam.service.ExamDraftService;
 import com.exam.service.ExamService;
+import com.exam.service.ExamSessionService;
+import com.exam.service.GradingQueueService;
 import com.exam.service.PaperService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -13,6 +16,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * 考试控制器 - 处理考试流程相关的HTTP请求
@@ -35,6 +39,24 @@ public class ExamController {
     @Autowired
     private PaperService paperService;  // 试卷服务
 
+    /**
+     * 注入判卷队列服务
+     */
+    @Autowired
+    private GradingQueueService gradingQueueService;  // 判卷队列服务
+
+    /**
+     * 注入答题草稿服务
+     */
+    @Autowired
+    private ExamDraftService examDraftService;  // 答题草稿服务
+
+    /**
+     * 注入考试会话服务
+     */
+    @Autowired
+    private ExamSessionService examSessionService;  // 考试会话服务
+
     /**
      * 开始考试 - 创建新的考试记录
      * @param startExamDto 开始考试请求DTO
@@ -55,7 +77,7 @@ public class ExamController {
      * @param answers      答案列表
      */
     @PostMapping("/{examRecordId}/submit")  // 处理POST请求
-    @Operation(summary = "提交考试答案", description = "学生提交考试答案，系统记录答题情况")  // API描述
+    @Operation(summary = "提交考试答案", description = "学生提交考试答案，系统记录答题情况并加入判卷队列异步批阅")  // API描述
     public Result<Void> submitAnswers(
             @Parameter(description = "考试记录ID") @PathVariable Integer examRecordId, 
             @RequestBody List<SubmitAnswerDto> answers) {
@@ -63,6 +85,56 @@ public class ExamController {
         return Result.success("答案提交成功");
     }
 
+    /**
+     * 考试心跳 - 考试过程中定期上报，返回剩余时间
+     * @param examRecordId 考试记录ID
+     * @return 会话状态（截止时间、剩余秒数等）
+     */
+    @PostMapping("/{examRecordId}/heartbeat")  // 处理POST请求
+    @Operation(summary = "考试心跳", description = "考试过程中定期上报心跳，返回服务端计算的剩余时间")  // API描述
+    public Result<Map<String, Object>> heartbeat(
+            @Parameter(description = "考试记录ID") @PathVariable Integer examRecordId) {
+        return Result.success(examSessionService.heartbeat(examRecordId));
+    }
+
+    /**
+     * 查询考试会话 - 获取开始时间、截止时间和剩余时间
+     * @param examRecordId 考试记录ID
+     * @return 会话状态
+     */
+    @GetMapping("/{examRecordId}/session")  // 处理GET请求
+    @Operation(summary = "查询考试会话", description = "获取进行中考试的开始时间、截止时间和剩余时间")  // API描述
+    public Result<Map<String, Object>> getSession(
+            @Parameter(description = "考试记录ID") @PathVariable Integer examRecordId) {
+        return Result.success(examSessionService.getSessionState(examRecordId));
+    }
+
+    /**
+     * 自动保存答案 - 考试过程中定期保存发生变化的答案
+     * @param examRecordId 考试记录ID
+     * @param answers      变化的答案列表
+     */
+    @PostMapping("/{examRecordId}/autosave")  // 处理POST请求
+    @Operation(summary = "自动保存答案", description = "考试过程中自动保存发生变化的答案，只写入缓存，交卷时与提交的答案合并")  // API描述
+    public Result<Void> autosave(
+            @Parameter(description = "考试记录ID") @PathVariable Integer examRecordId,
+            @RequestBody List<SubmitAnswerDto> answers) {
+        examDraftService.saveDraft(examRecordId, answers);
+        return Result.success("答案已自动保存");
+    }
+
+    /**
+     * 获取答题草稿 - 页面刷新或浏览器崩溃后恢复作答
+     * @param examRecordId 考试记录ID
+     * @return 题目ID与答案的映射
+     */
+    @GetMapping("/{examRecordId}/draft")  // 处理GET请求
+    @Operation(summary = "获取答题草稿", description = "获取自动保存的答案，用于页面刷新或浏览器崩溃后恢复作答")  // API描述
+    public Result<Map<Integer, String>> getDraft(
+            @Parameter(description = "考试记录ID") @PathVariable Integer examRecordId) {
+        return Result.success(examDraftService.getDraft(examRecordId));
+    }
+
     /**
      * AI自动批阅 - 触发试卷智能批阅
      * @param examRecordId 考试记录ID
@@ -75,6 +147,18 @@ public class ExamController {
         return Result.success(examRecord, "试卷批阅完成");
     }
 
+    /**
+     * 查询判卷进度 - 提交答案后轮询判卷状态
+     * @param examRecordId 考试记录ID
+     * @return 判卷状态（QUEUED/GRADING/GRADED/FAILED）及得分
+     */
+    @GetMapping("/{examRecordId}/grading-status")  // 处理GET请求
+    @Operation(summary = "查询判卷进度", description = "提交答案后轮询判卷状态，判卷完成后返回得分")  // API描述
+    public Result<Map<String, Object>> getGradingStatus(
+            @Parameter(description = "考试记录ID") @PathVariable Integer examRecordId) {
+        return Result.success(gradingQueueService.getGradingStatus(examRecordId));
+    }
+
     /**
      * 根据ID获取考试记录详情 - 查询具体考试结果
      */
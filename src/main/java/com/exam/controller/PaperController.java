@@ -5,6 +5,7 @@ import com.exam.dto.AiPaperDto;
 import com.exam.dto.PaperDto;
 import com.exam.entity.Paper;
 import com.exam.service.PaperService;
+import com.exam.service.RegradeService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -13,6 +14,8 @@ import org.springframework.web.bind.annotation.*;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import org.springframework.util.StringUtils;
 
+import java.util.Map;
+
 /**
  * 试卷控制器 - 处理试卷管理相关的HTTP请求
  * 包括试卷的CRUD操作、AI智能组卷、状态管理等功能
@@ -28,6 +31,12 @@ public class PaperController {
     @Autowired
     private PaperService paperService;
 
+    /**
+     * 注入整卷重判服务
+     */
+    @Autowired
+    private RegradeService regradeService;
+
     /**
      * 获取所有试卷列表（支持模糊搜索和状态筛选）
      */
@@ -117,6 +126,31 @@ public class PaperController {
         return Result.success(null, "状态更新成功");
     }
 
+    /**
+     * 整卷重判 - 标准答案修正后重新批阅该试卷下所有已批阅的考试记录
+     * @param id 试卷ID
+     * @param resume 是否从上次中断的检查点继续
+     * @return 任务进度
+     */
+    @PostMapping("/{id}/regrade")  // 处理POST请求
+    @Operation(summary = "整卷重判", description = "后台重新批阅试卷下所有已批阅的考试记录，支持从上次中断的检查点继续")  // API描述
+    public Result<Map<String, Object>> regradePaper(
+            @Parameter(description = "试卷ID") @PathVariable Integer id,
+            @Parameter(description = "是否从上次中断的检查点继续") @RequestParam(defaultValue = "false") Boolean resume) {
+        return Result.success(regradeService.startRegrade(id, resume), "重判任务已启动");
+    }
+
+    /**
+     * 查询整卷重判进度
+     * @param id 试卷ID
+     * @return 任务进度
+     */
+    @GetMapping("/{id}/regrade")  // 处理GET请求
+    @Operation(summary = "查询整卷重判进度", description = "查询整卷重判任务的状态、已处理数量和检查点")  // API描述
+    public Result<Map<String, Object>> getRegradeProgress(@Parameter(description = "试卷ID") @PathVariable Integer id) {
+        return Result.success(regradeService.getRegradeProgress(id));
+    }
+
     /**
      * 删除试卷
      * @param id 试卷ID
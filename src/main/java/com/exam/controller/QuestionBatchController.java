@@ -3,8 +3,9 @@ package com.exam.controller;
 import com.exam.common.Result;
 import com.exam.dto.AiGenerateRequestDto;
 import com.exam.dto.QuestionImportDto;
+import com.exam.dto.QuestionImportPreviewDto;
 import com.exam.service.KimiAiService;
-import com.exam.service.QuestionService;
+import com.exam.service.QuestionImportJobService;
 import com.exam.utils.ExcelUtil;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.Parameter;
@@ -17,8 +18,18 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * 题目批量管理控制器 - 处理题目批量操作相关的HTTP请求
@@ -31,16 +42,18 @@ import java.util.List;
 public class QuestionBatchController {
     
     /**
-     * 注入题目业务服务
+     * 注入AI服务
      */
     @Autowired
-    private QuestionService questionService; // 注入题目服务
+    private KimiAiService kimiAiService; // 注入Kimi AI服务
     
     /**
-     * 注入AI服务
+     * 注入题目导入任务服务
      */
     @Autowired
-    private KimiAiService kimiAiService; // 注入Kimi AI服务
+    private QuestionImportJobService questionImportJobService; // 注入题目导入任务服务
+    
+    private static final Duration IMPORT_PROGRESS_INTERVAL = Duration.ofSeconds(1); // 导入进度推送间隔
     
     /**
      * 下载Excel导入模板
@@ -65,12 +78,13 @@ public class QuestionBatchController {
     
     /**
      * 预览Excel文件内容（不入库）
+     * 解析结果和校验结果保存在服务端并返回预览令牌，确认导入时提交令牌即可，无需重新上传文件
      * @param file Excel文件
-     * @return 解析出的题目列表
+     * @return 解析出的题目列表、校验结果和预览令牌
      */
     @PostMapping("/preview-excel")  // 处理POST请求
-    @Operation(summary = "预览Excel文件内容", description = "解析并预览Excel文件中的题目内容，不会导入到数据库")  // API描述
-    public Result<List<QuestionImportDto>> previewExcel(
+    @Operation(summary = "预览Excel文件内容", description = "解析并校验Excel文件中的题目内容，不会导入到数据库；返回的预览令牌可用于确认导入")  // API描述
+    public Result<QuestionImportPreviewDto> previewExcel(
             @Parameter(description = "Excel文件，支持.xls和.xlsx格式") @RequestParam("file") MultipartFile file) {
         try {
             // 验证文件格式
@@ -90,8 +104,24 @@ public class QuestionBatchController {
                 return Result.error("Excel文件中没有有效的题目数据");
             }
             
-            log.info("成功解析Excel文件，共{}道题目", questions.size());
-            return Result.success(questions);
+            // 校验题目并保存预览结果，确认导入时只导入校验通过的题目
+            List<String> errors = new ArrayList<>();
+            List<QuestionImportDto> validQuestions = new ArrayList<>(questions.size());
+            for (int i = 0; i < questions.size(); i++) {
+                String error = validateSingleQuestion(questions.get(i), i + 1);
+                if (error != null) {
+                    errors.add(error);
+                } else {
+                    validQuestions.add(questions.get(i));
+                }
+            }
+            QuestionImportPreviewDto preview = questionImportJobService.savePreview(fileName, questions, validQuestions, errors);
+            
+            log.info("成功解析Excel文件，共{}道题目，校验未通过{}道", questions.size(), errors.size());
+            if (preview.getToken() == null) {
+                return Result.success(preview, "题目数量过多，预览结果未保存，导入时请重新上传文件");
+            }
+            return Result.success(preview);
             
         } catch (Exception e) {
             log.error("解析Excel文件失败", e);
@@ -100,13 +130,14 @@ public class QuestionBatchController {
     }
     
     /**
-     * 从Excel文件批量导入题目
+     * 从Excel文件批量导入题目（后台任务）
+     * 文件保存后立即返回任务ID，导入进度通过 /import-jobs/{jobId} 查询或 /import-jobs/{jobId}/events 订阅
      * @param file Excel文件
-     * @return 导入结果
+     * @return 导入任务进度
      */
     @PostMapping("/import-excel")  // 处理POST请求
-    @Operation(summary = "从Excel文件批量导入题目", description = "解析Excel文件并将题目批量导入到数据库")  // API描述
-    public Result<String> importFromExcel(
+    @Operation(summary = "从Excel文件批量导入题目", description = "上传Excel文件并创建后台导入任务，返回任务ID，可查询或订阅导入进度")  // API描述
+    public Result<Map<String, Object>> importFromExcel(
             @Parameter(description = "Excel文件，包含题目数据") @RequestParam("file") MultipartFile file) {
         try {
             // 验证文件格式
@@ -119,20 +150,11 @@ public class QuestionBatchController {
                 return Result.error("请上传Excel文件（.xlsx或.xls格式）");
             }
             
-            // 解析Excel文件
-            List<QuestionImportDto> questions = ExcelUtil.parseExcel(file);
-            
-            if (questions.isEmpty()) {
-                return Result.error("Excel文件中没有有效的题目数据");
-            }
-            
-            // 批量导入题目
-            int successCount = questionService.batchImportQuestions(questions);
-            
-            String message = String.format("Excel导入完成！成功导入 %d / %d 道题目", successCount, questions.size());
-            log.info(message);
+            // 创建后台导入任务
+            Map<String, Object> job = questionImportJobService.submitExcel(file);
+            log.info("Excel导入任务已创建，任务ID: {}, 文件: {}", job.get("jobId"), fileName);
             
-            return Result.success(message);
+            return Result.success(job, "导入任务已提交");
             
         } catch (Exception e) {
             log.error("Excel批量导入失败", e);
@@ -158,6 +180,11 @@ public class QuestionBatchController {
             }
             
             log.info("AI成功生成{}道关于【{}】的题目", questions.size(), request.getTopic());
+            if (questions.size() < request.getCount()) {
+                // 部分子请求失败或生成了重复题目，返回已生成的部分
+                return Result.success(questions, String.format("实际生成%d道题目（请求%d道），部分批次生成失败或存在重复题目",
+                        questions.size(), request.getCount()));
+            }
             return Result.success(questions);
             
         } catch (Exception e) {
@@ -167,25 +194,87 @@ public class QuestionBatchController {
     }
     
     /**
-     * 批量导入题目（通用接口，支持Excel导入或AI生成后的确认导入）
+     * 使用AI流式生成题目（预览，不入库）
+     * 每生成一道完整题目立即通过SSE推送：question事件为题目，done事件为生成总数，error事件为错误信息
+     * @param request AI生成请求参数
+     * @return SSE事件流
+     */
+    @PostMapping(value = "/ai-generate/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)  // 处理POST请求，返回SSE事件流
+    @Operation(summary = "AI流式生成题目", description = "使用AI流式生成题目，每生成一道题目立即推送，无需等待全部生成完成")  // API描述
+    public SseEmitter generateQuestionsByAiStream(@RequestBody @Validated AiGenerateRequestDto request) {
+        SseEmitter emitter = new SseEmitter(0L); // 不设整体超时，由大模型网关按内容间隔判断超时
+        AtomicInteger count = new AtomicInteger();
+        Disposable subscription = kimiAiService.generateQuestionsStream(request).subscribe(
+                question -> {
+                    try {
+                        emitter.send(SseEmitter.event().name("question").data(question, MediaType.APPLICATION_JSON));
+                        count.incrementAndGet();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e); // 客户端已断开，终止生成
+                    }
+                },
+                error -> {
+                    log.error("AI流式生成题目失败: {}", error.getMessage());
+                    try {
+                        emitter.send(SseEmitter.event().name("error").data(String.valueOf(error.getMessage())));
+                        emitter.complete();
+                    } catch (Exception e) {
+                        emitter.completeWithError(e);
+                    }
+                },
+                () -> {
+                    log.info("AI流式生成{}道关于【{}】的题目", count.get(), request.getTopic());
+                    try {
+                        emitter.send(SseEmitter.event().name("done").data(count.get()));
+                        emitter.complete();
+                    } catch (Exception e) {
+                        emitter.completeWithError(e);
+                    }
+                });
+        // 客户端断开或连接异常时取消订阅，同时中断上游的大模型请求
+        emitter.onCompletion(subscription::dispose);
+        emitter.onError(e -> subscription.dispose());
+        return emitter;
+    }
+    
+    /**
+     * 确认导入预览过的Excel题目（后台任务）
+     * 直接使用预览时已解析的题目，无需重新上传和解析文件
+     * @param token 预览令牌
+     * @return 导入任务进度
+     */
+    @PostMapping("/import-preview")  // 处理POST请求
+    @Operation(summary = "确认导入预览的题目", description = "凭预览令牌创建后台导入任务，导入预览时解析出的题目，返回任务ID")  // API描述
+    public Result<Map<String, Object>> importPreview(
+            @Parameter(description = "预览Excel时返回的预览令牌") @RequestParam String token) {
+        try {
+            Map<String, Object> job = questionImportJobService.submitPreview(token);
+            log.info("预览题目导入任务已创建，任务ID: {}, 文件: {}", job.get("jobId"), job.get("fileName"));
+            return Result.success(job, "导入任务已提交");
+        } catch (Exception e) {
+            log.error("确认导入预览题目失败", e);
+            return Result.error("确认导入失败: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * 批量导入题目（通用接口，支持Excel导入或AI生成后的确认导入，后台任务）
      * @param questions 题目导入DTO列表
-     * @return 导入结果
+     * @return 导入任务进度
      */
     @PostMapping("/import-questions")  // 处理POST请求
-    @Operation(summary = "批量导入题目", description = "将题目列表批量导入到数据库，支持Excel解析后的导入或AI生成后的确认导入")  // API描述
-    public Result<String> importQuestions(@RequestBody List<QuestionImportDto> questions) {
+    @Operation(summary = "批量导入题目", description = "创建后台任务将题目列表导入到数据库，支持Excel解析后的导入或AI生成后的确认导入")  // API描述
+    public Result<Map<String, Object>> importQuestions(@RequestBody List<QuestionImportDto> questions) {
         try {
             if (questions == null || questions.isEmpty()) {
                 return Result.error("题目列表不能为空");
             }
             
-            // 批量导入题目
-            int successCount = questionService.batchImportQuestions(questions);
+            // 创建后台导入任务
+            Map<String, Object> job = questionImportJobService.submitQuestions(questions);
+            log.info("题目导入任务已创建，任务ID: {}, 题目数: {}", job.get("jobId"), questions.size());
             
-            String message = String.format("批量导入完成！成功导入 %d / %d 道题目", successCount, questions.size());
-            log.info(message);
-            
-            return Result.success(message);
+            return Result.success(job, "导入任务已提交");
             
         } catch (Exception e) {
             log.error("批量导入题目失败", e);
@@ -193,6 +282,82 @@ public class QuestionBatchController {
         }
     }
     
+    /**
+     * 查询导入任务进度
+     * @param jobId 任务ID
+     * @return 任务进度：状态、已解析数、已导入数、失败数及失败题目明细
+     */
+    @GetMapping("/import-jobs/{jobId}")  // 处理GET请求
+    @Operation(summary = "查询导入任务进度", description = "查询题目导入任务的状态、已解析/已导入/失败数量和失败题目明细")  // API描述
+    public Result<Map<String, Object>> getImportJob(@Parameter(description = "任务ID") @PathVariable String jobId) {
+        Map<String, Object> progress = questionImportJobService.getProgress(jobId, true);
+        if (progress.isEmpty()) {
+            return Result.error("导入任务不存在");
+        }
+        return Result.success(progress);
+    }
+    
+    /**
+     * 从检查点继续执行失败的导入任务
+     * @param jobId 任务ID
+     * @return 任务进度
+     */
+    @PostMapping("/import-jobs/{jobId}/resume")  // 处理POST请求
+    @Operation(summary = "续跑导入任务", description = "从检查点继续执行失败的题目导入任务，已导入的题目不会重复导入")  // API描述
+    public Result<Map<String, Object>> resumeImportJob(@Parameter(description = "任务ID") @PathVariable String jobId) {
+        try {
+            return Result.success(questionImportJobService.resume(jobId), "导入任务已重新提交");
+        } catch (Exception e) {
+            log.error("续跑导入任务失败，任务ID: {}", jobId, e);
+            return Result.error("续跑导入任务失败: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * 订阅导入任务进度
+     * 进度变化时通过SSE推送：progress事件为任务进度，done事件为最终进度（含失败题目明细），error事件为错误信息
+     * @param jobId 任务ID
+     * @return SSE事件流
+     */
+    @GetMapping(value = "/import-jobs/{jobId}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)  // 处理GET请求，返回SSE事件流
+    @Operation(summary = "订阅导入任务进度", description = "通过SSE推送题目导入任务的进度，任务完成或失败后结束")  // API描述
+    public SseEmitter subscribeImportJob(@Parameter(description = "任务ID") @PathVariable String jobId) {
+        SseEmitter emitter = new SseEmitter(0L); // 不设整体超时，任务结束时关闭
+        Disposable subscription = Flux.interval(Duration.ZERO, IMPORT_PROGRESS_INTERVAL, Schedulers.boundedElastic())
+                .map(tick -> questionImportJobService.getProgress(jobId, false))
+                .distinctUntilChanged()
+                .takeUntil(progress -> progress.isEmpty() || isImportFinished(progress))
+                .subscribe(
+                        progress -> {
+                            try {
+                                if (progress.isEmpty()) {
+                                    emitter.send(SseEmitter.event().name("error").data("导入任务不存在"));
+                                } else if (isImportFinished(progress)) {
+                                    emitter.send(SseEmitter.event().name("done")
+                                            .data(questionImportJobService.getProgress(jobId, true), MediaType.APPLICATION_JSON));
+                                } else {
+                                    emitter.send(SseEmitter.event().name("progress").data(progress, MediaType.APPLICATION_JSON));
+                                }
+                            } catch (IOException e) {
+                                throw new UncheckedIOException(e); // 客户端已断开，停止推送
+                            }
+                        },
+                        error -> {
+                            log.warn("推送导入任务进度失败，任务ID: {}, 错误: {}", jobId, error.getMessage());
+                            emitter.completeWithError(error);
+                        },
+                        emitter::complete);
+        // 客户端断开时停止轮询
+        emitter.onCompletion(subscription::dispose);
+        emitter.onError(e -> subscription.dispose());
+        return emitter;
+    }
+    
+    private static boolean isImportFinished(Map<String, Object> progress) {
+        Object status = progress.get("status");
+        return QuestionImportJobService.STATUS_COMPLETED.equals(status) || QuestionImportJobService.STATUS_FAILED.equals(status);
+    }
+    
     /**
      * 验证题目数据
      * @param questions 题目列表
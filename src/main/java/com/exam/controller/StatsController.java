@@ -2,12 +2,19 @@ package com.exam.controller;
 
 import com.exam.common.Result;
 import com.exam.dto.StatsDto;
+import com.exam.dto.ai.LlmUsageDto;
+import com.exam.service.LlmUsageRecorder;
 import com.exam.service.StatsService;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
+import java.util.List;
+
 /**
  * 统计控制器 - 处理系统数据统计相关的HTTP请求
  * 包括系统概览数据、各种统计信息等功能
@@ -24,6 +31,12 @@ public class StatsController {
     @Autowired
     private StatsService statsService;
 
+    /**
+     * 注入大模型用量统计
+     */
+    @Autowired
+    private LlmUsageRecorder llmUsageRecorder;
+
     /**
      * 获取系统统计数据
      * 包括题目数量、用户数量、考试数量等
@@ -36,6 +49,21 @@ public class StatsController {
         return Result.success(stats);
     }
 
+    /**
+     * 获取大模型用量日汇总
+     * 按调用方（判卷、总评、出题、对话等）和模型分组统计调用次数、失败次数、Token用量和平均耗时；
+     * 耗时分布等实时指标见 /actuator/metrics/llm.requests
+     * @param date 日期，默认当天
+     * @return 用量汇总列表
+     */
+    @GetMapping("/llm-usage")  // 处理GET请求
+    @Operation(summary = "获取大模型用量日汇总", description = "按调用方和模型统计某一天的大模型调用次数、失败次数、Token用量和平均耗时")  // API描述
+    public Result<List<LlmUsageDto>> getLlmUsage(
+            @Parameter(description = "日期（yyyy-MM-dd），默认当天") @RequestParam(required = false)
+            @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate date) {
+        return Result.success(llmUsageRecorder.getDailyUsage(date != null ? date : LocalDate.now()));
+    }
+
     /**
      * 测试数据库连接
      * @return 测试结果
@@ -0,0 +1,37 @@
+package com.exam.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 题目导入预览DTO - Excel解析结果、校验结果和预览令牌
+ * 确认导入时提交预览令牌，服务端直接使用已解析的题目，无需重新上传和解析文件
+ */
+@Data
+@Schema(description = "题目导入预览")
+public class QuestionImportPreviewDto {
+
+    @Schema(description = "预览令牌，确认导入时提交；预览数据过大未保存时为空", example = "3f2a9c0e8b7d4e6f9a1b2c3d4e5f6a7b")
+    private String token;            // 预览令牌
+
+    @Schema(description = "预览令牌有效期（秒）", example = "1800")
+    private long expireSeconds;      // 预览令牌有效期
+
+    @Schema(description = "文件名", example = "题库.xlsx")
+    private String fileName;         // 文件名
+
+    @Schema(description = "解析出的题目总数", example = "10000")
+    private int total;               // 题目总数
+
+    @Schema(description = "校验通过的题目数", example = "9998")
+    private int validCount;          // 校验通过的题目数
+
+    @Schema(description = "校验错误信息", example = "[\"第15题：选择题必须有正确答案\"]")
+    private List<String> errors = new ArrayList<>(); // 校验错误
+
+    @Schema(description = "解析出的题目列表")
+    private List<QuestionImportDto> questions;       // 题目列表
+}
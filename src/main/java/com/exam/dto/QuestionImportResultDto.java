@@ -0,0 +1,56 @@
+package com.exam.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 题目批量导入结果DTO - 导入数量统计和失败行明细
+ */
+@Data
+@Schema(description = "题目批量导入结果")
+public class QuestionImportResultDto {
+
+    @Schema(description = "提交的题目总数", example = "10000")
+    private int total;               // 提交的题目总数
+
+    @Schema(description = "成功导入的题目数", example = "9998")
+    private int successCount;        // 成功导入的题目数
+
+    @Schema(description = "导入失败的题目数", example = "2")
+    private int failedCount;         // 导入失败的题目数
+
+    @Schema(description = "导入失败的题目明细")
+    private List<FailedRow> failures = new ArrayList<>(); // 失败明细
+
+    /**
+     * 记录一条导入失败的题目
+     */
+    public void addFailure(int row, String title, String reason) {
+        failures.add(new FailedRow(row, title, reason));
+        failedCount++;
+    }
+
+    /**
+     * 导入失败的题目
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @Schema(description = "导入失败的题目")
+    public static class FailedRow {
+
+        @Schema(description = "题目在导入列表中的序号（从1开始）", example = "15")
+        private int row;             // 序号
+
+        @Schema(description = "题目内容", example = "以下关于Java的说法正确的是？")
+        private String title;        // 题目内容
+
+        @Schema(description = "失败原因", example = "题目类型必须是CHOICE、JUDGE或TEXT")
+        private String reason;       // 失败原因
+    }
+}
@@ -0,0 +1,50 @@
+package com.exam.dto.ai;
+
+import com.exam.service.LlmGateway;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+/**
+ * 大模型网关请求 DTO
+ */
+@Data
+@Builder
+public class LlmRequest {
+    /**
+     * 消息列表
+     */
+    private List<ChatMessage> messages; // 消息列表
+
+    /**
+     * 模型名称，为空时使用默认模型
+     */
+    private String model; // 模型名称
+
+    /**
+     * 温度参数
+     */
+    private Double temperature; // 温度参数
+
+    /**
+     * 最大生成token数
+     */
+    private Integer maxTokens; // 最大生成token数
+
+    /**
+     * 优先级，交互类请求优先于批量任务
+     */
+    @Builder.Default
+    private LlmGateway.Priority priority = LlmGateway.Priority.INTERACTIVE; // 优先级
+
+    /**
+     * 单次请求超时（秒），为空时使用网关默认值
+     */
+    private Long timeoutSeconds; // 超时时间
+
+    /**
+     * 调用方标识，用于日志和用量统计
+     */
+    private String caller; // 调用方
+}
@@ -0,0 +1,38 @@
+package com.exam.dto.ai;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 大模型网关响应 DTO
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class LlmResponse {
+    /**
+     * 生成内容
+     */
+    private String content; // 生成内容
+
+    /**
+     * 模型名称
+     */
+    private String model; // 模型名称
+
+    /**
+     * 提示词Token数
+     */
+    private int promptTokens; // 提示词Token数
+
+    /**
+     * 生成Token数
+     */
+    private int completionTokens; // 生成Token数
+
+    /**
+     * 总Token数
+     */
+    private int totalTokens; // 总Token数
+}
@@ -0,0 +1,39 @@
+package com.exam.dto.ai;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Data;
+
+/**
+ * 大模型用量日汇总 DTO（按调用方和模型分组）
+ */
+@Data
+@Schema(description = "大模型用量日汇总")
+public class LlmUsageDto {
+
+    @Schema(description = "日期", example = "2026-01-15")
+    private String date;              // 日期
+
+    @Schema(description = "调用方", example = "grading")
+    private String caller;            // 调用方
+
+    @Schema(description = "模型名称", example = "qwen-plus")
+    private String model;             // 模型名称
+
+    @Schema(description = "调用次数", example = "1200")
+    private long calls;               // 调用次数
+
+    @Schema(description = "失败次数（含超时、限流）", example = "12")
+    private long failedCalls;         // 失败次数
+
+    @Schema(description = "提示词Token数", example = "850000")
+    private long promptTokens;        // 提示词Token数
+
+    @Schema(description = "生成Token数", example = "120000")
+    private long completionTokens;    // 生成Token数
+
+    @Schema(description = "总Token数", example = "970000")
+    private long totalTokens;         // 总Token数
+
+    @Schema(description = "平均耗时（毫秒）", example = "3200")
+    private long avgLatencyMs;        // 平均耗时
+}
@@ -3,6 +3,10 @@ package com.exam.mapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.exam.entity.AnswerRecord;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.cursor.Cursor;
+
+import java.util.List;
 
 /**
 * @author 86158
@@ -13,4 +17,28 @@ import org.apache.ibatis.annotations.Mapper;
 @Mapper
 public interface AnswerRecordMapper extends BaseMapper<AnswerRecord> {
 
-} 
\ No newline at end of file
+    /**
+     * 批量插入答题记录 - 多行INSERT，一次往返写入一批答案，并回填自增ID
+     *
+     * @param records 答题记录列表（不能为空）
+     * @return 插入行数
+     */
+    int insertBatch(@Param("records") List<AnswerRecord> records);
+
+    /**
+     * 批量回写判卷结果 - 基于CASE的多行UPDATE，只更新得分、正确性和AI评语
+     *
+     * @param records 已判卷的答题记录列表（不能为空，id必须存在）
+     * @return 更新行数
+     */
+    int updateGradingBatch(@Param("records") List<AnswerRecord> records);
+
+    /**
+     * 流式读取指定考试记录的答题记录（含原得分和正确性） - 返回游标逐行读取，结果按考试记录ID、答题记录ID排序
+     * 游标需在SqlSession关闭前遍历完成
+     *
+     * @param examRecordIds 考试记录ID列表（不能为空）
+     * @return 答题记录游标
+     */
+    Cursor<AnswerRecord> streamByExamRecordIds(@Param("examRecordIds") List<Integer> examRecordIds);
+}
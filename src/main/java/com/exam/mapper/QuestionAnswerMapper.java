@@ -3,7 +3,17 @@ package com.exam.mapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.exam.entity.QuestionAnswer;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
 
 @Mapper
 public interface QuestionAnswerMapper extends BaseMapper<QuestionAnswer> {
+
+    /**
+     * 批量插入答案 - 多行INSERT，一次往返写入一批答案
+     * @param answers 答案列表（不能为空，questionId必须已设置）
+     * @return 插入行数
+     */
+    int insertBatch(@Param("answers") List<QuestionAnswer> answers);
 } 
\ No newline at end of file
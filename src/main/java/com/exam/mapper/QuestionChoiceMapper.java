@@ -3,7 +3,17 @@ package com.exam.mapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.exam.entity.QuestionChoice;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
 
 @Mapper
 public interface QuestionChoiceMapper extends BaseMapper<QuestionChoice> {
+
+    /**
+     * 批量插入选项 - 多行INSERT，一次往返写入一批选项
+     * @param choices 选项列表（不能为空，questionId必须已设置）
+     * @return 插入行数
+     */
+    int insertBatch(@Param("choices") List<QuestionChoice> choices);
 } 
\ No newline at end of file
@@ -3,6 +3,7 @@ package com.exam.mapper;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
 import com.exam.entity.Question;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
 import org.apache.ibatis.annotations.Select;
 import org.apache.ibatis.annotations.Results;
 import org.apache.ibatis.annotations.Result;
@@ -28,4 +29,11 @@ public interface QuestionMapper extends BaseMapper<Question> {
         @Result(property = "count", column = "count")
     })
     List<Map<String, Object>> getCategoryQuestionCount();
+
+    /**
+     * 批量插入题目 - 多行INSERT，一次往返写入一批题目，并回填自增ID
+     * @param questions 题目列表（不能为空）
+     * @return 插入行数
+     */
+    int insertBatch(@Param("questions") List<Question> questions);
 } 
\ No newline at end of file
@@ -0,0 +1,294 @@
+package com.exam.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.exam.config.GradingConfig;
+import com.exam.entity.Paper;
+import com.exam.entity.PaperQuestion;
+import com.exam.entity.Question;
+import com.exam.entity.QuestionAnswer;
+import com.exam.mapper.PaperMapper;
+import com.exam.mapper.PaperQuestionMapper;
+import com.exam.mapper.QuestionAnswerMapper;
+import com.exam.mapper.QuestionMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * 编译答案服务
+ * 试卷发布时将标准答案编译为紧凑的内存结构（AnswerKey）并缓存在本节点，
+ * 客观题判卷直接基于AnswerKey进行，无需访问数据库，也几乎不产生临时对象
+ *
+ * 缓存失效：试卷更新、状态变更、题目修改时主动失效；多节点部署下依靠过期时间兜底
+ */
+@Slf4j
+@Service
+public class AnswerKeyService {
+
+    @Autowired
+    private PaperMapper paperMapper;
+    @Autowired
+    private PaperQuestionMapper paperQuestionMapper;
+    @Autowired
+    private QuestionMapper questionMapper;
+    @Autowired
+    private QuestionAnswerMapper questionAnswerMapper;
+    @Autowired
+    private GradingConfig gradingConfig;
+
+    private final Map<Integer, AnswerKey> answerKeys = new ConcurrentHashMap<>();
+
+    /**
+     * 获取试卷的编译答案，本地缓存未命中或已过期时重新编译
+     * @param paperId 试卷ID
+     * @return 编译答案，试卷不存在时返回null
+     */
+    public AnswerKey getAnswerKey(Integer paperId) {
+        AnswerKey answerKey = answerKeys.get(paperId);
+        long ttlMillis = gradingConfig.getAnswerKeyTtlSeconds() * 1000;
+        if (answerKey != null && System.currentTimeMillis() - answerKey.compiledAt < ttlMillis) {
+            return answerKey;
+        }
+        answerKey = compile(paperId);
+        if (answerKey != null) {
+            answerKeys.put(paperId, answerKey);
+        } else {
+            answerKeys.remove(paperId);
+        }
+        return answerKey;
+    }
+
+    /**
+     * 试卷发布时预编译答案，避免开考后第一批交卷同时触发编译
+     * @param paperId 试卷ID
+     */
+    public void preload(Integer paperId) {
+        answerKeys.remove(paperId);
+        getAnswerKey(paperId);
+    }
+
+    /**
+     * 使指定试卷的编译答案失效
+     * 若当前处于事务中，则在事务提交后才失效，避免提交前被并发的判卷按旧数据重新编译并缓存
+     * @param paperId 试卷ID
+     */
+    public void evict(Integer paperId) {
+        afterCommit(() -> answerKeys.remove(paperId));
+    }
+
+    /**
+     * 使所有编译答案失效（题目标准答案被修改时调用，题目可能被多张试卷引用）
+     * 若当前处于事务中，则在事务提交后才失效
+     */
+    public void evictAll() {
+        afterCommit(answerKeys::clear);
+    }
+
+    private void afterCommit(Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    action.run();
+                }
+            });
+        } else {
+            action.run();
+        }
+    }
+
+    /**
+     * 编译试卷答案：只查询试卷、关联、题目和答案，不加载选项
+     */
+    private AnswerKey compile(Integer paperId) {
+        Paper paper = paperMapper.selectById(paperId);
+        if (paper == null) {
+            return null;
+        }
+
+        List<PaperQuestion> paperQuestions = paperQuestionMapper.selectList(
+            new QueryWrapper<PaperQuestion>().eq("paper_id", paperId));
+        Map<Long, BigDecimal> scoreMap = paperQuestions.stream()
+            .collect(Collectors.toMap(PaperQuestion::getQuestionId, PaperQuestion::getScore, (v1, v2) -> v1));
+
+        List<Question> questions = scoreMap.isEmpty() ? new ArrayList<>() : questionMapper.selectBatchIds(scoreMap.keySet());
+        Map<Long, QuestionAnswer> answersMap = questions.isEmpty() ? Map.of() : questionAnswerMapper.selectList(
+                new QueryWrapper<QuestionAnswer>().in("question_id", scoreMap.keySet())).stream()
+            .collect(Collectors.toMap(QuestionAnswer::getQuestionId, Function.identity(), (v1, v2) -> v1));
+
+        questions.sort((q1, q2) -> Long.compare(q1.getId(), q2.getId()));
+        AnswerKey answerKey = new AnswerKey(paperId, questions.size(),
+            paper.getTotalScore() != null ? paper.getTotalScore().intValue() : 0);
+        for (int i = 0; i < questions.size(); i++) {
+            Question question = questions.get(i);
+            question.setPaperScore(scoreMap.get(question.getId()));
+            question.setAnswer(answersMap.get(question.getId()));
+            answerKey.set(i, question);
+        }
+        log.info("试卷答案编译完成，试卷ID: {}, 题目数: {}", paperId, questions.size());
+        return answerKey;
+    }
+
+    /**
+     * 编译后的试卷答案
+     * 按题目ID排序的并行数组：选择题答案编译为位掩码（A=bit0, B=bit1...），判断题答案编译为布尔值；
+     * 主观题保留题目对象供AI判卷使用
+     */
+    public static class AnswerKey {
+
+        public static final byte TYPE_CHOICE = 0;
+        public static final byte TYPE_JUDGE = 1;
+        public static final byte TYPE_TEXT = 2;
+        public static final byte TYPE_OTHER = 3;
+
+        private static final byte JUDGE_FALSE = 0;
+        private static final byte JUDGE_TRUE = 1;
+        private static final byte JUDGE_UNKNOWN = -1;
+
+        private final Integer paperId;
+        private final int totalScore;
+        private final long[] questionIds;
+        private final byte[] types;
+        private final int[] maxScores;
+        private final int[] choiceMasks;      // 选择题：正确选项位掩码；无法解析时为0
+        private final byte[] judgeAnswers;    // 判断题：1正确、0错误、-1无法识别
+        private final String[] rawAnswers;    // 原始标准答案，仅用于无法编译时的兜底比较和日志
+        private final Question[] textQuestions; // 主观题题目（客观题位置为null）
+        private final long compiledAt = System.currentTimeMillis();
+
+        AnswerKey(Integer paperId, int size, int totalScore) {
+            this.paperId = paperId;
+            this.totalScore = totalScore;
+            this.questionIds = new long[size];
+            this.types = new byte[size];
+            this.maxScores = new int[size];
+            this.choiceMasks = new int[size];
+            this.judgeAnswers = new byte[size];
+            this.rawAnswers = new String[size];
+            this.textQuestions = new Question[size];
+        }
+
+        void set(int index, Question question) {
+            String rawAnswer = question.getAnswer() != null ? question.getAnswer().getAnswer() : null;
+            questionIds[index] = question.getId();
+            maxScores[index] = question.getPaperScore() != null ? question.getPaperScore().intValue() : 10;
+            rawAnswers[index] = rawAnswer;
+            switch (question.getType() != null ? question.getType() : "") {
+                case "CHOICE" -> {
+                    types[index] = TYPE_CHOICE;
+                    choiceMasks[index] = rawAnswer != null ? choiceMask(rawAnswer) : 0;
+                }
+                case "JUDGE" -> {
+                    types[index] = TYPE_JUDGE;
+                    judgeAnswers[index] = rawAnswer != null ? judgeValue(rawAnswer) : JUDGE_UNKNOWN;
+                }
+                case "TEXT" -> {
+                    types[index] = TYPE_TEXT;
+                    textQuestions[index] = question;
+                }
+                default -> types[index] = TYPE_OTHER;
+            }
+        }
+
+        /**
+         * 根据题目ID查找下标（二分查找）
+         * @return 下标，题目不在试卷中时返回负数
+         */
+        public int indexOf(long questionId) {
+            return Arrays.binarySearch(questionIds, questionId);
+        }
+
+        /**
+         * 客观题判分
+         * @param index 题目下标
+         * @param userAnswer 学生答案
+         * @return 是否完全正确
+         */
+        public boolean isCorrect(int index, String userAnswer) {
+            if (types[index] == TYPE_CHOICE) {
+                int expected = choiceMasks[index];
+                if (expected == 0) {
+                    // 标准答案无法编译为选项，退化为字符串比较
+                    return rawAnswers[index] != null && userAnswer != null
+                        && rawAnswers[index].trim().equals(userAnswer.trim());
+                }
+                return userAnswer != null && choiceMask(userAnswer) == expected;
+            }
+            if (types[index] == TYPE_JUDGE) {
+                byte expected = judgeAnswers[index];
+                if (expected == JUDGE_UNKNOWN) {
+                    // 标准答案不是可识别的写法（如"对"、"错"），退化为忽略大小写和首尾空白的字符串比较
+                    return rawAnswers[index] != null && !rawAnswers[index].isBlank() && userAnswer != null
+                        && rawAnswers[index].trim().equalsIgnoreCase(userAnswer.trim());
+                }
+                return userAnswer != null && judgeValue(userAnswer) == expected;
+            }
+            return false;
+        }
+
+        /**
+         * 将选项答案（如"A"、"A,C"、"ac"）编译为位掩码；包含非选项字符时返回0
+         */
+        static int choiceMask(String answer) {
+            int mask = 0;
+            for (int i = 0; i < answer.length(); i++) {
+                char c = answer.charAt(i);
+                if (c >= 'A' && c <= 'Z') {
+                    mask |= 1 << (c - 'A');
+                } else if (c >= 'a' && c <= 'z') {
+                    mask |= 1 << (c - 'a');
+                } else if (c != ',' && c != '，' && c != ' ') {
+                    return 0;
+                }
+            }
+            return mask;
+        }
+
+        /**
+         * 识别判断题答案（T/TRUE/正确 与 F/FALSE/错误，忽略大小写和首尾空白），不创建临时字符串
+         */
+        static byte judgeValue(String answer) {
+            int start = 0;
+            int end = answer.length();
+            while (start < end && Character.isWhitespace(answer.charAt(start))) {
+                start++;
+            }
+            while (end > start && Character.isWhitespace(answer.charAt(end - 1))) {
+                end--;
+            }
+            int len = end - start;
+            if (matches(answer, start, len, "T") || matches(answer, start, len, "TRUE")
+                || matches(answer, start, len, "正确")) {
+                return JUDGE_TRUE;
+            }
+            if (matches(answer, start, len, "F") || matches(answer, start, len, "FALSE")
+                || matches(answer, start, len, "错误")) {
+                return JUDGE_FALSE;
+            }
+            return JUDGE_UNKNOWN;
+        }
+
+        private static boolean matches(String answer, int start, int len, String expected) {
+            return len == expected.length() && answer.regionMatches(true, start, expected, 0, len);
+        }
+
+        public Integer getPaperId() { return paperId; }
+        public int getTotalScore() { return totalScore; }
+        public int size() { return questionIds.length; }
+        public byte getType(int index) { return types[index]; }
+        public int getMaxScore(int index) { return maxScores[index]; }
+        public String getRawAnswer(int index) { return rawAnswers[index]; }
+        public Question getTextQuestion(int index) { return textQuestions[index]; }
+    }
+}
@@ -0,0 +1,55 @@
+package com.exam.service;
+
+import com.exam.dto.SubmitAnswerDto;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 答题草稿服务接口
+ * 考试过程中的自动保存只写Redis（每个考试记录一个Hash），交卷或长时间未更新时再回写到answer_record
+ */
+public interface ExamDraftService {
+
+    /**
+     * 自动保存答案（只记录发生变化的题目，O(1)写入Redis）
+     * @param examRecordId 考试记录ID
+     * @param answers 变化的答案列表
+     */
+    void saveDraft(Integer examRecordId, List<SubmitAnswerDto> answers);
+
+    /**
+     * 获取答题草稿，用于浏览器崩溃后恢复作答
+     * @param examRecordId 考试记录ID
+     * @return 题目ID -> 答案
+     */
+    Map<Integer, String> getDraft(Integer examRecordId);
+
+    /**
+     * 将已回写的答题记录、草稿与最终提交的答案合并（优先级：提交的答案 > 草稿 > 已回写的答题记录）
+     * @param examRecordId 考试记录ID
+     * @param answers 提交的答案列表
+     * @return 合并后的答案，按题目ID去重
+     */
+    List<SubmitAnswerDto> mergeWithDraft(Integer examRecordId, List<SubmitAnswerDto> answers);
+
+    /**
+     * 删除草稿（若处于事务中，则在事务提交后删除）
+     * @param examRecordId 考试记录ID
+     */
+    void clearDraft(Integer examRecordId);
+
+    /**
+     * 将草稿回写到answer_record（覆盖草稿中题目已有的答题记录），考试记录状态不变
+     * 回写事务中锁定考试记录并重新检查状态，考试已不是"进行中"（并发交卷）时不回写
+     * @param examRecordId 考试记录ID
+     * @return 回写的答案数量，未回写时返回0
+     */
+    int flushDraft(Integer examRecordId);
+
+    /**
+     * 回写长时间未更新的草稿（由定时任务调用，多节点下每个草稿只会被一个节点处理）
+     * @return 本次回写的草稿数量
+     */
+    int flushIdleDrafts();
+}
@@ -21,12 +21,19 @@ public interface ExamService extends IService<ExamRecord> {
     ExamRecord startExam(Integer paperId, String studentName, Integer userId);
 
     /**
-     * 提交答案
+     * 提交答案（只保存答案并加入判卷队列，判卷异步完成）
      * @param examRecordId 考试记录ID
      * @param answers      用户答案列表
      */
     void submitAnswers(Integer examRecordId, List<SubmitAnswerDto> answers);
 
+    /**
+     * 考试到达截止时间后自动交卷（以自动保存的草稿作为答案，并加入判卷队列）
+     * @param examRecordId 考试记录ID
+     * @return 是否执行了交卷，考试已结束时返回false
+     */
+    boolean autoSubmit(Integer examRecordId);
+
     /**
      * 批阅试卷（包含AI自动批阅）
      * @param examRecordId 考试记录ID
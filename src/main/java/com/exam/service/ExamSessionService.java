@@ -0,0 +1,86 @@
+package com.exam.service;
+
+import com.exam.entity.ExamRecord;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 考试会话服务接口
+ * 进行中的考试状态（开始时间、截止时间、心跳）保存在Redis中，开考和恢复考试无需查询数据库；
+ * 数据库只在创建考试记录和交卷时写入
+ */
+public interface ExamSessionService {
+
+    /**
+     * 查找进行中的考试会话（O(1)）
+     * @param paperId 试卷ID
+     * @param studentName 考生姓名
+     * @return 由会话还原的考试记录，不存在时返回null
+     */
+    ExamRecord getActiveSession(Integer paperId, String studentName);
+
+    /**
+     * 抢占考试记录的创建权（SET NX），同一考生同一试卷同时只有一个请求能创建考试记录
+     * @param paperId 试卷ID
+     * @param studentName 考生姓名
+     * @return 是否抢占成功
+     */
+    boolean tryLockCreation(Integer paperId, String studentName);
+
+    /**
+     * 释放创建权（创建失败时调用）
+     * @param paperId 试卷ID
+     * @param studentName 考生姓名
+     */
+    void releaseCreationLock(Integer paperId, String studentName);
+
+    /**
+     * 等待其他请求创建考试会话
+     * @param paperId 试卷ID
+     * @param studentName 考生姓名
+     * @return 考试记录，等待超时返回null
+     */
+    ExamRecord awaitActiveSession(Integer paperId, String studentName);
+
+    /**
+     * 打开考试会话（若处于事务中，则在事务提交后写入；事务回滚时释放创建权）
+     * @param examRecord 考试记录
+     * @param durationMinutes 考试时长（分钟），为空表示不限时
+     */
+    void openSession(ExamRecord examRecord, Integer durationMinutes);
+
+    /**
+     * 考生心跳，刷新最后活跃时间
+     * @param examRecordId 考试记录ID
+     * @return 会话状态（含剩余时间）
+     */
+    Map<String, Object> heartbeat(Integer examRecordId);
+
+    /**
+     * 查询会话状态
+     * @param examRecordId 考试记录ID
+     * @return 会话状态：开始时间、截止时间、剩余秒数（不限时为-1）、是否已超时
+     */
+    Map<String, Object> getSessionState(Integer examRecordId);
+
+    /**
+     * 领取已到截止时间的考试（ZREM成功才算领取，多节点下每场考试只会被一个节点处理）
+     * @param limit 最多领取的数量
+     * @return 已到期的考试记录ID
+     */
+    List<Integer> pollExpiredSessions(int limit);
+
+    /**
+     * 自动交卷失败时重新登记截止时间，稍后重试
+     * @param examRecordId 考试记录ID
+     * @param delaySeconds 重试延迟（秒）
+     */
+    void rescheduleDeadline(Integer examRecordId, long delaySeconds);
+
+    /**
+     * 关闭考试会话（若处于事务中，则在事务提交后删除）
+     * @param examRecordId 考试记录ID
+     */
+    void closeSession(Integer examRecordId);
+}
@@ -0,0 +1,251 @@
+package com.exam.service;
+
+import com.baomidou.mybatisplus.core.conditions.update.UpdateWrapper;
+import com.exam.common.CacheConstants;
+import com.exam.config.GradingConfig;
+import com.exam.entity.ExamRecord;
+import com.exam.mapper.ExamRecordMapper;
+import com.exam.utils.RedisUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+/**
+ * 考试总评服务
+ * 总评由"成绩行"和"AI点评"两部分组成：成绩行按学生的实际成绩即时生成；AI点评只取决于成绩水平，
+ * 按分桶（得分率区间、题目数、答对比例区间）缓存，成绩相当的学生复用同一段点评
+ *
+ * 判卷时只写入成绩行和默认点评，AI点评在事务提交后由后台线程生成并回写，不占用判卷耗时；
+ * 分桶已缓存时判卷直接使用缓存的点评，不再提交后台任务；同一分桶的点评在本节点同时只生成一次，其余请求等待并复用结果
+ */
+@Slf4j
+@Service
+public class ExamSummaryService {
+
+    private static final String DEFAULT_COMMENT = "建议多加练习，持续提升！";
+
+    @Autowired
+    private KimiGradingService kimiGradingService;
+
+    @Autowired
+    private LlmGateway llmGateway;
+
+    @Autowired
+    private RedisUtils redisUtils;
+
+    @Autowired
+    private GradingConfig gradingConfig;
+
+    @Autowired
+    private ExamRecordMapper examRecordMapper;
+
+    @Autowired
+    @Qualifier("summaryExecutor")
+    private Executor summaryExecutor;
+
+    private final Map<String, String> localCache = Collections.synchronizedMap(
+        new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > 1000;
+            }
+        });
+
+    /**
+     * 本节点正在生成的分桶点评（按缓存key），同一分桶并发请求时只调用一次AI
+     */
+    private final Map<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * 判卷时使用的总评：分桶点评已缓存时直接使用，否则使用默认点评
+     * @param totalScore 总得分
+     * @param maxScore 总满分
+     * @param questionCount 题目总数
+     * @param correctCount 答对题目数
+     * @return 考试总评
+     */
+    public String getInitialSummary(int totalScore, int maxScore, int questionCount, int correctCount) {
+        Bucket bucket = bucketOf(totalScore, maxScore, questionCount, correctCount);
+        String comment = getCachedComment(bucket);
+        return scoreLine(totalScore, maxScore, questionCount, correctCount) + (comment != null ? comment : DEFAULT_COMMENT);
+    }
+
+    /**
+     * 判卷后在后台生成总评并回写考试记录（分桶点评已缓存时无需生成）
+     * 若当前处于事务中，则在事务提交后才提交后台任务；只在考试记录仍为判卷时写入的默认总评时回写，
+     * 避免覆盖期间重判写入的新总评
+     * @param examRecordId 考试记录ID
+     */
+    public void generateInBackground(Integer examRecordId, int totalScore, int maxScore,
+                                     int questionCount, int correctCount) {
+        Bucket bucket = bucketOf(totalScore, maxScore, questionCount, correctCount);
+        if (getCachedComment(bucket) != null) {
+            return;
+        }
+        Runnable task = () -> {
+            try {
+                summaryExecutor.execute(() -> {
+                    String comment = getComment(bucket, LlmGateway.Priority.BULK);
+                    if (comment == null) {
+                        return; // 点评生成失败，保留判卷时写入的默认总评
+                    }
+                    String scoreLine = scoreLine(totalScore, maxScore, questionCount, correctCount);
+                    int updated = examRecordMapper.update(null, new UpdateWrapper<ExamRecord>()
+                        .set("answers", scoreLine + comment)
+                        .eq("id", examRecordId)
+                        .eq("answers", scoreLine + DEFAULT_COMMENT));
+                    if (updated > 0) {
+                        log.debug("考试总评已回写，考试记录ID: {}", examRecordId);
+                    } else {
+                        log.debug("考试总评已被更新，跳过回写，考试记录ID: {}", examRecordId);
+                    }
+                });
+            } catch (TaskRejectedException e) {
+                // 线程池已满，保留判卷时写入的默认总评（不能抛出，否则会影响已提交的判卷事务的调用方）
+                log.warn("总评生成线程池已满，使用默认总评，考试记录ID: {}", examRecordId);
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    task.run();
+                }
+            });
+        } else {
+            task.run();
+        }
+    }
+
+    /**
+     * 同步获取总评（用于本身已在后台执行的任务，如整卷重判）
+     * @param priority 大模型请求优先级
+     * @return 考试总评，AI点评生成失败时使用默认点评
+     */
+    public String getSummary(int totalScore, int maxScore, int questionCount, int correctCount,
+                             LlmGateway.Priority priority) {
+        String comment = getComment(bucketOf(totalScore, maxScore, questionCount, correctCount), priority);
+        return scoreLine(totalScore, maxScore, questionCount, correctCount) + (comment != null ? comment : DEFAULT_COMMENT);
+    }
+
+    /**
+     * 获取分桶点评：先查缓存，未命中时调用AI生成并写入缓存；同一分桶已在生成时等待其结果
+     * @return 点评内容，AI不可用或调用失败时返回null
+     */
+    private String getComment(Bucket bucket, LlmGateway.Priority priority) {
+        String comment = getCachedComment(bucket);
+        if (comment != null || !llmGateway.isAvailable()) {
+            return comment;
+        }
+        CompletableFuture<String> flight = new CompletableFuture<>();
+        CompletableFuture<String> running = inFlight.putIfAbsent(bucket.key, flight);
+        if (running != null) {
+            return running.join(); // 生成方在AI调用超时或失败时以null完成，不会无限等待
+        }
+        try {
+            comment = generateComment(bucket, priority);
+            return comment;
+        } finally {
+            inFlight.remove(bucket.key, flight);
+            flight.complete(comment);
+        }
+    }
+
+    /**
+     * 调用AI生成分桶点评并写入缓存
+     * @return 点评内容，调用失败时返回null
+     */
+    private String generateComment(Bucket bucket, LlmGateway.Priority priority) {
+        String comment;
+        try {
+            comment = kimiGradingService.generateBandSummary(bucket.scoreFrom, bucket.scoreTo, bucket.questionCount,
+                bucket.correctFrom, bucket.correctTo, priority);
+        } catch (Exception e) {
+            log.warn("生成考试总评失败，分桶: {}, 错误: {}", bucket.key, e.getMessage());
+            return null;
+        }
+        if (comment.isEmpty()) {
+            return null;
+        }
+        if (gradingConfig.getSummaryCacheEnabled()) {
+            localCache.put(bucket.key, comment);
+            try {
+                redisUtils.set(bucket.key, comment, gradingConfig.getSummaryCacheTtlSeconds());
+            } catch (Exception e) {
+                log.warn("写入考试总评缓存失败，key: {}, 错误: {}", bucket.key, e.getMessage());
+            }
+        }
+        return comment;
+    }
+
+    private String getCachedComment(Bucket bucket) {
+        if (!gradingConfig.getSummaryCacheEnabled()) {
+            return null;
+        }
+        String comment = localCache.get(bucket.key);
+        if (comment != null) {
+            return comment;
+        }
+        try {
+            if (redisUtils.get(bucket.key) instanceof String cached) {
+                localCache.put(bucket.key, cached);
+                return cached;
+            }
+        } catch (Exception e) {
+            // 缓存读取失败按未命中处理
+            log.warn("读取考试总评缓存失败，key: {}, 错误: {}", bucket.key, e.getMessage());
+        }
+        return null;
+    }
+
+    private static String scoreLine(int totalScore, int maxScore, int questionCount, int correctCount) {
+        double percentage = maxScore > 0 ? (double) totalScore / maxScore * 100 : 0;
+        return String.format("本次考试总分 %d/%d 分（%.1f%%），答对 %d/%d 题。",
+            totalScore, maxScore, percentage, correctCount, questionCount);
+    }
+
+    private Bucket bucketOf(int totalScore, int maxScore, int questionCount, int correctCount) {
+        int scorePercent = maxScore > 0 ? totalScore * 100 / maxScore : 0;
+        int correctPercent = questionCount > 0 ? correctCount * 100 / questionCount : 0;
+        return new Bucket(scorePercent, gradingConfig.getSummaryScoreBandPercent(), questionCount,
+            correctPercent, gradingConfig.getSummaryCorrectBandPercent());
+    }
+
+    /**
+     * 总评分桶：得分率和答对比例按区间宽度向下取整，满分/全对单独成桶
+     */
+    static class Bucket {
+        final int scoreFrom;
+        final int scoreTo;
+        final int questionCount;
+        final int correctFrom;
+        final int correctTo;
+        final String key;
+
+        Bucket(int scorePercent, int scoreBand, int questionCount, int correctPercent, int correctBand) {
+            this.scoreFrom = floor(scorePercent, scoreBand);
+            this.scoreTo = Math.min(100, scoreFrom + Math.max(1, scoreBand));
+            this.questionCount = questionCount;
+            this.correctFrom = floor(correctPercent, correctBand);
+            this.correctTo = Math.min(100, correctFrom + Math.max(1, correctBand));
+            this.key = CacheConstants.EXAM_SUMMARY_KEY + scoreFrom + "-" + scoreTo + ":" + questionCount
+                + ":" + correctFrom + "-" + correctTo;
+        }
+
+        private static int floor(int percent, int band) {
+            int clamped = Math.max(0, Math.min(100, percent));
+            return clamped / Math.max(1, band) * Math.max(1, band);
+        }
+    }
+}
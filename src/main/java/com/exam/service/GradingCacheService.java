@@ -0,0 +1,136 @@
+package com.exam.service;
+
+import com.exam.common.CacheConstants;
+import com.exam.config.GradingConfig;
+import com.exam.entity.Question;
+import com.exam.utils.RedisUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.text.Normalizer;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 判卷结果缓存服务
+ * 两级缓存：本地LRU（L1）+ Redis（L2），相同题目、相同标准答案、相同满分下，
+ * 规范化后相同的学生答案直接复用已有的AI判卷结果
+ *
+ * 缓存key组成：题目ID + 标准答案版本（题干与标准答案的摘要）+ 满分 + 规范化答案摘要
+ * 标准答案被修改后版本随之变化，旧结果自然失效
+ */
+@Slf4j
+@Service
+public class GradingCacheService {
+
+    /**
+     * 规范化时忽略的句读标点
+     */
+    private static final String IGNORED_PUNCTUATION = ",.;:!?\"'、。，；：！？“”‘’《》「」…";
+
+    @Autowired
+    private RedisUtils redisUtils;
+
+    @Autowired
+    private GradingConfig gradingConfig;
+
+    private final Map<String, KimiGradingService.GradingResult> localCache = Collections.synchronizedMap(
+        new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, KimiGradingService.GradingResult> eldest) {
+                return size() > gradingConfig.getCacheLocalSize();
+            }
+        });
+
+    /**
+     * 构建判卷缓存key
+     * @param question 题目（需包含标准答案）
+     * @param userAnswer 学生答案
+     * @param maxScore 题目满分
+     * @return 缓存key
+     */
+    public String buildKey(Question question, String userAnswer, Integer maxScore) {
+        String standardAnswer = question.getAnswer() != null ? question.getAnswer().getAnswer() : "";
+        String answerVersion = digest(question.getTitle() + "\u0001" + standardAnswer).substring(0, 12);
+        return CacheConstants.GRADING_RESULT_KEY + question.getId() + ":" + answerVersion + ":"
+            + maxScore + ":" + digest(normalizeAnswer(userAnswer));
+    }
+
+    /**
+     * 查询缓存的判卷结果，先查本地再查Redis
+     * @param key 缓存key
+     * @return 判卷结果，未命中返回null
+     */
+    public KimiGradingService.GradingResult get(String key) {
+        if (!gradingConfig.getCacheEnabled()) {
+            return null;
+        }
+        KimiGradingService.GradingResult result = localCache.get(key);
+        if (result != null) {
+            return result;
+        }
+        try {
+            Object cached = redisUtils.get(key);
+            if (cached instanceof KimiGradingService.GradingResult gradingResult) {
+                localCache.put(key, gradingResult);
+                return gradingResult;
+            }
+        } catch (Exception e) {
+            // 缓存读取失败不影响判卷
+            log.warn("读取判卷缓存失败，key: {}, 错误: {}", key, e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * 写入判卷结果（同时写本地和Redis）
+     * @param key 缓存key
+     * @param result 判卷结果
+     */
+    public void put(String key, KimiGradingService.GradingResult result) {
+        if (!gradingConfig.getCacheEnabled()) {
+            return;
+        }
+        localCache.put(key, result);
+        try {
+            redisUtils.set(key, result, gradingConfig.getCacheTtlSeconds());
+        } catch (Exception e) {
+            log.warn("写入判卷缓存失败，key: {}, 错误: {}", key, e.getMessage());
+        }
+    }
+
+    /**
+     * 规范化学生答案：全半角统一（NFKC）、去除空白和句读标点、英文转小写
+     * 使仅在空格、标点、大小写上有差异的答案命中同一缓存；运算符等符号保留，避免误判为相同答案
+     */
+    static String normalizeAnswer(String answer) {
+        if (answer == null) {
+            return "";
+        }
+        String normalized = Normalizer.normalize(answer, Normalizer.Form.NFKC);
+        StringBuilder sb = new StringBuilder(normalized.length());
+        for (int i = 0; i < normalized.length(); i++) {
+            char c = normalized.charAt(i);
+            if (Character.isWhitespace(c) || IGNORED_PUNCTUATION.indexOf(c) >= 0) {
+                continue;
+            }
+            sb.append(Character.toLowerCase(c));
+        }
+        return sb.toString();
+    }
+
+    private static String digest(String text) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(md.digest(text.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package com.exam.service;
+
+import java.util.Map;
+
+/**
+ * 判卷任务队列服务接口
+ * 提交答案后只入队，由各节点的判卷工作线程异步消费
+ */
+public interface GradingQueueService {
+
+    /**
+     * 判卷任务状态：已入队，等待判卷
+     */
+    String STATUS_QUEUED = "QUEUED";
+
+    /**
+     * 判卷任务状态：判卷中
+     */
+    String STATUS_GRADING = "GRADING";
+
+    /**
+     * 判卷任务状态：判卷完成
+     */
+    String STATUS_GRADED = "GRADED";
+
+    /**
+     * 判卷任务状态：多次重试后仍失败
+     */
+    String STATUS_FAILED = "FAILED";
+
+    /**
+     * 判卷任务状态：AI服务熔断，客观题已判分，主观题等待服务恢复后重新判卷
+     */
+    String STATUS_PENDING_AI = "PENDING_AI";
+
+    /**
+     * 将考试记录加入判卷队列
+     * 若当前处于事务中，则在事务提交后才真正入队，避免工作线程读到未提交的数据
+     * @param examRecordId 考试记录ID
+     */
+    void enqueue(Integer examRecordId);
+
+    /**
+     * 延迟重新判卷（AI服务熔断时使用），到期后由定时任务重新入队
+     * 若当前处于事务中，则在事务提交后才登记
+     * @param examRecordId 考试记录ID
+     */
+    void defer(Integer examRecordId);
+
+    /**
+     * 将到期的延迟判卷任务重新加入判卷队列
+     * @param limit 本次最多处理的任务数
+     * @return 重新入队的任务数
+     */
+    int releaseDeferred(int limit);
+
+    /**
+     * 更新判卷任务状态
+     * @param examRecordId 考试记录ID
+     * @param status 任务状态
+     */
+    void updateStatus(Integer examRecordId, String status);
+
+    /**
+     * 查询判卷进度
+     * @param examRecordId 考试记录ID
+     * @return 判卷状态信息（任务状态、考试记录状态、得分）
+     */
+    Map<String, Object> getGradingStatus(Integer examRecordId);
+}
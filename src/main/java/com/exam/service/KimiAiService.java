@@ -2,6 +2,8 @@ package com.exam.service;
 
 import com.exam.dto.AiGenerateRequestDto;
 import com.exam.dto.QuestionImportDto;
+import reactor.core.publisher.Flux;
+
 import java.util.List;
 
 /**
@@ -16,4 +18,11 @@ public interface KimiAiService {
      * @return 生成的题目列表
      */
     List<QuestionImportDto> generateQuestions(AiGenerateRequestDto request);
+
+    /**
+     * 根据要求流式生成题目，每生成一道完整题目立即推送
+     * @param request AI生成请求参数
+     * @return 逐道生成的题目
+     */
+    Flux<QuestionImportDto> generateQuestionsStream(AiGenerateRequestDto request);
 } 
\ No newline at end of file
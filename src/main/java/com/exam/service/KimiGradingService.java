@@ -3,19 +3,26 @@ package com.exam.service;
 import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.JSONArray;
 import com.alibaba.fastjson.JSONObject;
-import com.exam.dto.ai.ChatMessage;
-import com.exam.dto.ai.ChatRequest;
+import com.exam.config.GradingConfig;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.exam.entity.Question;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.*;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 
+import java.io.Serializable;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 
 /**
  * 千问AI判卷服务
@@ -26,16 +33,16 @@ import java.util.Map;
 public class KimiGradingService {
 
     @Autowired
-    private RestTemplate restTemplate;
+    private LlmGateway llmGateway;
 
-    @Value("${qwen.api.base-url}")
-    private String baseUrl;
+    @Autowired
+    private GradingCacheService gradingCacheService;
 
-    @Value("${qwen.api.api-key}")
-    private String apiKey;
+    @Autowired
+    private GradingConfig gradingConfig;
 
-    @Value("${qwen.api.model}")
-    private String model;
+    @Autowired
+    private LocalGradingService localGradingService;
 
     @Value("${qwen.api.max-tokens}")
     private Integer maxTokens;
@@ -43,6 +50,11 @@ public class KimiGradingService {
     @Value("${qwen.api.temperature}")
     private Double temperature;
 
+    /**
+     * 不限制截止时间（判卷请求只受网关自身的排队和请求超时约束）
+     */
+    public static final long NO_DEADLINE = Long.MAX_VALUE;
+
     /**
      * 智能判卷单道题目
      * @param question 题目信息
@@ -51,15 +63,189 @@ public class KimiGradingService {
      * @return 判卷结果，包含得分、评语等
      */
     public GradingResult gradeQuestion(Question question, String userAnswer, Integer maxScore) {
+        return gradeQuestion(question, userAnswer, maxScore, LlmGateway.Priority.INTERACTIVE);
+    }
+
+    /**
+     * 智能判卷单道题目
+     * @param question 题目信息
+     * @param userAnswer 用户答案
+     * @param maxScore 题目满分
+     * @param priority 大模型请求优先级，后台批量任务使用BULK，避免挤占交卷判卷
+     * @return 判卷结果，包含得分、评语等
+     */
+    public GradingResult gradeQuestion(Question question, String userAnswer, Integer maxScore,
+                                       LlmGateway.Priority priority) {
+        return gradeQuestion(question, userAnswer, maxScore, priority, NO_DEADLINE);
+    }
+
+    /**
+     * 智能判卷单道题目，超过截止时间时取消大模型请求并返回判卷失败结果
+     * @param deadline 截止时间（System.nanoTime()时间基准），NO_DEADLINE表示不限制
+     */
+    public GradingResult gradeQuestion(Question question, String userAnswer, Integer maxScore,
+                                       LlmGateway.Priority priority, long deadline) {
+        // 未作答、与标准答案几乎一致、明显答非所问的答案在本地直接给分
+        GradingResult local = localGradingService.preGrade(question, userAnswer, maxScore);
+        if (local != null) {
+            return local;
+        }
+        // 相同题目、相同标准答案、相同满分下，规范化后相同的答案直接复用缓存结果
+        String cacheKey = gradingCacheService.buildKey(question, userAnswer, maxScore);
+        GradingResult cached = gradingCacheService.get(cacheKey);
+        if (cached != null) {
+            log.debug("命中判卷缓存，题目ID: {}", question.getId());
+            return cached;
+        }
         try {
             String prompt = buildGradingPrompt(question, userAnswer, maxScore);
-            String response = callQwenAPI(prompt);
-            return parseGradingResponse(response, maxScore);
+            String response = callQwenAPI(prompt, priority, LlmGateway.CALLER_GRADING, remaining(deadline));
+            GradingResult result = parseGradingResponse(response, maxScore);
+            if (!result.isTextFallback()) {
+                gradingCacheService.put(cacheKey, result); // 只缓存成功解析的判卷结果，从文本中猜测的分数不缓存
+            }
+            return result;
         } catch (Exception e) {
+            if (LlmGateway.isCircuitOpen(e)) {
+                // 熔断期间不给0分，标记为等待AI判卷，服务恢复后重新判卷
+                return GradingResult.pendingAi();
+            }
             log.error("AI判卷失败，题目ID: {}, 错误: {}", question.getId(), e.getMessage());
             // 返回默认评分结果
-            return new GradingResult(0, "AI判卷服务暂时不可用，请手动批阅。", "系统错误");
+            return GradingResult.failed();
+        }
+    }
+
+    /**
+     * 批量判卷（异步）：将多道主观题打包进一个提示词，减少大模型请求次数
+     * 打包前按题目ID排序，同一道题的多份答案尽量落在同一个包内，题目和标准答案只需发送一次
+     * @param items 待判答案
+     * @param priority 大模型请求优先级
+     * @param executor 执行判卷请求的线程池
+     * @return 与items一一对应的判卷结果
+     */
+    public List<CompletableFuture<GradingResult>> gradeQuestionsAsync(List<GradingItem> items,
+                                                                    LlmGateway.Priority priority, Executor executor) {
+        return gradeQuestionsAsync(items, priority, executor, NO_DEADLINE);
+    }
+
+    /**
+     * 批量判卷（异步），所有请求共用一个截止时间：到期后未完成的大模型请求被取消，判卷线程随即释放
+     * @param deadline 截止时间（System.nanoTime()时间基准），NO_DEADLINE表示不限制
+     */
+    public List<CompletableFuture<GradingResult>> gradeQuestionsAsync(List<GradingItem> items,
+                                                                    LlmGateway.Priority priority, Executor executor,
+                                                                    long deadline) {
+        List<CompletableFuture<GradingResult>> futures = new ArrayList<>(Collections.nCopies(items.size(), null));
+        // 本地预判在调用线程完成，能确定的答案不进入线程池和大模型请求
+        List<Integer> pending = new ArrayList<>(items.size());
+        for (int i = 0; i < items.size(); i++) {
+            GradingItem item = items.get(i);
+            GradingResult local = localGradingService.preGrade(item.getQuestion(), item.getUserAnswer(), item.getMaxScore());
+            if (local != null) {
+                futures.set(i, CompletableFuture.completedFuture(local));
+            } else {
+                pending.add(i);
+            }
+        }
+
+        int packSize = Math.max(1, gradingConfig.getBatchGradingSize());
+        if (packSize == 1) {
+            for (int i : pending) {
+                GradingItem item = items.get(i);
+                futures.set(i, CompletableFuture.supplyAsync(
+                    () -> gradeQuestion(item.getQuestion(), item.getUserAnswer(), item.getMaxScore(), priority, deadline),
+                    executor));
+            }
+            return futures;
         }
+
+        List<Integer> order = pending;
+        order.sort(Comparator.comparing(i -> items.get(i).getQuestion().getId())); // 稳定排序
+        for (int from = 0; from < order.size(); from += packSize) {
+            List<Integer> packIndexes = order.subList(from, Math.min(from + packSize, order.size()));
+            List<GradingItem> pack = new ArrayList<>(packIndexes.size());
+            packIndexes.forEach(i -> pack.add(items.get(i)));
+            CompletableFuture<List<GradingResult>> packFuture =
+                CompletableFuture.supplyAsync(() -> gradeQuestions(pack, priority, deadline), executor);
+            for (int j = 0; j < packIndexes.size(); j++) {
+                int position = j;
+                futures.set(packIndexes.get(j), packFuture.thenApply(results -> results.get(position)));
+            }
+        }
+        return futures;
+    }
+
+    /**
+     * 批量判卷：本地预判能确定的答案和命中缓存的答案直接返回，其余答案打包为一次大模型请求
+     * 批量响应无法解析或缺少某份答案的结果时，对应答案退回单题判卷
+     * @param items 待判答案（一个包）
+     * @param priority 大模型请求优先级
+     * @return 与items一一对应的判卷结果
+     */
+    public List<GradingResult> gradeQuestions(List<GradingItem> items, LlmGateway.Priority priority) {
+        return gradeQuestions(items, priority, NO_DEADLINE);
+    }
+
+    /**
+     * 批量判卷，超过截止时间时取消大模型请求，未判完的答案返回判卷失败结果
+     * @param deadline 截止时间（System.nanoTime()时间基准），NO_DEADLINE表示不限制
+     */
+    public List<GradingResult> gradeQuestions(List<GradingItem> items, LlmGateway.Priority priority, long deadline) {
+        GradingResult[] results = new GradingResult[items.size()];
+        String[] cacheKeys = new String[items.size()];
+        List<Integer> pending = new ArrayList<>();
+        for (int i = 0; i < items.size(); i++) {
+            GradingItem item = items.get(i);
+            results[i] = localGradingService.preGrade(item.getQuestion(), item.getUserAnswer(), item.getMaxScore());
+            if (results[i] != null) {
+                continue;
+            }
+            cacheKeys[i] = gradingCacheService.buildKey(item.getQuestion(), item.getUserAnswer(), item.getMaxScore());
+            results[i] = gradingCacheService.get(cacheKeys[i]);
+            if (results[i] == null) {
+                pending.add(i);
+            }
+        }
+
+        if (pending.size() > 1) {
+            List<GradingItem> pack = new ArrayList<>(pending.size());
+            pending.forEach(i -> pack.add(items.get(i)));
+            Map<Integer, GradingResult> packResults;
+            try {
+                packResults = parseBatchGradingResponse(callQwenAPI(buildBatchGradingPrompt(pack), priority,
+                    LlmGateway.CALLER_GRADING, remaining(deadline)), pack);
+            } catch (Exception e) {
+                // 请求本身失败时不再逐题重试，避免大模型不可用时请求数成倍放大
+                if (LlmGateway.isCircuitOpen(e)) {
+                    pending.forEach(i -> results[i] = GradingResult.pendingAi());
+                    return Arrays.asList(results);
+                }
+                log.error("AI批量判卷失败，答案数: {}, 错误: {}", pack.size(), e.getMessage());
+                pending.forEach(i -> results[i] = GradingResult.failed());
+                return Arrays.asList(results);
+            }
+            for (int j = 0; j < pending.size(); j++) {
+                GradingResult result = packResults.get(j + 1);
+                if (result != null) {
+                    int i = pending.get(j);
+                    results[i] = result;
+                    gradingCacheService.put(cacheKeys[i], result);
+                }
+            }
+            if (packResults.size() < pack.size()) {
+                log.warn("AI批量判卷响应缺少部分结果，答案数: {}, 解析成功: {}，其余退回单题判卷",
+                    pack.size(), packResults.size());
+            }
+        }
+
+        for (int i : pending) {
+            if (results[i] == null) {
+                GradingItem item = items.get(i);
+                results[i] = gradeQuestion(item.getQuestion(), item.getUserAnswer(), item.getMaxScore(), priority, deadline);
+            }
+        }
+        return Arrays.asList(results);
     }
 
     /**
@@ -71,22 +257,110 @@ public class KimiGradingService {
      * @return 考试总评
      */
     public String generateExamSummary(Integer totalScore, Integer maxScore, Integer questionCount, Integer correctCount) {
+        return generateExamSummary(totalScore, maxScore, questionCount, correctCount, LlmGateway.Priority.INTERACTIVE);
+    }
+
+    /**
+     * 生成考试总评和建议
+     * @param totalScore 总得分
+     * @param maxScore 总满分
+     * @param questionCount 题目总数
+     * @param correctCount 答对题目数
+     * @param priority 大模型请求优先级
+     * @return 考试总评
+     */
+    public String generateExamSummary(Integer totalScore, Integer maxScore, Integer questionCount, Integer correctCount,
+                                      LlmGateway.Priority priority) {
+        if (!llmGateway.isAvailable()) {
+            return defaultSummary(totalScore, maxScore); // 熔断期间直接使用默认总评
+        }
         try {
             String prompt = buildSummaryPrompt(totalScore, maxScore, questionCount, correctCount);
-            return callQwenAPI(prompt);
+            return callQwenAPI(prompt, priority, LlmGateway.CALLER_SUMMARY);
         } catch (Exception e) {
             log.error("生成考试总评失败: {}", e.getMessage());
-            // 返回默认总评
-            double percentage = (double) totalScore / maxScore * 100;
-            return String.format("本次考试总分 %d/%d 分（%.1f%%）。建议多加练习，持续提升！", 
-                    totalScore, maxScore, percentage);
+            return defaultSummary(totalScore, maxScore);
         }
     }
 
+    /**
+     * 按成绩区间生成考试点评（不含具体分数），用于同一区间的学生共享
+     * @param scoreFrom 得分率区间下限（百分比）
+     * @param scoreTo 得分率区间上限（百分比）
+     * @param questionCount 题目总数
+     * @param correctFrom 答对比例区间下限（百分比）
+     * @param correctTo 答对比例区间上限（百分比）
+     * @param priority 大模型请求优先级
+     * @return 考试点评；调用失败时抛出异常，由调用方决定降级方式
+     */
+    public String generateBandSummary(int scoreFrom, int scoreTo, int questionCount, int correctFrom, int correctTo,
+                                      LlmGateway.Priority priority) {
+        StringBuilder prompt = new StringBuilder();
+        prompt.append("你是一名资深的教育专家，请为以下成绩区间的学生提供专业的考试点评和学习建议：\n\n");
+
+        prompt.append("【考试成绩】\n");
+        prompt.append("得分率：").append(formatBand(scoreFrom, scoreTo)).append("\n");
+        prompt.append("题目总数：").append(questionCount).append("道\n");
+        prompt.append("答对比例：").append(formatBand(correctFrom, correctTo)).append("\n\n");
+
+        prompt.append("【要求】\n");
+        prompt.append("请提供一份150字左右的考试点评，包括：\n");
+        prompt.append("1. 对该成绩水平的客观评价\n");
+        prompt.append("2. 指出可能的优势和不足之处\n");
+        prompt.append("3. 提供具体的学习建议和改进方向\n");
+        prompt.append("4. 给予鼓励和激励\n");
+        prompt.append("5. 不要出现具体分数或题数，点评会提供给该区间内的所有学生\n\n");
+
+        prompt.append("请直接返回点评内容，无需特殊格式：");
+        return callQwenAPI(prompt.toString(), priority, LlmGateway.CALLER_SUMMARY).trim();
+    }
+
+    /**
+     * 根据学生最近的考试成绩生成个性化学习建议（后台批量请求）
+     * @param studentName 学生姓名
+     * @param avgScore 最近10次考试平均分
+     * @param passRate 及格率（百分比）
+     * @param recentScores 最近5次成绩（由近到远）
+     * @param improving 成绩是否呈上升趋势
+     * @return 学习建议；调用失败时抛出异常
+     */
+    public String generateLearningSuggestion(String studentName, int avgScore, double passRate, int[] recentScores,
+                                             boolean improving) {
+        StringBuilder prompt = new StringBuilder();
+        prompt.append("你是一名专业的教育顾问，请为以下学生提供个性化学习建议：\n\n");
+        prompt.append("【学生信息】\n");
+        prompt.append("姓名：").append(studentName).append("\n");
+        prompt.append("最近10次考试平均分：").append(avgScore).append("\n");
+        prompt.append("及格率：").append(String.format("%.1f%%", passRate)).append("\n");
+        prompt.append("最近5次成绩：").append(Arrays.toString(recentScores)).append("\n");
+        prompt.append("成绩趋势：").append(improving ? "呈上升趋势" : "波动较大或呈下降趋势").append("\n\n");
+
+        prompt.append("【要求】\n");
+        prompt.append("1. 提供一份200-300字的个性化学习建议\n");
+        prompt.append("2. 肯定学生的进步，指出存在的问题\n");
+        prompt.append("3. 给出3-5条具体的改进建议\n");
+        prompt.append("4. 鼓励学生继续努力学习\n\n");
+        prompt.append("请直接返回建议内容，无需特殊格式。");
+        return callQwenAPI(prompt.toString(), LlmGateway.Priority.BULK, LlmGateway.CALLER_SUGGESTION).trim();
+    }
+
+    private static String formatBand(int from, int to) {
+        return from == to ? from + "%" : from + "%~" + to + "%";
+    }
+
+    /**
+     * 默认总评（AI不可用时使用）
+     */
+    private String defaultSummary(Integer totalScore, Integer maxScore) {
+        double percentage = (double) totalScore / maxScore * 100;
+        return String.format("本次考试总分 %d/%d 分（%.1f%%）。建议多加练习，持续提升！",
+                totalScore, maxScore, percentage);
+    }
+
     /**
      * 构建判卷提示词
      */
-    private String buildGradingPrompt(Question question, String userAnswer, Integer maxScore) {
+    String buildGradingPrompt(Question question, String userAnswer, Integer maxScore) {
         StringBuilder prompt = new StringBuilder();
         prompt.append("你是一名专业的考试阅卷老师，请对以下题目进行判卷：\n\n");
         
@@ -120,6 +394,56 @@ public class KimiGradingService {
         return prompt.toString();
     }
 
+    /**
+     * 构建批量判卷提示词：同一道题只列出一次题目信息，答案按出现顺序从1开始编号
+     */
+    String buildBatchGradingPrompt(List<GradingItem> items) {
+        StringBuilder prompt = new StringBuilder();
+        prompt.append("你是一名专业的考试阅卷老师，请对以下").append(items.size()).append("份学生答案逐一判卷：\n\n");
+
+        Map<Long, Integer> questionNumbers = new LinkedHashMap<>();
+        Map<Integer, List<Integer>> answersByQuestion = new LinkedHashMap<>();
+        for (int i = 0; i < items.size(); i++) {
+            Integer number = questionNumbers.computeIfAbsent(items.get(i).getQuestion().getId(),
+                id -> questionNumbers.size() + 1);
+            answersByQuestion.computeIfAbsent(number, n -> new ArrayList<>()).add(i);
+        }
+
+        for (Map.Entry<Integer, List<Integer>> entry : answersByQuestion.entrySet()) {
+            GradingItem first = items.get(entry.getValue().get(0));
+            Question question = first.getQuestion();
+            prompt.append("【题目").append(entry.getKey()).append("】\n");
+            prompt.append("题型：").append(getQuestionTypeText(question.getType())).append("\n");
+            prompt.append("题目：").append(question.getTitle()).append("\n");
+            prompt.append("标准答案：").append(question.getAnswer().getAnswer()).append("\n");
+            prompt.append("满分：").append(first.getMaxScore()).append("分\n\n");
+            for (int i : entry.getValue()) {
+                String userAnswer = items.get(i).getUserAnswer();
+                prompt.append("【答案").append(i + 1).append("】（题目").append(entry.getKey()).append("）\n");
+                prompt.append(userAnswer == null || userAnswer.trim().isEmpty() ? "（未作答）" : userAnswer).append("\n\n");
+            }
+        }
+
+        prompt.append("【判卷要求】\n");
+        prompt.append("- 每份答案独立评分，得分不超过对应题目的满分\n");
+        prompt.append("- 答案要点正确且完整：80-100%分数\n");
+        prompt.append("- 答案基本正确但不够完整：60-80%分数\n");
+        prompt.append("- 答案部分正确：30-60%分数\n");
+        prompt.append("- 答案完全错误或未作答：0分\n");
+
+        prompt.append("\n请按以下JSON数组格式返回判卷结果，每份答案一个元素，不要包含其他文字：\n");
+        prompt.append("[\n");
+        prompt.append("  {\n");
+        prompt.append("    \"index\": 答案编号(整数),\n");
+        prompt.append("    \"score\": 实际得分(整数),\n");
+        prompt.append("    \"feedback\": \"具体的评价反馈(50字以内)\",\n");
+        prompt.append("    \"reason\": \"扣分原因或得分依据(30字以内)\"\n");
+        prompt.append("  }\n");
+        prompt.append("]");
+
+        return prompt.toString();
+    }
+
     /**
      * 构建考试总评提示词
      */
@@ -147,43 +471,32 @@ public class KimiGradingService {
         return prompt.toString();
     }
 
-    private String callQwenAPI(String prompt) {
-        String url = baseUrl + "/chat/completions";
-        
-        // 构建请求
-        ChatRequest request = ChatRequest.builder()
-                .model(model)
-                .messages(Arrays.asList(new ChatMessage("user", prompt)))
-                .temperature(temperature)
-                .maxTokens(maxTokens)
-                .build();
-
-        // 设置请求头
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
-        headers.setBearerAuth(apiKey);
-
-        HttpEntity<String> entity = new HttpEntity<>(JSON.toJSONString(request), headers);
-
-        // 发送请求
-        ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.POST, entity, String.class);
-        
-        if (response.getStatusCode() == HttpStatus.OK) {
-            JSONObject jsonResponse = JSON.parseObject(response.getBody());
-            JSONArray choices = jsonResponse.getJSONArray("choices");
-            if (choices != null && choices.size() > 0) {
-                JSONObject choice = choices.getJSONObject(0);
-                JSONObject message = choice.getJSONObject("message");
-                return message.getString("content");
-            }
-        }
-        throw new RuntimeException("千问API调用失败");
+    /**
+     * 通过大模型网关发送提示词，限流、排队和重试由网关统一处理
+     */
+    String callQwenAPI(String prompt, LlmGateway.Priority priority, String caller) {
+        return callQwenAPI(prompt, priority, caller, null);
+    }
+
+    /**
+     * 通过大模型网关发送提示词，超过等待时间时取消请求
+     * @param timeout 最长等待时间，为空时不额外限制
+     */
+    String callQwenAPI(String prompt, LlmGateway.Priority priority, String caller, Duration timeout) {
+        return llmGateway.complete(prompt, priority, temperature, maxTokens, caller, timeout);
+    }
+
+    /**
+     * 距截止时间的剩余时长，NO_DEADLINE时返回null
+     */
+    private static Duration remaining(long deadline) {
+        return deadline == NO_DEADLINE ? null : Duration.ofNanos(Math.max(0, deadline - System.nanoTime()));
     }
 
     /**
      * 解析判卷响应
      */
-    private GradingResult parseGradingResponse(String response, Integer maxScore) {
+    GradingResult parseGradingResponse(String response, Integer maxScore) {
         try {
             // 尝试解析JSON格式的响应
             JSONObject json = JSON.parseObject(response);
@@ -203,10 +516,43 @@ public class KimiGradingService {
         }
     }
 
+    /**
+     * 解析批量判卷响应
+     * @return 答案编号（从1开始）到判卷结果的映射，编号越界、重复或缺少得分的元素被忽略
+     */
+    Map<Integer, GradingResult> parseBatchGradingResponse(String response, List<GradingItem> items) {
+        Map<Integer, GradingResult> results = new HashMap<>();
+        int start = response.indexOf('[');
+        int end = response.lastIndexOf(']');
+        if (start < 0 || end <= start) {
+            log.warn("AI批量判卷响应不是JSON数组");
+            return results;
+        }
+        JSONArray array;
+        try {
+            array = JSON.parseArray(response.substring(start, end + 1));
+        } catch (Exception e) {
+            log.warn("解析AI批量判卷响应失败: {}", e.getMessage());
+            return results;
+        }
+        for (int i = 0; i < array.size(); i++) {
+            JSONObject json = array.getJSONObject(i);
+            Integer index = json != null ? json.getInteger("index") : null;
+            Integer score = json != null ? json.getInteger("score") : null;
+            if (index == null || index < 1 || index > items.size() || score == null || results.containsKey(index)) {
+                continue;
+            }
+            int maxScore = items.get(index - 1).getMaxScore();
+            score = Math.max(0, Math.min(score, maxScore)); // 分数范围检查
+            results.put(index, new GradingResult(score, json.getString("feedback"), json.getString("reason")));
+        }
+        return results;
+    }
+
     /**
      * 从文本响应中解析结果
      */
-    private GradingResult parseTextResponse(String response, Integer maxScore) {
+    GradingResult parseTextResponse(String response, Integer maxScore) {
         // 简单的文本解析逻辑
         Integer score = 0;
         String feedback = "AI判卷完成";
@@ -236,7 +582,7 @@ public class KimiGradingService {
             feedback = response;
         }
         
-        return new GradingResult(score, feedback, reason);
+        return new GradingResult(score, feedback, reason, GradingResult.SOURCE_AI_TEXT);
     }
 
     /**
@@ -250,13 +596,48 @@ public class KimiGradingService {
         return typeMap.getOrDefault(type, "未知题型");
     }
 
+    /**
+     * 待判答案
+     */
+    public static class GradingItem {
+        private final Question question;
+        private final String userAnswer;
+        private final Integer maxScore;
+
+        public GradingItem(Question question, String userAnswer, Integer maxScore) {
+            this.question = question;
+            this.userAnswer = userAnswer;
+            this.maxScore = maxScore;
+        }
+
+        public Question getQuestion() { return question; }
+        public String getUserAnswer() { return userAnswer; }
+        public Integer getMaxScore() { return maxScore; }
+    }
+
     /**
      * 判卷结果内部类
      */
-    public static class GradingResult {
+    public static class GradingResult implements Serializable {
+        public static final String SOURCE_AI = "AI";                           // 大模型判卷
+        public static final String SOURCE_AI_TEXT = "AI_TEXT";                 // 大模型判卷，但响应不是JSON，分数从文本中提取（不缓存）
+        public static final String SOURCE_LOCAL_BLANK = "LOCAL_BLANK";         // 本地预判：未作答
+        public static final String SOURCE_LOCAL_VERBATIM = "LOCAL_VERBATIM";   // 本地预判：与标准答案一致
+        public static final String SOURCE_LOCAL_KEYWORDS = "LOCAL_KEYWORDS";   // 本地预判：覆盖全部评分关键词
+        public static final String SOURCE_LOCAL_OFF_TOPIC = "LOCAL_OFF_TOPIC"; // 本地预判：答非所问
+        public static final String SOURCE_PENDING_AI = "PENDING_AI";           // AI服务熔断，等待恢复后重新判卷
+        public static final String SOURCE_FAILED = "FAILED";                   // AI判卷失败（请求出错或超时）
+
         private Integer score;
         private String feedback;
         private String reason;
+        private String source = SOURCE_AI; // 判卷路径
+
+        private static final long serialVersionUID = 1L; // 序列化版本UID
+
+        public GradingResult() {
+            // 供缓存反序列化使用
+        }
 
         public GradingResult(Integer score, String feedback, String reason) {
             this.score = score;
@@ -264,9 +645,50 @@ public class KimiGradingService {
             this.reason = reason;
         }
 
+        public GradingResult(Integer score, String feedback, String reason, String source) {
+            this(score, feedback, reason);
+            this.source = source;
+        }
+
+        /**
+         * 等待AI判卷的占位结果（不计分、不缓存）
+         */
+        public static GradingResult pendingAi() {
+            return new GradingResult(0, "AI判卷服务暂时不可用，服务恢复后将自动判卷", "等待AI判卷", SOURCE_PENDING_AI);
+        }
+
+        /**
+         * AI判卷失败的结果（0分、提示手动批阅，不缓存）
+         */
+        public static GradingResult failed() {
+            return new GradingResult(0, "AI判卷服务暂时不可用，请手动批阅。", "系统错误", SOURCE_FAILED);
+        }
+
+        @JsonIgnore // 由source推导，不写入缓存，否则Redis反序列化时因没有对应setter而失败
+        public boolean isPendingAi() {
+            return SOURCE_PENDING_AI.equals(source);
+        }
+
+        @JsonIgnore
+        public boolean isFailed() {
+            return SOURCE_FAILED.equals(source);
+        }
+
+        @JsonIgnore
+        public boolean isTextFallback() {
+            return SOURCE_AI_TEXT.equals(source);
+        }
+
         // Getters
         public Integer getScore() { return score; }
         public String getFeedback() { return feedback; }
         public String getReason() { return reason; }
+        public String getSource() { return source; }
+
+        // Setters（供缓存反序列化使用）
+        public void setScore(Integer score) { this.score = score; }
+        public void setFeedback(String feedback) { this.feedback = feedback; }
+        public void setReason(String reason) { this.reason = reason; }
+        public void setSource(String source) { this.source = source; }
     }
 } 
\ No newline at end of file
@@ -0,0 +1,195 @@
+package com.exam.service;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.exam.common.CacheConstants;
+import com.exam.entity.ExamRecord;
+import com.exam.mapper.ExamRecordMapper;
+import com.exam.utils.RedisUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+
+/**
+ * AI学习建议服务
+ * 学习建议只取决于学生最近10次已批阅考试的成绩，按这些考试记录的ID和得分计算指纹，与建议一起缓存在Redis中：
+ * 指纹一致时直接返回缓存；不一致（有新批阅的考试或成绩被重判）时先返回上一次的建议，同时在后台重新生成，
+ * 页面加载不等待大模型
+ *
+ * 考试批阅完成后（事务提交后）主动在后台刷新该学生的建议，学生打开页面时通常已是最新结果
+ */
+@Slf4j
+@Service
+public class LearningSuggestionService {
+
+    private static final int RECENT_RECORDS = 10;
+    private static final long CACHE_EXPIRE_SECONDS = 30L * 86400; // 30天
+    private static final long REFRESH_LOCK_SECONDS = 180;
+
+    private static final String EMPTY_SUGGESTION = "暂无考试数据，请先参加考试后获取学习建议。";
+    private static final String PENDING_SUGGESTION = "AI学习建议正在生成中，请稍后刷新页面查看。";
+
+    @Autowired
+    private ExamRecordMapper examRecordMapper;
+
+    @Autowired
+    private KimiGradingService kimiGradingService;
+
+    @Autowired
+    private LlmGateway llmGateway;
+
+    @Autowired
+    private RedisUtils redisUtils;
+
+    @Autowired
+    @Qualifier("summaryExecutor")
+    private Executor summaryExecutor;
+
+    /**
+     * 获取学生的学习建议（不等待大模型）
+     * @param studentName 学生姓名
+     * @return 学习建议；尚无缓存时返回生成中提示
+     */
+    public String getSuggestion(String studentName) {
+        List<ExamRecord> records = recentRecords(studentName);
+        if (records.isEmpty()) {
+            return EMPTY_SUGGESTION;
+        }
+        String fingerprint = fingerprint(records);
+        Map<Object, Object> cached = readCache(studentName);
+        Object suggestion = cached.get("suggestion");
+        if (suggestion != null && fingerprint.equals(cached.get("fingerprint"))) {
+            return suggestion.toString();
+        }
+        scheduleRefresh(studentName);
+        return suggestion != null ? suggestion.toString() : PENDING_SUGGESTION;
+    }
+
+    /**
+     * 学生有新的考试批阅完成，在后台刷新学习建议
+     * 若当前处于事务中，则在事务提交后才刷新，保证能读到新批阅的成绩
+     * @param studentName 学生姓名
+     */
+    public void onRecordGraded(String studentName) {
+        if (studentName == null) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    scheduleRefresh(studentName);
+                }
+            });
+        } else {
+            scheduleRefresh(studentName);
+        }
+    }
+
+    /**
+     * 提交后台刷新任务；同一学生同时只有一个刷新任务（多节点下通过Redis锁保证）
+     */
+    private void scheduleRefresh(String studentName) {
+        if (!llmGateway.isAvailable()) {
+            return; // 熔断期间保留旧建议
+        }
+        String lockKey = CacheConstants.AI_SUGGESTION_REFRESH_LOCK_KEY + studentName;
+        try {
+            String lockOwner = UUID.randomUUID().toString(); // 只释放自己持有的锁，刷新超过锁时长时不会误删其他节点的锁
+            if (!Boolean.TRUE.equals(redisUtils.setIfAbsent(lockKey, lockOwner, REFRESH_LOCK_SECONDS))) {
+                return;
+            }
+            try {
+                summaryExecutor.execute(() -> {
+                    try {
+                        refresh(studentName);
+                    } catch (Exception e) {
+                        log.warn("刷新AI学习建议失败，学生: {}, 错误: {}", studentName, e.getMessage());
+                    } finally {
+                        redisUtils.deleteIfEquals(lockKey, lockOwner);
+                    }
+                });
+            } catch (TaskRejectedException e) {
+                redisUtils.deleteIfEquals(lockKey, lockOwner); // 任务未提交，释放锁，否则要等锁过期后才能再次刷新
+                throw e;
+            }
+        } catch (Exception e) {
+            // 线程池已满或Redis不可用时放弃本次刷新，下次访问再触发
+            log.warn("提交AI学习建议刷新任务失败，学生: {}, 错误: {}", studentName, e.getMessage());
+        }
+    }
+
+    private void refresh(String studentName) {
+        List<ExamRecord> records = recentRecords(studentName);
+        if (records.isEmpty()) {
+            return;
+        }
+        String fingerprint = fingerprint(records);
+        if (fingerprint.equals(readCache(studentName).get("fingerprint"))) {
+            return; // 其他任务已刷新
+        }
+
+        int totalScore = records.stream().mapToInt(ExamRecord::getScore).sum();
+        int avgScore = totalScore / records.size();
+        int passCount = (int) records.stream().filter(r -> r.getScore() >= 60).count();
+        double passRate = (double) passCount / records.size() * 100;
+        int[] recentScores = records.stream().limit(5).mapToInt(ExamRecord::getScore).toArray();
+        boolean isImproving = true;
+        for (int i = 1; i < recentScores.length; i++) {
+            if (recentScores[i] < recentScores[i - 1]) {
+                isImproving = false;
+                break;
+            }
+        }
+
+        String suggestion = kimiGradingService.generateLearningSuggestion(
+            studentName, avgScore, passRate, recentScores, isImproving);
+        String key = CacheConstants.AI_SUGGESTION_KEY + studentName;
+        redisUtils.hSetAll(key, Map.of("fingerprint", fingerprint, "suggestion", suggestion,
+            "updateTime", System.currentTimeMillis()));
+        redisUtils.expire(key, CACHE_EXPIRE_SECONDS);
+        log.info("AI学习建议已刷新，学生: {}", studentName);
+    }
+
+    /**
+     * 最近10次已批阅考试（只查询计算建议所需的列）
+     */
+    private List<ExamRecord> recentRecords(String studentName) {
+        return examRecordMapper.selectList(new QueryWrapper<ExamRecord>()
+            .select("id", "score")
+            .eq("student_name", studentName)
+            .eq("status", "已批阅")
+            .orderByDesc("create_time")
+            .last("LIMIT " + RECENT_RECORDS));
+    }
+
+    private Map<Object, Object> readCache(String studentName) {
+        try {
+            return redisUtils.hGetAll(CacheConstants.AI_SUGGESTION_KEY + studentName);
+        } catch (Exception e) {
+            log.warn("读取AI学习建议缓存失败，学生: {}, 错误: {}", studentName, e.getMessage());
+            return Map.of();
+        }
+    }
+
+    /**
+     * 记录指纹：最近10次考试的ID和得分，任一考试新增、移出或被重判都会改变指纹
+     */
+    private static String fingerprint(List<ExamRecord> records) {
+        StringBuilder sb = new StringBuilder();
+        for (ExamRecord record : records) {
+            sb.append(record.getId()).append(':').append(record.getScore()).append(',');
+        }
+        return DigestUtils.md5DigestAsHex(sb.toString().getBytes(StandardCharsets.UTF_8));
+    }
+}
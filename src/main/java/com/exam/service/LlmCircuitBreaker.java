@@ -0,0 +1,206 @@
+package com.exam.service;
+
+import com.exam.config.LlmGatewayConfig;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 大模型调用熔断器
+ * 统计最近若干次调用（计数滑动窗口）的失败率，失败率超过阈值时打开熔断，熔断期间的请求立即失败；
+ * 熔断一段时间后进入半开状态，放行少量探测请求，全部成功则关闭熔断，任一失败则重新打开
+ *
+ * 失败包括服务端错误、网络异常、超时和慢调用；服务端限流由网关暂停派发处理，不计入失败
+ * 熔断状态和拒绝次数注册为监控指标：llm.circuit.state（0关闭、1打开、2半开）、llm.circuit.rejected
+ */
+@Slf4j
+@Component
+public class LlmCircuitBreaker implements MeterBinder {
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    /**
+     * 请求许可
+     */
+    public enum Permission {
+        PERMITTED, // 正常放行，结果计入滑动窗口
+        PROBE,     // 半开状态下的探测请求
+        WAIT,      // 半开状态下探测名额已满，稍后再试
+        REJECTED   // 熔断打开，拒绝请求
+    }
+
+    @Autowired
+    private LlmGatewayConfig config;
+
+    private State state = State.CLOSED;
+    private boolean[] window;       // 最近调用结果的环形缓冲区，true表示失败
+    private int windowIndex;
+    private int windowCount;
+    private int windowFailures;
+    private long openedAt;
+    private int probesInFlight;
+    private int probeSuccesses;
+
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private volatile Counter rejectedCounter;
+
+    /**
+     * 是否允许发起请求（不占用探测名额，用于请求入队前快速失败）
+     */
+    public synchronized boolean isCallPermitted() {
+        if (!config.getBreakerEnabled()) {
+            return true;
+        }
+        if (state == State.OPEN && System.currentTimeMillis() - openedAt
+            >= TimeUnit.SECONDS.toMillis(config.getBreakerOpenSeconds())) {
+            transitionTo(State.HALF_OPEN);
+        }
+        return state != State.OPEN;
+    }
+
+    /**
+     * 申请发起请求的许可，半开状态下占用探测名额
+     * @return 请求许可；PERMITTED和PROBE需要在请求结束后通过onSuccess/onFailure/release归还
+     */
+    public synchronized Permission tryAcquirePermission() {
+        if (!isCallPermitted()) {
+            return Permission.REJECTED;
+        }
+        if (state == State.HALF_OPEN) {
+            if (probesInFlight + probeSuccesses >= config.getBreakerHalfOpenProbes()) {
+                return Permission.WAIT;
+            }
+            probesInFlight++;
+            return Permission.PROBE;
+        }
+        return Permission.PERMITTED;
+    }
+
+    /**
+     * 记录一次成功的调用，超过慢调用阈值的按失败计
+     * @param permission 请求许可
+     * @param elapsedMillis 调用耗时（毫秒）
+     */
+    public synchronized void onSuccess(Permission permission, long elapsedMillis) {
+        record(permission, elapsedMillis >= config.getBreakerSlowCallMs());
+    }
+
+    /**
+     * 记录一次失败的调用
+     * @param permission 请求许可
+     */
+    public synchronized void onFailure(Permission permission) {
+        record(permission, true);
+    }
+
+    /**
+     * 归还许可但不计入统计（请求被取消，或失败原因与服务可用性无关）
+     * @param permission 请求许可
+     */
+    public synchronized void release(Permission permission) {
+        if (permission == Permission.PROBE && state == State.HALF_OPEN) {
+            probesInFlight = Math.max(0, probesInFlight - 1);
+        }
+    }
+
+    /**
+     * 记录一次被拒绝的请求
+     */
+    public void recordRejected() {
+        rejectedCount.incrementAndGet();
+        Counter counter = rejectedCounter;
+        if (counter != null) {
+            counter.increment();
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount.get();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("llm.circuit.state", this, breaker -> breaker.getState().ordinal())
+            .description("大模型熔断器状态：0关闭、1打开、2半开").register(registry);
+        Gauge.builder("llm.circuit.failure.rate", this, LlmCircuitBreaker::getFailureRate)
+            .description("滑动窗口内的调用失败率（百分比）").register(registry);
+        rejectedCounter = Counter.builder("llm.circuit.rejected")
+            .description("熔断期间被拒绝的大模型请求数").register(registry);
+    }
+
+    private synchronized double getFailureRate() {
+        return windowCount == 0 ? 0 : windowFailures * 100.0 / windowCount;
+    }
+
+    private void record(Permission permission, boolean failure) {
+        if (permission == Permission.PROBE) {
+            if (state != State.HALF_OPEN) {
+                return;
+            }
+            probesInFlight = Math.max(0, probesInFlight - 1);
+            if (failure) {
+                transitionTo(State.OPEN);
+            } else if (++probeSuccesses >= config.getBreakerHalfOpenProbes()) {
+                transitionTo(State.CLOSED);
+            }
+            return;
+        }
+        if (permission != Permission.PERMITTED || state != State.CLOSED) {
+            return; // 熔断打开前已放行的请求，结果不再影响状态
+        }
+
+        int size = Math.max(1, config.getBreakerWindowSize());
+        if (window == null || window.length != size) {
+            resetWindow(size);
+        }
+        if (windowCount == size) {
+            windowFailures -= window[windowIndex] ? 1 : 0;
+        } else {
+            windowCount++;
+        }
+        window[windowIndex] = failure;
+        windowFailures += failure ? 1 : 0;
+        windowIndex = (windowIndex + 1) % size;
+
+        if (windowCount >= config.getBreakerMinimumCalls()
+            && getFailureRate() >= config.getBreakerFailureRateThreshold()) {
+            transitionTo(State.OPEN);
+        }
+    }
+
+    private void transitionTo(State target) {
+        if (state == target) {
+            return;
+        }
+        log.warn("大模型熔断器状态变更: {} -> {}, 失败率: {}%", state, target, String.format("%.1f", getFailureRate()));
+        state = target;
+        probesInFlight = 0;
+        probeSuccesses = 0;
+        if (target == State.OPEN) {
+            openedAt = System.currentTimeMillis();
+        }
+        if (target == State.CLOSED) {
+            resetWindow(Math.max(1, config.getBreakerWindowSize()));
+        }
+    }
+
+    private void resetWindow(int size) {
+        window = new boolean[size];
+        windowIndex = 0;
+        windowCount = 0;
+        windowFailures = 0;
+    }
+}
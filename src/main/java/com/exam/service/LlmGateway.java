@@ -0,0 +1,739 @@
+package com.exam.service;
+
+import com.alibaba.fastjson.JSON;
+import com.alibaba.fastjson.JSONArray;
+import com.alibaba.fastjson.JSONObject;
+import com.exam.config.LlmGatewayConfig;
+import com.exam.dto.ai.ChatMessage;
+import com.exam.dto.ai.LlmRequest;
+import com.exam.dto.ai.LlmResponse;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.netty.http.client.HttpClient;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * 大模型网关
+ * 所有大模型调用统一经过本网关：全局请求速率（RPS）和Token速率（TPM）令牌桶、进行中请求数上限、
+ * 按优先级排队（交互类请求优先于批量任务），以及带随机抖动的非阻塞指数退避重试。
+ * 考试结束集中交卷时，超出服务商限额的请求在队列中等待，而不是直接失败；
+ * 服务持续异常时由熔断器（LlmCircuitBreaker）快速失败，避免请求线程堆积；
+ * 每次调用的调用方、模型、Token用量和耗时由LlmUsageRecorder记录
+ */
+@Slf4j
+@Service
+public class LlmGateway {
+
+    private static final ParameterizedTypeReference<ServerSentEvent<String>> SSE_TYPE =
+        new ParameterizedTypeReference<>() { };
+
+    /**
+     * 调用方标识，用于日志和用量统计
+     */
+    public static final String CALLER_GRADING = "grading";
+    public static final String CALLER_SUMMARY = "summary";
+    public static final String CALLER_SUGGESTION = "suggestion";
+    public static final String CALLER_GENERATION = "question-generation";
+    public static final String CALLER_CHAT = "chat";
+
+    /**
+     * 请求优先级，数值越小越先派发
+     */
+    public enum Priority {
+        INTERACTIVE, // 交互类：交卷判卷、AI对话等，用户在等待结果
+        BULK         // 批量类：AI出题、整卷重判等后台任务
+    }
+
+    @Value("${qwen.api.base-url}")
+    private String baseUrl;
+
+    @Value("${qwen.api.api-key:}")
+    private String apiKey;
+
+    @Value("${qwen.api.model}")
+    private String defaultModel;
+
+    @Autowired
+    private LlmGatewayConfig config;
+
+    @Autowired
+    private WebClient.Builder webClientBuilder;
+
+    @Autowired
+    private HttpClient httpClient; // 共用连接池，见HttpClientConfig
+
+    @Autowired
+    private LlmCircuitBreaker circuitBreaker;
+
+    @Autowired
+    private LlmUsageRecorder usageRecorder;
+
+    private final PriorityBlockingQueue<PendingCall> queue = new PriorityBlockingQueue<>();
+    private final AtomicLong sequence = new AtomicLong();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private volatile long pausedUntil;
+
+    private WebClient webClient;
+    private TokenBucket requestBucket;
+    private TokenBucket tokenBucket;
+    private ScheduledExecutorService ticker;
+
+    @PostConstruct
+    public void init() {
+        webClient = webClientBuilder
+            .clientConnector(new ReactorClientHttpConnector(httpClient))
+            .codecs(codecs -> codecs.defaultCodecs().maxInMemorySize(config.getMaxResponseBytes()))
+            .defaultHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+            .build();
+
+        double rps = config.getRequestsPerSecond();
+        requestBucket = new TokenBucket(Math.max(1, (long) Math.ceil(rps)), rps / 1000.0);
+        tokenBucket = new TokenBucket(config.getTokensPerMinute(), config.getTokensPerMinute() / 60000.0);
+
+        // 令牌桶补充、限流暂停结束和排队超时都依赖定时检查来继续派发
+        ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "llm-gateway-ticker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        ticker.scheduleWithFixedDelay(this::tick, 50, 50, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        ticker.shutdownNow();
+        PendingCall call;
+        while ((call = queue.poll()) != null) {
+            call.fail(new LlmException("服务正在关闭", false));
+        }
+    }
+
+    /**
+     * 发送对话请求（非阻塞）
+     * @param request 请求
+     * @return 响应
+     */
+    public Mono<LlmResponse> chat(LlmRequest request) {
+        return Mono.defer(() -> {
+            if (apiKey == null || apiKey.isEmpty()) {
+                return Mono.error(new LlmException("未配置千问API密钥，请在配置文件中设置qwen.api.api-key", false));
+            }
+            if (!circuitBreaker.isCallPermitted()) {
+                circuitBreaker.recordRejected();
+                return Mono.error(LlmException.circuitOpen());
+            }
+            if (queue.size() >= config.getMaxQueued()) {
+                return Mono.error(new LlmException("AI服务繁忙，请稍后重试", false));
+            }
+            PendingCall call = new PendingCall(request, sequence.incrementAndGet(), estimateTokens(request));
+            queue.offer(call);
+            drain();
+            return call.sink.asMono().doOnCancel(() -> {
+                call.cancelled = true;
+                Disposable upstream = call.upstream;
+                if (upstream != null) {
+                    upstream.dispose(); // 已派发的请求随之中断，释放并发名额
+                }
+            });
+        });
+    }
+
+    /**
+     * 发送流式对话请求（非阻塞），逐段返回生成内容
+     * 与普通请求共用排队、并发和速率预算；请求超时按相邻两段内容的间隔计算，长时间生成不会整体超时。
+     * 只有在尚未收到任何内容时才会重试，避免下游收到重复内容；取消订阅会中断上游请求
+     * @param request 请求
+     * @return 生成内容片段
+     */
+    public Flux<String> stream(LlmRequest request) {
+        return Flux.defer(() -> {
+            if (apiKey == null || apiKey.isEmpty()) {
+                return Flux.error(new LlmException("未配置千问API密钥，请在配置文件中设置qwen.api.api-key", false));
+            }
+            if (!circuitBreaker.isCallPermitted()) {
+                circuitBreaker.recordRejected();
+                return Flux.error(LlmException.circuitOpen());
+            }
+            if (queue.size() >= config.getMaxQueued()) {
+                return Flux.error(new LlmException("AI服务繁忙，请稍后重试", false));
+            }
+            PendingCall call = new PendingCall(request, sequence.incrementAndGet(), estimateTokens(request),
+                Sinks.many().unicast().onBackpressureBuffer());
+            queue.offer(call);
+            drain();
+            return call.streamSink.asFlux().doOnCancel(() -> {
+                call.cancelled = true;
+                Disposable upstream = call.upstream;
+                if (upstream != null) {
+                    upstream.dispose();
+                }
+            });
+        });
+    }
+
+    /**
+     * 发送单条提示词并等待生成内容（供同步调用方使用，调用线程阻塞等待，不占用网关线程）
+     * @param prompt 提示词
+     * @param priority 优先级
+     * @param temperature 温度参数，为空时使用模型默认值
+     * @param maxTokens 最大生成token数，为空时使用模型默认值
+     * @return 生成内容
+     */
+    public String complete(String prompt, Priority priority, Double temperature, Integer maxTokens) {
+        return complete(prompt, priority, temperature, maxTokens, null);
+    }
+
+    /**
+     * 发送单条提示词并等待生成内容（供同步调用方使用，调用线程阻塞等待，不占用网关线程）
+     * @param prompt 提示词
+     * @param priority 优先级
+     * @param temperature 温度参数，为空时使用模型默认值
+     * @param maxTokens 最大生成token数，为空时使用模型默认值
+     * @param caller 调用方标识，见CALLER_*常量
+     * @return 生成内容
+     */
+    public String complete(String prompt, Priority priority, Double temperature, Integer maxTokens, String caller) {
+        return complete(prompt, priority, temperature, maxTokens, caller, null);
+    }
+
+    /**
+     * 发送单条提示词并在限定时间内等待生成内容
+     * 超时后取消请求：排队中的请求不再派发，已派发的请求被中断，调用线程立即返回
+     * @param prompt 提示词
+     * @param priority 优先级
+     * @param temperature 温度参数，为空时使用模型默认值
+     * @param maxTokens 最大生成token数，为空时使用模型默认值
+     * @param caller 调用方标识，见CALLER_*常量
+     * @param timeout 最长等待时间（包含排队和重试），为空时不额外限制
+     * @return 生成内容
+     */
+    public String complete(String prompt, Priority priority, Double temperature, Integer maxTokens, String caller,
+                           Duration timeout) {
+        LlmRequest request = LlmRequest.builder()
+            .messages(List.of(new ChatMessage("user", prompt)))
+            .priority(priority)
+            .temperature(temperature)
+            .maxTokens(maxTokens)
+            .caller(caller)
+            .build();
+        Mono<LlmResponse> call = chat(request);
+        if (timeout != null) {
+            call = call.timeout(timeout.isNegative() ? Duration.ZERO : timeout,
+                Mono.error(() -> new LlmException("等待AI服务响应超时", false)));
+        }
+        LlmResponse response = call.block();
+        if (response == null) {
+            throw new LlmException("AI服务返回空响应", false);
+        }
+        return response.getContent();
+    }
+
+    /**
+     * 当前进行中的请求数
+     */
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    /**
+     * 当前排队的请求数
+     */
+    public int getQueued() {
+        return queue.size();
+    }
+
+    /**
+     * 大模型服务当前是否可用（熔断器未打开）
+     */
+    public boolean isAvailable() {
+        return circuitBreaker.isCallPermitted();
+    }
+
+    /**
+     * 判断异常是否由熔断引起（会沿异常链查找）
+     * @param error 异常
+     * @return 是否为熔断拒绝
+     */
+    public static boolean isCircuitOpen(Throwable error) {
+        for (Throwable e = error; e != null; e = e.getCause()) {
+            if (e instanceof LlmException llmException && llmException.isCircuitOpen()) {
+                return true;
+            }
+            if (e.getCause() == e) {
+                break;
+            }
+        }
+        return false;
+    }
+
+    private void tick() {
+        try {
+            long now = System.currentTimeMillis();
+            long queueTimeoutMillis = TimeUnit.SECONDS.toMillis(config.getQueueTimeoutSeconds());
+            queue.removeIf(call -> {
+                if (call.cancelled) {
+                    return true;
+                }
+                if (now - call.enqueuedAt > queueTimeoutMillis) {
+                    call.fail(new LlmException("AI服务繁忙，排队超时，请稍后重试", false));
+                    return true;
+                }
+                return false;
+            });
+            drain();
+        } catch (Exception e) {
+            log.error("大模型网关调度异常: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 在并发上限和令牌桶允许的范围内，按优先级派发排队中的请求
+     */
+    private synchronized void drain() {
+        while (!queue.isEmpty() && inFlight.get() < config.getMaxInFlight()
+            && System.currentTimeMillis() >= pausedUntil) {
+            PendingCall call = queue.peek();
+            if (call.cancelled) {
+                queue.poll();
+                continue;
+            }
+            LlmCircuitBreaker.Permission permission = circuitBreaker.tryAcquirePermission();
+            if (permission == LlmCircuitBreaker.Permission.REJECTED) {
+                // 熔断打开，排队中的请求立即失败，不再等待
+                queue.poll();
+                circuitBreaker.recordRejected();
+                call.fail(LlmException.circuitOpen());
+                continue;
+            }
+            if (permission == LlmCircuitBreaker.Permission.WAIT) {
+                break; // 半开状态下等待探测请求的结果
+            }
+            if (!requestBucket.tryAcquire(1)) {
+                circuitBreaker.release(permission);
+                break;
+            }
+            if (!tokenBucket.tryAcquire(call.estimatedTokens)) {
+                requestBucket.adjust(1);
+                circuitBreaker.release(permission);
+                break;
+            }
+            call.permission = permission;
+            queue.poll();
+            inFlight.incrementAndGet();
+            usageRecorder.recordQueueWait(call.request.getCaller(), call.request.getPriority(),
+                System.currentTimeMillis() - call.enqueuedAt);
+            if (call.streamSink != null) {
+                dispatchStream(call);
+            } else {
+                dispatch(call);
+            }
+        }
+    }
+
+    private void dispatch(PendingCall call) {
+        long timeoutSeconds = call.request.getTimeoutSeconds() != null
+            ? call.request.getTimeoutSeconds() : config.getRequestTimeoutSeconds();
+        long startedAt = System.currentTimeMillis();
+        call.upstream = execute(call.request, timeoutSeconds)
+            .retryWhen(retrySpec(call, this::isRetryable))
+            .doOnCancel(() -> {
+                circuitBreaker.release(call.permission);
+                usageRecorder.record(call.request.getCaller(), modelOf(call.request), LlmUsageRecorder.STATUS_CANCELLED,
+                    0, 0, System.currentTimeMillis() - startedAt);
+            })
+            .doFinally(signal -> {
+                inFlight.decrementAndGet();
+                drain();
+            })
+            .subscribe(response -> {
+                long elapsed = System.currentTimeMillis() - startedAt;
+                circuitBreaker.onSuccess(call.permission, elapsed);
+                if (response.getTotalTokens() > 0) {
+                    tokenBucket.adjust(call.estimatedTokens - response.getTotalTokens()); // 按实际用量校正预估
+                }
+                usageRecorder.record(call.request.getCaller(),
+                    response.getModel() != null ? response.getModel() : modelOf(call.request),
+                    LlmUsageRecorder.STATUS_SUCCESS, response.getPromptTokens(), response.getCompletionTokens(), elapsed);
+                call.sink.tryEmitValue(response);
+            }, error -> {
+                recordFailure(call, error);
+                usageRecorder.record(call.request.getCaller(), modelOf(call.request), usageStatus(error),
+                    0, 0, System.currentTimeMillis() - startedAt);
+                call.sink.tryEmitError(error);
+            });
+        if (call.cancelled) {
+            call.upstream.dispose(); // 派发前调用方已取消
+        }
+    }
+
+    private void dispatchStream(PendingCall call) {
+        long idleTimeoutSeconds = call.request.getTimeoutSeconds() != null
+            ? Math.min(call.request.getTimeoutSeconds(), config.getStreamIdleTimeoutSeconds())
+            : config.getStreamIdleTimeoutSeconds();
+        AtomicBoolean emitted = new AtomicBoolean();
+        long startedAt = System.currentTimeMillis();
+        call.upstream = executeStream(call, idleTimeoutSeconds)
+            .doOnNext(delta -> emitted.set(true))
+            .retryWhen(retrySpec(call, error -> !emitted.get() && isRetryable(error)))
+            .doOnComplete(() -> {
+                circuitBreaker.onSuccess(call.permission,
+                    emitted.get() ? 0 : System.currentTimeMillis() - startedAt); // 流式请求只按首段内容前的耗时判断慢调用
+                recordStreamUsage(call, LlmUsageRecorder.STATUS_SUCCESS, startedAt);
+            })
+            .doOnError(error -> {
+                recordFailure(call, error);
+                recordStreamUsage(call, usageStatus(error), startedAt);
+            })
+            .doOnCancel(() -> {
+                circuitBreaker.release(call.permission);
+                recordStreamUsage(call, LlmUsageRecorder.STATUS_CANCELLED, startedAt);
+            })
+            .doFinally(signal -> {
+                inFlight.decrementAndGet();
+                drain();
+            })
+            .subscribe(delta -> call.streamSink.tryEmitNext(delta),
+                error -> call.streamSink.tryEmitError(error),
+                () -> call.streamSink.tryEmitComplete());
+        if (call.cancelled) {
+            call.upstream.dispose(); // 派发前下游已取消
+        }
+    }
+
+    private Retry retrySpec(PendingCall call, Predicate<Throwable> retryable) {
+        return Retry.backoff(config.getMaxRetries(), Duration.ofMillis(config.getRetryMinBackoffMs()))
+            .maxBackoff(Duration.ofMillis(config.getRetryMaxBackoffMs()))
+            .jitter(0.5)
+            .filter(retryable)
+            .doBeforeRetry(signal -> log.warn("大模型请求第{}次重试，调用方: {}, 原因: {}",
+                signal.totalRetries() + 1, call.request.getCaller(), signal.failure().getMessage()))
+            .onRetryExhaustedThrow((spec, signal) -> signal.failure());
+    }
+
+    private Mono<LlmResponse> execute(LlmRequest request, long timeoutSeconds) {
+        return webClient.post()
+            .uri(baseUrl + "/chat/completions")
+            .header(HttpHeaders.AUTHORIZATION, "Bearer " + apiKey)
+            .bodyValue(buildBody(request, false).toJSONString())
+            .retrieve()
+            .bodyToMono(String.class)
+            .timeout(Duration.ofSeconds(timeoutSeconds))
+            .map(this::parseResponse)
+            .doOnError(this::pauseIfRateLimited);
+    }
+
+    /**
+     * 流式请求：逐个读取SSE事件，提取增量内容；最后一个事件携带用量，用于校正Token预估
+     */
+    private Flux<String> executeStream(PendingCall call, long idleTimeoutSeconds) {
+        return webClient.post()
+            .uri(baseUrl + "/chat/completions")
+            .header(HttpHeaders.AUTHORIZATION, "Bearer " + apiKey)
+            .accept(MediaType.TEXT_EVENT_STREAM)
+            .bodyValue(buildBody(call.request, true).toJSONString())
+            .retrieve()
+            .bodyToFlux(SSE_TYPE)
+            .timeout(Duration.ofSeconds(idleTimeoutSeconds))
+            .map(event -> event.data() != null ? event.data().trim() : "")
+            .filter(data -> !data.isEmpty())
+            .takeWhile(data -> !"[DONE]".equals(data))
+            .<String>handle((data, sink) -> {
+                JSONObject json = JSON.parseObject(data);
+                if (json.containsKey("error")) {
+                    String message = String.valueOf(json.getJSONObject("error").getString("message"));
+                    boolean rateLimited = isRateLimitMessage(message);
+                    sink.error(new LlmException("千问API错误: " + message, rateLimited, rateLimited));
+                    return;
+                }
+                JSONObject usage = json.getJSONObject("usage");
+                if (usage != null && usage.getIntValue("total_tokens") > 0) {
+                    tokenBucket.adjust(call.estimatedTokens - usage.getIntValue("total_tokens")); // 按实际用量校正预估
+                    call.promptTokens = usage.getIntValue("prompt_tokens");
+                    call.completionTokens = usage.getIntValue("completion_tokens");
+                }
+                if (json.getString("model") != null) {
+                    call.model = json.getString("model");
+                }
+                JSONArray choices = json.getJSONArray("choices");
+                if (choices != null && !choices.isEmpty()) {
+                    JSONObject delta = choices.getJSONObject(0).getJSONObject("delta");
+                    String content = delta != null ? delta.getString("content") : null;
+                    if (content != null && !content.isEmpty()) {
+                        sink.next(content);
+                    }
+                }
+            })
+            .doOnError(this::pauseIfRateLimited);
+    }
+
+    private JSONObject buildBody(LlmRequest request, boolean stream) {
+        JSONObject body = new JSONObject();
+        body.put("model", modelOf(request));
+        JSONArray messages = new JSONArray();
+        for (ChatMessage message : request.getMessages()) {
+            JSONObject item = new JSONObject();
+            item.put("role", message.getRole());
+            item.put("content", message.getContent());
+            messages.add(item);
+        }
+        body.put("messages", messages);
+        if (request.getTemperature() != null) {
+            body.put("temperature", request.getTemperature());
+        }
+        if (request.getMaxTokens() != null) {
+            body.put("max_tokens", request.getMaxTokens());
+        }
+        if (stream) {
+            body.put("stream", true);
+            JSONObject streamOptions = new JSONObject();
+            streamOptions.put("include_usage", true);
+            body.put("stream_options", streamOptions);
+        }
+        return body;
+    }
+
+    private LlmResponse parseResponse(String responseBody) {
+        JSONObject json = JSON.parseObject(responseBody);
+        if (json == null) {
+            throw new LlmException("千问API返回空响应", true);
+        }
+        if (json.containsKey("error")) {
+            String message = String.valueOf(json.getJSONObject("error").getString("message"));
+            boolean rateLimited = isRateLimitMessage(message);
+            throw new LlmException("千问API错误: " + message, rateLimited, rateLimited);
+        }
+        JSONArray choices = json.getJSONArray("choices");
+        if (choices == null || choices.isEmpty()) {
+            throw new LlmException("千问API返回的响应格式不正确", false);
+        }
+        String content = choices.getJSONObject(0).getJSONObject("message").getString("content");
+        JSONObject usage = json.getJSONObject("usage");
+        return new LlmResponse(content, json.getString("model"),
+            usage != null ? usage.getIntValue("prompt_tokens") : 0,
+            usage != null ? usage.getIntValue("completion_tokens") : 0,
+            usage != null ? usage.getIntValue("total_tokens") : 0);
+    }
+
+    private boolean isRetryable(Throwable error) {
+        if (error instanceof LlmException llmException) {
+            return llmException.isRetryable();
+        }
+        if (error instanceof WebClientResponseException responseException) {
+            return responseException.getStatusCode().value() == HttpStatus.TOO_MANY_REQUESTS.value()
+                || responseException.getStatusCode().is5xxServerError();
+        }
+        return error instanceof WebClientRequestException || error instanceof TimeoutException;
+    }
+
+    /**
+     * 将失败结果计入熔断器：服务端错误、网络异常和超时计为失败，限流和请求本身的错误不影响熔断
+     */
+    private void recordFailure(PendingCall call, Throwable error) {
+        if (isRetryable(error) && !isRateLimited(error)) {
+            circuitBreaker.onFailure(call.permission);
+        } else {
+            circuitBreaker.release(call.permission);
+        }
+    }
+
+    /**
+     * 流式请求的用量在最后一个事件中返回，中途失败或取消时只记录次数和耗时
+     */
+    private void recordStreamUsage(PendingCall call, String status, long startedAt) {
+        usageRecorder.record(call.request.getCaller(), call.model != null ? call.model : modelOf(call.request),
+            status, call.promptTokens, call.completionTokens, System.currentTimeMillis() - startedAt);
+    }
+
+    private String modelOf(LlmRequest request) {
+        return request.getModel() != null ? request.getModel() : defaultModel;
+    }
+
+    private static String usageStatus(Throwable error) {
+        if (isRateLimited(error)) {
+            return LlmUsageRecorder.STATUS_RATE_LIMITED;
+        }
+        return error instanceof TimeoutException ? LlmUsageRecorder.STATUS_TIMEOUT : LlmUsageRecorder.STATUS_ERROR;
+    }
+
+    private static boolean isRateLimited(Throwable error) {
+        return error instanceof LlmException llmException && llmException.isRateLimited()
+            || error instanceof WebClientResponseException responseException
+            && responseException.getStatusCode().value() == HttpStatus.TOO_MANY_REQUESTS.value();
+    }
+
+    /**
+     * 服务端限流时暂停派发，避免排队中的请求继续撞上限额
+     */
+    private void pauseIfRateLimited(Throwable error) {
+        if (isRateLimited(error)) {
+            pausedUntil = Math.max(pausedUntil, System.currentTimeMillis() + config.getRateLimitPauseMs());
+            log.warn("千问API限流，暂停派发{}毫秒，排队请求数: {}", config.getRateLimitPauseMs(), queue.size());
+        }
+    }
+
+    private static boolean isRateLimitMessage(String message) {
+        String lower = message.toLowerCase();
+        return lower.contains("rate limit") || lower.contains("too many requests") || lower.contains("throttl");
+    }
+
+    /**
+     * 按提示词字符数和最大生成数估算本次请求消耗的Token数
+     */
+    private long estimateTokens(LlmRequest request) {
+        long chars = 0;
+        for (ChatMessage message : request.getMessages()) {
+            chars += message.getContent() != null ? message.getContent().length() : 0;
+        }
+        long completion = request.getMaxTokens() != null ? request.getMaxTokens() : 1000;
+        return (long) Math.ceil(chars * config.getTokensPerChar()) + completion;
+    }
+
+    /**
+     * 排队中的请求
+     */
+    private static class PendingCall implements Comparable<PendingCall> {
+        private final LlmRequest request;
+        private final long sequence;
+        private final long estimatedTokens;
+        private final long enqueuedAt = System.currentTimeMillis();
+        private final Sinks.One<LlmResponse> sink = Sinks.one();
+        private final Sinks.Many<String> streamSink; // 仅流式请求使用
+        private volatile Disposable upstream;        // 请求派发后的上游订阅，调用方取消时用于中断请求
+        private volatile LlmCircuitBreaker.Permission permission; // 派发时获得的熔断器许可
+        private volatile String model;           // 流式请求：响应中返回的模型名称
+        private volatile int promptTokens;       // 流式请求：最后一个事件返回的提示词Token数
+        private volatile int completionTokens;   // 流式请求：最后一个事件返回的生成Token数
+        private volatile boolean cancelled;
+
+        PendingCall(LlmRequest request, long sequence, long estimatedTokens) {
+            this(request, sequence, estimatedTokens, null);
+        }
+
+        PendingCall(LlmRequest request, long sequence, long estimatedTokens, Sinks.Many<String> streamSink) {
+            this.request = request;
+            this.sequence = sequence;
+            this.estimatedTokens = estimatedTokens;
+            this.streamSink = streamSink;
+        }
+
+        void fail(Throwable error) {
+            if (streamSink != null) {
+                streamSink.tryEmitError(error);
+            } else {
+                sink.tryEmitError(error);
+            }
+        }
+
+        @Override
+        public int compareTo(PendingCall other) {
+            int byPriority = request.getPriority().compareTo(other.request.getPriority());
+            return byPriority != 0 ? byPriority : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    /**
+     * 令牌桶：按固定速率补充，允许短时突发到容量上限；校正时允许透支（负值），透支部分由后续补充偿还
+     */
+    private static class TokenBucket {
+        private final long capacity;
+        private final double refillPerMillis;
+        private double tokens;
+        private long lastRefill = System.currentTimeMillis();
+
+        TokenBucket(long capacity, double refillPerMillis) {
+            this.capacity = capacity;
+            this.refillPerMillis = refillPerMillis;
+            this.tokens = capacity;
+        }
+
+        synchronized boolean tryAcquire(long amount) {
+            refill();
+            long required = Math.min(amount, capacity); // 单次超过容量的请求在桶满时放行
+            if (tokens < required) {
+                return false;
+            }
+            tokens -= amount;
+            return true;
+        }
+
+        synchronized void adjust(long delta) {
+            refill();
+            tokens = Math.max(-capacity, Math.min(capacity, tokens + delta));
+        }
+
+        private void refill() {
+            long now = System.currentTimeMillis();
+            tokens = Math.min(capacity, tokens + (now - lastRefill) * refillPerMillis);
+            lastRefill = now;
+        }
+    }
+
+    /**
+     * 大模型调用异常
+     */
+    public static class LlmException extends RuntimeException {
+        private final boolean retryable;
+        private final boolean rateLimited;
+        private boolean circuitOpen;
+
+        public LlmException(String message, boolean retryable) {
+            this(message, retryable, false);
+        }
+
+        public LlmException(String message, boolean retryable, boolean rateLimited) {
+            super(message);
+            this.retryable = retryable;
+            this.rateLimited = rateLimited;
+        }
+
+        /**
+         * 熔断期间拒绝请求的异常
+         */
+        public static LlmException circuitOpen() {
+            LlmException exception = new LlmException("AI服务暂时不可用（熔断中），请稍后重试", false);
+            exception.circuitOpen = true;
+            return exception;
+        }
+
+        public boolean isRetryable() {
+            return retryable;
+        }
+
+        public boolean isRateLimited() {
+            return rateLimited;
+        }
+
+        public boolean isCircuitOpen() {
+            return circuitOpen;
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.exam.service;
+
+import com.exam.common.CacheConstants;
+import com.exam.config.LlmGatewayConfig;
+import com.exam.dto.ai.LlmUsageDto;
+import com.exam.utils.RedisUtils;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 大模型用量统计
+ * 网关每完成一次调用记录一次：调用方、模型、结果状态、提示词/生成Token数和耗时
+ *
+ * 监控指标（/actuator/metrics）：
+ * llm.requests（耗时直方图，标签caller/model/status）、llm.tokens（Token数，标签caller/model/type）、
+ * llm.queue.wait（排队等待时间，标签caller/priority）
+ *
+ * 日汇总先在本节点累加，定期（LlmUsageFlushTask）合并到Redis的按日Hash中，多节点的用量自然累加
+ */
+@Slf4j
+@Component
+public class LlmUsageRecorder {
+
+    public static final String STATUS_SUCCESS = "success";
+    public static final String STATUS_ERROR = "error";
+    public static final String STATUS_TIMEOUT = "timeout";
+    public static final String STATUS_RATE_LIMITED = "rate_limited";
+    public static final String STATUS_CANCELLED = "cancelled";
+
+    private static final String FIELD_SEPARATOR = "|";
+    private static final String METRIC_CALLS = "calls";
+    private static final String METRIC_FAILED = "failed";
+    private static final String METRIC_PROMPT_TOKENS = "promptTokens";
+    private static final String METRIC_COMPLETION_TOKENS = "completionTokens";
+    private static final String METRIC_LATENCY = "latencyMs";
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private RedisUtils redisUtils;
+
+    @Autowired
+    private LlmGatewayConfig config;
+
+    /**
+     * 待写入Redis的累计值，key：日期|调用方|模型|指标
+     */
+    private final Map<String, LongAdder> pending = new ConcurrentHashMap<>();
+
+    /**
+     * 记录一次已派发的调用
+     * @param caller 调用方
+     * @param model 模型名称
+     * @param status 结果状态
+     * @param promptTokens 提示词Token数（失败时为0）
+     * @param completionTokens 生成Token数（失败时为0）
+     * @param latencyMillis 耗时（毫秒，含重试）
+     */
+    public void record(String caller, String model, String status, long promptTokens, long completionTokens,
+                       long latencyMillis) {
+        caller = caller != null ? caller : "unknown";
+        model = model != null ? model : "unknown";
+        Timer.builder("llm.requests")
+            .description("大模型调用耗时（含重试）")
+            .tags("caller", caller, "model", model, "status", status)
+            .publishPercentileHistogram()
+            .minimumExpectedValue(Duration.ofMillis(100))
+            .maximumExpectedValue(Duration.ofSeconds(120))
+            .register(meterRegistry)
+            .record(latencyMillis, TimeUnit.MILLISECONDS);
+        if (promptTokens > 0) {
+            tokenCounter(caller, model, "prompt").increment(promptTokens);
+        }
+        if (completionTokens > 0) {
+            tokenCounter(caller, model, "completion").increment(completionTokens);
+        }
+
+        String prefix = LocalDate.now() + FIELD_SEPARATOR + caller + FIELD_SEPARATOR + model + FIELD_SEPARATOR;
+        add(prefix + METRIC_CALLS, 1);
+        if (!STATUS_SUCCESS.equals(status)) {
+            add(prefix + METRIC_FAILED, 1);
+        }
+        add(prefix + METRIC_PROMPT_TOKENS, promptTokens);
+        add(prefix + METRIC_COMPLETION_TOKENS, completionTokens);
+        add(prefix + METRIC_LATENCY, latencyMillis);
+    }
+
+    /**
+     * 记录请求在网关队列中的等待时间
+     * @param caller 调用方
+     * @param priority 优先级
+     * @param waitMillis 等待时间（毫秒）
+     */
+    public void recordQueueWait(String caller, LlmGateway.Priority priority, long waitMillis) {
+        Timer.builder("llm.queue.wait")
+            .description("大模型请求在网关队列中的等待时间")
+            .tags("caller", caller != null ? caller : "unknown", "priority", priority.name())
+            .register(meterRegistry)
+            .record(waitMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 将本节点累计的用量合并到Redis日汇总
+     * @return 写入的字段数
+     */
+    public int flush() {
+        int flushed = 0;
+        String today = LocalDate.now().toString();
+        for (Map.Entry<String, LongAdder> entry : pending.entrySet()) {
+            long value = entry.getValue().sumThenReset();
+            if (value == 0) {
+                if (!entry.getKey().startsWith(today)) {
+                    pending.remove(entry.getKey()); // 往日的累计项不会再有写入
+                }
+                continue;
+            }
+            String field = entry.getKey();
+            int separator = field.indexOf(FIELD_SEPARATOR);
+            String key = CacheConstants.LLM_USAGE_KEY + field.substring(0, separator);
+            try {
+                redisUtils.hIncrement(key, field.substring(separator + 1), value);
+                redisUtils.expire(key, TimeUnit.DAYS.toSeconds(config.getUsageRetentionDays()));
+                flushed++;
+            } catch (Exception e) {
+                entry.getValue().add(value); // 写入失败，留待下次合并
+                throw e;
+            }
+        }
+        return flushed;
+    }
+
+    /**
+     * 查询某天的用量汇总（已合并到Redis的部分）
+     * @param date 日期
+     * @return 按调用方和模型分组的用量，按总Token数倒序
+     */
+    public List<LlmUsageDto> getDailyUsage(LocalDate date) {
+        Map<String, LlmUsageDto> rows = new LinkedHashMap<>();
+        Map<String, Long> latency = new LinkedHashMap<>();
+        for (Map.Entry<Object, Object> entry : redisUtils.hGetAll(CacheConstants.LLM_USAGE_KEY + date).entrySet()) {
+            String field = String.valueOf(entry.getKey());
+            int metricAt = field.lastIndexOf(FIELD_SEPARATOR);
+            int modelAt = field.lastIndexOf(FIELD_SEPARATOR, metricAt - 1);
+            if (modelAt < 0) {
+                continue;
+            }
+            String group = field.substring(0, metricAt);
+            long value = entry.getValue() instanceof Number number ? number.longValue()
+                : Long.parseLong(String.valueOf(entry.getValue()));
+            LlmUsageDto row = rows.computeIfAbsent(group, g -> {
+                LlmUsageDto dto = new LlmUsageDto();
+                dto.setDate(date.toString());
+                dto.setCaller(field.substring(0, modelAt));
+                dto.setModel(field.substring(modelAt + 1, metricAt));
+                return dto;
+            });
+            switch (field.substring(metricAt + 1)) {
+                case METRIC_CALLS -> row.setCalls(value);
+                case METRIC_FAILED -> row.setFailedCalls(value);
+                case METRIC_PROMPT_TOKENS -> row.setPromptTokens(value);
+                case METRIC_COMPLETION_TOKENS -> row.setCompletionTokens(value);
+                case METRIC_LATENCY -> latency.put(group, value);
+                default -> {
+                }
+            }
+        }
+        List<LlmUsageDto> result = new ArrayList<>(rows.size());
+        rows.forEach((group, row) -> {
+            row.setTotalTokens(row.getPromptTokens() + row.getCompletionTokens());
+            long latencySum = latency.getOrDefault(group, 0L);
+            row.setAvgLatencyMs(row.getCalls() > 0 ? latencySum / row.getCalls() : 0);
+            result.add(row);
+        });
+        result.sort(Comparator.comparingLong(LlmUsageDto::getTotalTokens).reversed());
+        return result;
+    }
+
+    @PreDestroy
+    public void destroy() {
+        try {
+            flush();
+        } catch (Exception e) {
+            log.warn("关闭时写入大模型用量汇总失败: {}", e.getMessage());
+        }
+    }
+
+    private Counter tokenCounter(String caller, String model, String type) {
+        return Counter.builder("llm.tokens")
+            .description("大模型Token用量")
+            .tags("caller", caller, "model", model, "type", type)
+            .register(meterRegistry);
+    }
+
+    private void add(String key, long value) {
+        if (value != 0) {
+            pending.computeIfAbsent(key, k -> new LongAdder()).add(value);
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.exam.service;
+
+import com.exam.config.GradingConfig;
+import com.exam.entity.Question;
+import com.exam.utils.KeywordAutomaton;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 主观题本地预判服务
+ * 在调用大模型之前，用评分关键词（Aho-Corasick自动机扫描）和与标准答案的字符二元组相似度对答案做一次初筛：
+ * 未作答、与标准答案一致或覆盖全部评分关键词、明显答非所问的答案直接在本地给分，其余答案交给AI判卷。
+ * 相似度只用于判定答非所问，且要求题目设置了关键词并且一个都未命中；字面相近不代表答对（如只差一个"不"字），不据此给满分
+ *
+ * 每道题的评分要素（规范化后的标准答案二元组、关键词自动机）编译一次后缓存在本节点，
+ * 标准答案或关键词修改后缓存key随之变化
+ */
+@Slf4j
+@Service
+public class LocalGradingService {
+
+    @Autowired
+    private GradingConfig gradingConfig;
+
+    private final Map<String, Rubric> rubrics = Collections.synchronizedMap(
+        new LinkedHashMap<>(256, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Rubric> eldest) {
+                return size() > 2000;
+            }
+        });
+
+    /**
+     * 本地预判
+     * @param question 题目（需包含标准答案）
+     * @param userAnswer 学生答案
+     * @param maxScore 题目满分
+     * @return 判卷结果；答案无法在本地确定时返回null，需交给AI判卷
+     */
+    public KimiGradingService.GradingResult preGrade(Question question, String userAnswer, Integer maxScore) {
+        if (!gradingConfig.getPreGradeEnabled()) {
+            return null;
+        }
+        String answer = GradingCacheService.normalizeAnswer(userAnswer);
+        if (answer.isEmpty()) {
+            return new KimiGradingService.GradingResult(0, "未作答", "未作答，系统自动评分",
+                KimiGradingService.GradingResult.SOURCE_LOCAL_BLANK);
+        }
+        if (question.getAnswer() == null || question.getAnswer().getAnswer() == null) {
+            return null;
+        }
+
+        Rubric rubric = getRubric(question);
+        if (answer.equals(rubric.reference)) {
+            return new KimiGradingService.GradingResult(maxScore, "答案与标准答案一致，要点完整",
+                "与标准答案一致，系统自动评分", KimiGradingService.GradingResult.SOURCE_LOCAL_VERBATIM);
+        }
+        if (rubric.keywords == null) {
+            return null; // 未设置评分关键词时无法在本地判断要点，交给AI判卷
+        }
+        double coverage = rubric.keywordCoverage(answer);
+        if (coverage >= gradingConfig.getPreGradeFullKeywordCoverage()) {
+            return new KimiGradingService.GradingResult(maxScore, "答案覆盖了全部评分要点",
+                "命中全部评分关键词，系统自动评分", KimiGradingService.GradingResult.SOURCE_LOCAL_KEYWORDS);
+        }
+        double similarity = rubric.similarity(answer);
+        // 标准答案过短时相似度没有区分度，不据此判为答非所问
+        if (coverage == 0 && rubric.referenceBigrams.length >= 4
+            && similarity <= gradingConfig.getPreGradeZeroSimilarity()) {
+            return new KimiGradingService.GradingResult(0, "答案与题目要求不符，未涉及任何评分要点",
+                String.format("与标准答案相似度%.2f，未命中评分关键词，系统自动评分", similarity),
+                KimiGradingService.GradingResult.SOURCE_LOCAL_OFF_TOPIC);
+        }
+        log.debug("本地预判无法确定，交给AI判卷，题目ID: {}, 相似度: {}, 关键词覆盖率: {}",
+            question.getId(), similarity, coverage);
+        return null;
+    }
+
+    private Rubric getRubric(Question question) {
+        String reference = question.getAnswer().getAnswer();
+        String keywords = question.getAnswer().getKeywords();
+        String key = question.getId() + ":" + reference.hashCode() + ":" + (keywords != null ? keywords.hashCode() : 0);
+        Rubric rubric = rubrics.get(key);
+        if (rubric == null) {
+            rubric = new Rubric(reference, keywords);
+            rubrics.put(key, rubric);
+        }
+        return rubric;
+    }
+
+    /**
+     * 编译后的题目评分要素
+     */
+    static class Rubric {
+        final String reference;          // 规范化后的标准答案
+        final int[] referenceBigrams;    // 标准答案的字符二元组（已排序）
+        final KeywordAutomaton keywords; // 评分关键词自动机，未设置关键词时为null
+
+        Rubric(String reference, String keywords) {
+            this.reference = GradingCacheService.normalizeAnswer(reference);
+            this.referenceBigrams = bigrams(this.reference);
+            this.keywords = compileKeywords(keywords);
+        }
+
+        /**
+         * 字符二元组的Dice系数（按多重集合计算），取值0~1
+         */
+        double similarity(String answer) {
+            int[] answerBigrams = bigrams(answer);
+            if (answerBigrams.length == 0 || referenceBigrams.length == 0) {
+                return 0;
+            }
+            int common = 0;
+            for (int i = 0, j = 0; i < answerBigrams.length && j < referenceBigrams.length; ) {
+                if (answerBigrams[i] == referenceBigrams[j]) {
+                    common++;
+                    i++;
+                    j++;
+                } else if (answerBigrams[i] < referenceBigrams[j]) {
+                    i++;
+                } else {
+                    j++;
+                }
+            }
+            return 2.0 * common / (answerBigrams.length + referenceBigrams.length);
+        }
+
+        /**
+         * 答案命中的关键词占全部关键词的比例，未设置关键词时为0
+         */
+        double keywordCoverage(String answer) {
+            if (keywords == null) {
+                return 0;
+            }
+            return (double) keywords.match(answer).cardinality() / keywords.size();
+        }
+
+        private static int[] bigrams(String text) {
+            if (text.length() < 2) {
+                return new int[0];
+            }
+            int[] bigrams = new int[text.length() - 1];
+            for (int i = 0; i < bigrams.length; i++) {
+                bigrams[i] = text.charAt(i) << 16 | text.charAt(i + 1);
+            }
+            Arrays.sort(bigrams);
+            return bigrams;
+        }
+
+        private static KeywordAutomaton compileKeywords(String keywords) {
+            if (keywords == null || keywords.isBlank()) {
+                return null;
+            }
+            List<String> list = new ArrayList<>();
+            for (String keyword : keywords.split("[,，;；、|\\s]+")) {
+                String normalized = GradingCacheService.normalizeAnswer(keyword);
+                if (!normalized.isEmpty() && !list.contains(normalized)) {
+                    list.add(normalized);
+                }
+            }
+            return list.isEmpty() ? null : new KeywordAutomaton(list);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.exam.service;
+
+import com.exam.dto.QuestionImportDto;
+import com.exam.dto.QuestionImportPreviewDto;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 题目导入任务服务接口
+ * 上传的文件或题目列表先保存到任务目录，立即返回任务ID；导入在后台线程池中流式解析、分段写入，
+ * 进度（已解析、已导入、失败数）和检查点记录在Redis中，节点重启后由本节点从检查点继续（任务目录为共享目录时也可由其他节点接管）；
+ * Excel预览的解析结果按预览令牌保存，确认导入时无需重新上传和解析文件
+ */
+public interface QuestionImportJobService {
+
+    String STATUS_QUEUED = "QUEUED";       // 排队中
+    String STATUS_RUNNING = "RUNNING";     // 执行中
+    String STATUS_COMPLETED = "COMPLETED"; // 已完成
+    String STATUS_FAILED = "FAILED";       // 失败（可续跑）
+
+    /**
+     * 提交Excel导入任务
+     * @param file Excel文件（.xlsx或.xls）
+     * @return 任务进度，包含任务ID
+     */
+    Map<String, Object> submitExcel(MultipartFile file);
+
+    /**
+     * 提交题目列表导入任务（AI生成或预览确认后的题目）
+     * @param questions 题目导入DTO列表
+     * @return 任务进度，包含任务ID
+     */
+    Map<String, Object> submitQuestions(List<QuestionImportDto> questions);
+
+    /**
+     * 保存Excel预览结果：校验通过的题目压缩后连同校验结果保存在Redis中，返回预览令牌
+     * 确认导入时只导入保存的题目，未通过校验的题目仅在预览结果中展示
+     * @param fileName 文件名
+     * @param questions 解析出的题目列表
+     * @param validQuestions 校验通过的题目列表
+     * @param errors 校验错误信息
+     * @return 预览结果；压缩后超过大小上限时不保存，令牌为空
+     */
+    QuestionImportPreviewDto savePreview(String fileName, List<QuestionImportDto> questions,
+                                         List<QuestionImportDto> validQuestions, List<String> errors);
+
+    /**
+     * 使用预览令牌提交导入任务，直接导入预览时已解析的题目（令牌使用后失效）
+     * @param token 预览令牌
+     * @return 任务进度，包含任务ID
+     */
+    Map<String, Object> submitPreview(String token);
+
+    /**
+     * 从检查点继续执行失败的导入任务
+     * @param jobId 任务ID
+     * @return 任务进度
+     */
+    Map<String, Object> resume(String jobId);
+
+    /**
+     * 查询导入任务进度
+     * @param jobId 任务ID
+     * @param includeFailures 是否包含失败题目明细
+     * @return 任务进度：状态、文件名、已解析数、已导入数、失败数、检查点，无任务时返回空Map
+     */
+    Map<String, Object> getProgress(String jobId, boolean includeFailures);
+
+    /**
+     * 调度排队中和执行中断的导入任务（执行节点宕机后任务锁过期），并清理已过期任务的文件
+     * @return 本次提交执行的任务数
+     */
+    int recoverJobs();
+}
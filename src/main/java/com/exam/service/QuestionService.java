@@ -3,6 +3,7 @@ package com.exam.service;
 import com.baomidou.mybatisplus.extension.service.IService;
 import com.exam.entity.Question;
 import com.exam.dto.QuestionImportDto;
+import com.exam.dto.QuestionImportResultDto;
 
 import java.util.List;
 
@@ -109,15 +110,15 @@ public interface QuestionService extends IService<Question> {
      * 随机获取题目 - 智能组卷的核心算法
      * 
      * 算法设计：
-     * 1. 构建候选题目池：根据分类和难度筛选
-     * 2. 随机选择：使用数据库RAND()或Java Random
-     * 3. 去重处理：确保选中的题目不重复
-     * 4. 数量控制：严格按照需求数量返回
+     * 1. 构建候选题目池：按分类和难度查询符合条件的题目ID（只查ID列），在本节点缓存一段时间
+     * 2. 随机选择：对ID数组做部分Fisher-Yates洗牌，只抽取需要的数量，不复制也不修改缓存的数组
+     * 3. 去重处理：洗牌抽样天然不重复
+     * 4. 数量控制：只加载被抽中的题目，选项和答案批量查询；抽中的题目已被删除时继续抽取补足
      * 
      * 性能优化：
-     * - 大数据集随机：使用TABLESAMPLE或分页随机
-     * - 缓存策略：热门组合可以缓存结果
-     * - 索引优化：在筛选字段上建立复合索引
+     * - 避免ORDER BY RAND()全表排序，抽样耗时只与抽取数量有关
+     * - 题目增删改后清空本节点的候选池，其他节点在缓存过期后刷新
+     * - 索引优化：在(category_id, difficulty, id)上建立复合索引，候选池加载只需扫描索引
      * 
      * 业务扩展：
      * - 智能权重：根据题目使用频率调整选择概率
@@ -173,6 +174,19 @@ public interface QuestionService extends IService<Question> {
      * @return 成功导入的题目数量
      */
     int batchImportQuestions(List<QuestionImportDto> questionImports);
+
+    /**
+     * 批量导入题目并返回导入报告
+     * 
+     * 导入流程：
+     * - 逐题校验必填字段和题型，不合格的题目直接记为失败
+     * - 合格的题目按分段（question.import.chunk-size）提交事务，题目、选项、答案分别多行INSERT
+     * - 某一段写入失败时回滚该段并逐题重试，定位失败的题目，其余题目照常导入
+     * 
+     * @param questionImports 题目导入DTO列表
+     * @return 导入报告，包含成功数量和失败题目明细
+     */
+    QuestionImportResultDto importQuestions(List<QuestionImportDto> questionImports);
     
     /**
      * 数据转换方法：将导入DTO转换为题目实体
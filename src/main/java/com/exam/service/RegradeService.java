@@ -0,0 +1,29 @@
+package com.exam.service;
+
+import java.util.Map;
+
+/**
+ * 整卷重判服务接口
+ * 标准答案修正后，对试卷下所有已批阅的考试记录重新判分；任务在后台执行，按页记录检查点，可中断后续跑
+ */
+public interface RegradeService {
+
+    String STATUS_RUNNING = "RUNNING";     // 执行中
+    String STATUS_COMPLETED = "COMPLETED"; // 已完成
+    String STATUS_FAILED = "FAILED";       // 失败（可续跑）
+
+    /**
+     * 启动整卷重判任务
+     * @param paperId 试卷ID
+     * @param resume 是否从上次未完成任务的检查点继续
+     * @return 任务进度
+     */
+    Map<String, Object> startRegrade(Integer paperId, boolean resume);
+
+    /**
+     * 查询整卷重判进度
+     * @param paperId 试卷ID
+     * @return 任务进度：状态、总数、已处理数、检查点、判卷失败的答案数，无任务时返回空Map
+     */
+    Map<String, Object> getRegradeProgress(Integer paperId);
+}
@@ -1,16 +1,13 @@
 package com.exam.service.impl;
 
-import com.exam.dto.ai.ChatRequest;
-import com.exam.dto.ai.ChatResponse;
 import com.exam.dto.ai.ChatMessage;
+import com.exam.dto.ai.LlmRequest;
+import com.exam.dto.ai.LlmResponse;
 import com.exam.service.AIService;
+import com.exam.service.LlmGateway;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 
 import java.util.List;
 
@@ -21,16 +18,7 @@ import java.util.List;
 public class AIServiceImpl implements AIService {
 
     @Autowired
-    private RestTemplate restTemplate; // 用于发送HTTP请求
-
-    @Value("${qwen.api.api-key}")
-    private String qwenApiKey; // 从配置文件读取千问API Key
-
-    @Value("${qwen.api.base-url}")
-    private String qwenBaseUrl; // 从配置文件读取千问API基础URL
-
-    @Value("${qwen.api.model}")
-    private String model; // 模型名称
+    private LlmGateway llmGateway; // 大模型网关，统一限流和重试
 
     @Value("${qwen.api.temperature}")
     private Double temperature; // 温度参数
@@ -46,27 +34,21 @@ public class AIServiceImpl implements AIService {
     @Override
     public String getChatCompletion(List<ChatMessage> messages) {
         try {
-            // 1. 构建请求头
-            HttpHeaders headers = new HttpHeaders(); // 创建HTTP头
-            headers.setContentType(MediaType.APPLICATION_JSON); // 设置内容类型为JSON
-            headers.setBearerAuth(qwenApiKey); // 设置认证头
-
-            // 2. 构建请求体
-            ChatRequest request = ChatRequest.builder()
-                    .model(model) // 指定使用的模型
+            // 1. 构建请求（对话属于交互类请求，优先派发）
+            LlmRequest request = LlmRequest.builder()
                     .messages(messages) // 设置消息列表
                     .temperature(temperature) // 设置温度参数
                     .maxTokens(maxTokens) // 设置最大token数
+                    .priority(LlmGateway.Priority.INTERACTIVE)
+                    .caller(LlmGateway.CALLER_CHAT)
                     .build();
 
-            // 3. 发送请求到聊天完成接口
-            String apiUrl = qwenBaseUrl + "/chat/completions"; // 构建完整的API URL
-            HttpEntity<ChatRequest> httpEntity = new HttpEntity<>(request, headers); // 创建HTTP实体
-            ChatResponse response = restTemplate.postForObject(apiUrl, httpEntity, ChatResponse.class); // 发送POST请求
+            // 2. 通过网关发送请求
+            LlmResponse response = llmGateway.chat(request).block();
 
-            // 4. 处理响应
-            if (response != null && response.getChoices() != null && !response.getChoices().isEmpty()) {
-                return response.getChoices().get(0).getMessage().getContent(); // 返回第一个选项的消息内容
+            // 3. 处理响应
+            if (response != null && response.getContent() != null) {
+                return response.getContent(); // 返回生成的消息内容
             }
 
             return "AI服务暂不可用，请稍后再试。"; // 返回默认错误信息
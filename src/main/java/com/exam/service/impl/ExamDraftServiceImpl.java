@@ -0,0 +1,200 @@
+package com.exam.service.impl;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.exam.common.CacheConstants;
+import com.exam.config.ExamSessionConfig;
+import com.exam.config.GradingConfig;
+import com.exam.dto.SubmitAnswerDto;
+import com.exam.entity.AnswerRecord;
+import com.exam.entity.ExamRecord;
+import com.exam.mapper.AnswerRecordMapper;
+import com.exam.mapper.ExamRecordMapper;
+import com.exam.service.ExamDraftService;
+import com.exam.utils.RedisUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.CollectionUtils;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 答题草稿服务实现类
+ * 草稿存储在Redis Hash中（field为题目ID，value为答案），同时在有序集合中记录最后保存时间，
+ * 供回写任务找出长时间未更新的草稿
+ */
+@Slf4j
+@Service
+public class ExamDraftServiceImpl implements ExamDraftService {
+
+    @Autowired
+    private RedisUtils redisUtils;
+    @Autowired
+    private AnswerRecordMapper answerRecordMapper;
+    @Autowired
+    private ExamRecordMapper examRecordMapper;
+    @Autowired
+    private ExamSessionConfig examSessionConfig;
+    @Autowired
+    private GradingConfig gradingConfig;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    @Override
+    public void saveDraft(Integer examRecordId, List<SubmitAnswerDto> answers) {
+        if (CollectionUtils.isEmpty(answers)) {
+            return;
+        }
+        Map<String, Object> changes = new HashMap<>();
+        answers.forEach(answer -> changes.put(String.valueOf(answer.getQuestionId()),
+            answer.getUserAnswer() != null ? answer.getUserAnswer() : ""));
+
+        String draftKey = CacheConstants.EXAM_DRAFT_KEY + examRecordId;
+        redisUtils.hSetAll(draftKey, changes);
+        redisUtils.expire(draftKey, examSessionConfig.getDraftTtlSeconds());
+        redisUtils.zAdd(CacheConstants.EXAM_DRAFT_INDEX_KEY, examRecordId, System.currentTimeMillis());
+    }
+
+    @Override
+    public Map<Integer, String> getDraft(Integer examRecordId) {
+        Map<Object, Object> entries = redisUtils.hGetAll(CacheConstants.EXAM_DRAFT_KEY + examRecordId);
+        Map<Integer, String> draft = new LinkedHashMap<>();
+        if (entries != null) {
+            entries.forEach((questionId, answer) ->
+                draft.put(Integer.valueOf(questionId.toString()), answer != null ? answer.toString() : ""));
+        }
+        return draft;
+    }
+
+    @Override
+    public List<SubmitAnswerDto> mergeWithDraft(Integer examRecordId, List<SubmitAnswerDto> answers) {
+        Map<Integer, SubmitAnswerDto> merged = new LinkedHashMap<>();
+        // 已回写到数据库的答案优先级最低：草稿过期或被清理后，定时回写过的答案不会丢失
+        answerRecordMapper.selectList(new QueryWrapper<AnswerRecord>()
+                .select("question_id", "user_answer")
+                .eq("exam_record_id", examRecordId))
+            .forEach(record -> {
+                SubmitAnswerDto dto = new SubmitAnswerDto();
+                dto.setQuestionId(record.getQuestionId());
+                dto.setUserAnswer(record.getUserAnswer());
+                merged.put(record.getQuestionId(), dto);
+            });
+        try {
+            getDraft(examRecordId).forEach((questionId, userAnswer) -> {
+                SubmitAnswerDto dto = new SubmitAnswerDto();
+                dto.setQuestionId(questionId);
+                dto.setUserAnswer(userAnswer);
+                merged.put(questionId, dto);
+            });
+        } catch (Exception e) {
+            // 草稿读取失败时仅使用提交的答案
+            log.warn("读取答题草稿失败，考试记录ID: {}, 错误: {}", examRecordId, e.getMessage());
+        }
+        if (answers != null) {
+            answers.forEach(answer -> merged.put(answer.getQuestionId(), answer));
+        }
+        return new ArrayList<>(merged.values());
+    }
+
+    @Override
+    public void clearDraft(Integer examRecordId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    doClearDraft(examRecordId);
+                }
+            });
+        } else {
+            doClearDraft(examRecordId);
+        }
+    }
+
+    private void doClearDraft(Integer examRecordId) {
+        try {
+            redisUtils.delete(CacheConstants.EXAM_DRAFT_KEY + examRecordId);
+            redisUtils.zRemove(CacheConstants.EXAM_DRAFT_INDEX_KEY, examRecordId);
+        } catch (Exception e) {
+            // 草稿会按过期时间自动清理
+            log.warn("删除答题草稿失败，考试记录ID: {}, 错误: {}", examRecordId, e.getMessage());
+        }
+    }
+
+    @Override
+    public int flushDraft(Integer examRecordId) {
+        Map<Integer, String> draft = getDraft(examRecordId);
+        if (draft.isEmpty()) {
+            return 0;
+        }
+        List<AnswerRecord> records = new ArrayList<>(draft.size());
+        draft.forEach((questionId, userAnswer) -> records.add(new AnswerRecord(examRecordId, questionId, userAnswer)));
+
+        Boolean written = transactionTemplate.execute(status -> {
+            // 锁定考试记录后重新检查状态：与交卷的条件更新互斥，交卷后不会再用旧草稿覆盖已提交的答案
+            ExamRecord examRecord = examRecordMapper.selectOne(new QueryWrapper<ExamRecord>()
+                .select("id", "status").eq("id", examRecordId).last("FOR UPDATE"));
+            if (examRecord == null || !"进行中".equals(examRecord.getStatus())) {
+                return false;
+            }
+            // 只覆盖草稿中的题目：草稿过期后重新保存的部分答案不会覆盖更早回写过的其他题目
+            answerRecordMapper.delete(new QueryWrapper<AnswerRecord>()
+                .eq("exam_record_id", examRecordId)
+                .in("question_id", draft.keySet()));
+            GradingSupport.forEachChunk(records, gradingConfig.getAnswerBatchSize(), answerRecordMapper::insertBatch);
+            return true;
+        });
+        if (!Boolean.TRUE.equals(written)) {
+            log.info("考试已交卷，跳过答题草稿回写，考试记录ID: {}", examRecordId);
+            return 0;
+        }
+        log.info("答题草稿已回写，考试记录ID: {}, 答案数: {}", examRecordId, records.size());
+        return records.size();
+    }
+
+    @Override
+    public int flushIdleDrafts() {
+        long idleBefore = System.currentTimeMillis() - examSessionConfig.getDraftIdleFlushSeconds() * 1000;
+        Set<Object> idleIds = redisUtils.zRangeByScore(CacheConstants.EXAM_DRAFT_INDEX_KEY, 0, idleBefore);
+        if (idleIds == null || idleIds.isEmpty()) {
+            return 0;
+        }
+
+        int flushed = 0;
+        for (Object id : idleIds) {
+            if (flushed >= examSessionConfig.getDraftFlushBatchSize()) {
+                break;
+            }
+            // ZREM成功的节点才处理该草稿，多节点下不会重复回写
+            Long removed = redisUtils.zRemove(CacheConstants.EXAM_DRAFT_INDEX_KEY, id);
+            if (removed == null || removed == 0) {
+                continue;
+            }
+            Integer examRecordId = Integer.valueOf(id.toString());
+            try {
+                ExamRecord examRecord = examRecordMapper.selectById(examRecordId);
+                if (examRecord == null || !"进行中".equals(examRecord.getStatus())) {
+                    // 已交卷或记录不存在，草稿无需回写
+                    doClearDraft(examRecordId);
+                    continue;
+                }
+                // 这里的状态检查只用于提前跳过，回写事务中会锁定记录再次检查
+                if (flushDraft(examRecordId) > 0) {
+                    flushed++;
+                }
+            } catch (Exception e) {
+                log.error("回写答题草稿失败，考试记录ID: {}, 错误: {}", examRecordId, e.getMessage());
+                // 放回索引，下次任务重试
+                redisUtils.zAdd(CacheConstants.EXAM_DRAFT_INDEX_KEY, examRecordId, System.currentTimeMillis());
+            }
+        }
+        return flushed;
+    }
+}
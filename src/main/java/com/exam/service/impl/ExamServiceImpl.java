@@ -2,7 +2,9 @@ package com.exam.service.impl;
 
 import com.alibaba.fastjson.JSON;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.baomidou.mybatisplus.core.conditions.update.UpdateWrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
+import com.exam.config.GradingConfig;
 import com.exam.dto.SubmitAnswerDto;
 import com.exam.dto.ai.ChatMessage;
 import com.exam.entity.*;
@@ -11,20 +13,33 @@ import com.exam.mapper.ExamRecordMapper;
 import com.exam.mapper.QuestionAnswerMapper;
 import com.exam.mapper.QuestionMapper;
 import com.exam.service.AIService;
+import com.exam.service.AnswerKeyService;
+import com.exam.service.ExamDraftService;
 import com.exam.service.ExamService;
+import com.exam.service.ExamSessionService;
+import com.exam.service.ExamSummaryService;
+import com.exam.service.GradingQueueService;
 import com.exam.service.PaperService;
 import com.exam.service.KimiGradingService;
+import com.exam.service.LearningSuggestionService;
+import com.exam.service.LlmGateway;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 /**
@@ -46,33 +61,79 @@ public class ExamServiceImpl extends ServiceImpl<ExamRecordMapper, ExamRecord> i
     private AIService aiService;
     @Autowired
     private KimiGradingService kimiGradingService;
+    @Autowired
+    private ExamSummaryService examSummaryService;
+    @Autowired
+    private LearningSuggestionService learningSuggestionService;
+    @Autowired
+    private GradingQueueService gradingQueueService;
+    @Autowired
+    private AnswerKeyService answerKeyService;
+    @Autowired
+    private ExamDraftService examDraftService;
+    @Autowired
+    private ExamSessionService examSessionService;
+    @Autowired
+    private GradingConfig gradingConfig;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    @Qualifier("gradingExecutor")
+    private Executor gradingExecutor;
 
     /**
      * 开始一场考试
+     * 不在整个方法上开启事务：等待其他请求创建会话时会轮询Redis，不能占用数据库连接，只有插入考试记录时才开启事务
      */
     @Override
-    @Transactional
     public ExamRecord startExam(Integer paperId, String studentName, Integer userId) {
-        // 1. 检查是否已存在未完成的考试记录
-        QueryWrapper<ExamRecord> wrapper = new QueryWrapper<>();
-        wrapper.eq("exam_id", paperId)
-               .eq("student_name", studentName)
-               .eq("status", "进行中"); // 状态: 进行中
-        ExamRecord existingRecord = this.getOne(wrapper);
-        if (existingRecord != null) {
-            return existingRecord; // 如果有，直接返回
+        // 1. 优先从Redis恢复进行中的考试（O(1)，不查询数据库）
+        ExamRecord activeRecord = examSessionService.getActiveSession(paperId, studentName);
+        if (activeRecord != null) {
+            return activeRecord;
         }
 
-        // 2. 创建新的考试记录
-        ExamRecord examRecord = new ExamRecord();
-        examRecord.setExamId(paperId); // 设置试卷ID
-        examRecord.setStudentName(studentName); // 设置考生姓名
-        examRecord.setStartTime(LocalDateTime.now());
-        examRecord.setStatus("进行中"); // 进行中
-        examRecord.setScore(0); // 初始分数为0
-        examRecord.setWindowSwitches(0); // 初始窗口切换次数为0
-        this.save(examRecord);
-        return examRecord;
+        // 2. 抢占创建权，并发开考时只有一个请求创建考试记录，其余请求等待会话创建完成
+        if (!examSessionService.tryLockCreation(paperId, studentName)) {
+            activeRecord = examSessionService.awaitActiveSession(paperId, studentName);
+            if (activeRecord == null) {
+                throw new RuntimeException("考试正在创建中，请稍后重试");
+            }
+            return activeRecord;
+        }
+
+        try {
+            Paper paper = paperService.getById(paperId);
+            Integer duration = paper != null ? paper.getDuration() : null;
+
+            // 3. 会话过期等情况下数据库中可能仍有未完成的考试记录，恢复该记录的会话
+            QueryWrapper<ExamRecord> wrapper = new QueryWrapper<>();
+            wrapper.eq("exam_id", paperId)
+                   .eq("student_name", studentName)
+                   .eq("status", "进行中"); // 状态: 进行中
+            ExamRecord existingRecord = this.getOne(wrapper, false);
+            if (existingRecord != null) {
+                examSessionService.openSession(existingRecord, duration);
+                return existingRecord; // 如果有，直接返回
+            }
+
+            // 4. 创建新的考试记录
+            ExamRecord examRecord = new ExamRecord();
+            examRecord.setExamId(paperId); // 设置试卷ID
+            examRecord.setStudentName(studentName); // 设置考生姓名
+            examRecord.setStartTime(LocalDateTime.now());
+            examRecord.setStatus("进行中"); // 进行中
+            examRecord.setScore(0); // 初始分数为0
+            examRecord.setWindowSwitches(0); // 初始窗口切换次数为0
+            transactionTemplate.executeWithoutResult(status -> {
+                this.save(examRecord);
+                examSessionService.openSession(examRecord, duration); // 事务提交后写入会话
+            });
+            return examRecord;
+        } catch (RuntimeException e) {
+            examSessionService.releaseCreationLock(paperId, studentName);
+            throw e;
+        }
     }
 
     /**
@@ -81,39 +142,62 @@ public class ExamServiceImpl extends ServiceImpl<ExamRecordMapper, ExamRecord> i
     @Override
     @Transactional
     public void submitAnswers(Integer examRecordId, List<SubmitAnswerDto> answers) {
-        // 1. 查找考试记录
-        ExamRecord examRecord = this.getById(examRecordId);
-        if (examRecord == null || !"进行中".equals(examRecord.getStatus())) {
+        if (!doSubmit(examRecordId, answers)) {
             throw new RuntimeException("考试记录不存在或已完成");
         }
+        log.info("试卷提交完成，已加入判卷队列，考试记录ID: {}", examRecordId);
+    }
 
-        // 2. 保存每一条答案
-        answers.forEach(answerDto -> {
-            AnswerRecord answerRecord = new AnswerRecord(examRecordId, answerDto.getQuestionId(), answerDto.getUserAnswer());
-            answerRecordMapper.insert(answerRecord);
-        });
+    /**
+     * 到期自动交卷
+     */
+    @Override
+    @Transactional
+    public boolean autoSubmit(Integer examRecordId) {
+        if (!doSubmit(examRecordId, Collections.emptyList())) { // 答案全部来自草稿和已回写的答题记录
+            examSessionService.closeSession(examRecordId);
+            return false;
+        }
+        log.info("考试已到截止时间，自动交卷，考试记录ID: {}", examRecordId);
+        return true;
+    }
 
-        // 3. 更新考试记录状态为"已完成"
-        examRecord.setEndTime(LocalDateTime.now());
-        examRecord.setStatus("已完成"); // 已完成
-        this.updateById(examRecord);
-        
-        // 4. 自动调用AI判卷
-        log.info("试卷提交完成，开始自动AI智能判卷，考试记录ID: {}", examRecordId);
-        try {
-            this.gradeExam(examRecordId);
-            log.info("自动AI判卷完成，考试记录ID: {}", examRecordId);
-        } catch (Exception e) {
-            log.error("自动AI判卷失败，考试记录ID: {}, 错误: {}", examRecordId, e.getMessage());
-            // 判卷失败不影响提交，但记录错误
+    /**
+     * 交卷（在调用方的事务中执行）
+     * @return 考试记录不存在或已不是"进行中"时返回false
+     */
+    private boolean doSubmit(Integer examRecordId, List<SubmitAnswerDto> answers) {
+        // 1. 原子抢占：条件更新把状态从"进行中"改为"已完成"，学生交卷与到期自动交卷并发时只有一方继续执行
+        boolean claimed = this.update(new UpdateWrapper<ExamRecord>()
+            .set("status", "已完成")
+            .set("end_time", LocalDateTime.now())
+            .eq("id", examRecordId)
+            .eq("status", "进行中"));
+        if (!claimed) {
+            return false;
         }
+
+        // 2. 合并自动保存的草稿（提交的答案优先），覆盖定时回写过的答题记录后批量保存整份答卷
+        List<SubmitAnswerDto> finalAnswers = examDraftService.mergeWithDraft(examRecordId, answers);
+        answerRecordMapper.delete(new QueryWrapper<AnswerRecord>().eq("exam_record_id", examRecordId));
+        List<AnswerRecord> answerRecords = finalAnswers.stream()
+            .map(answerDto -> new AnswerRecord(examRecordId, answerDto.getQuestionId(), answerDto.getUserAnswer()))
+            .collect(Collectors.toList());
+        GradingSupport.forEachChunk(answerRecords, gradingConfig.getAnswerBatchSize(), answerRecordMapper::insertBatch);
+
+        examDraftService.clearDraft(examRecordId); // 事务提交后删除草稿
+        examSessionService.closeSession(examRecordId); // 事务提交后关闭考试会话
+        
+        // 3. 加入判卷队列，由判卷工作线程异步完成AI判卷（事务提交后入队）
+        gradingQueueService.enqueue(examRecordId);
+        return true;
     }
 
     /**
      * 批阅试卷（使用Kimi AI智能判卷）
+     * 读取答卷和AI判分在事务之外完成，只有回写判卷结果时才开启写事务，避免等待大模型期间占用数据库连接和事务
      */
     @Override
-    @Transactional
     public ExamRecord gradeExam(Integer examRecordId) {
         log.info("开始AI智能判卷，考试记录ID: {}", examRecordId);
         
@@ -134,120 +218,165 @@ public class ExamServiceImpl extends ServiceImpl<ExamRecordMapper, ExamRecord> i
             log.warn("考试记录ID: {} 没有找到答案记录", examRecordId);
             examRecord.setScore(0);
             examRecord.setStatus("已批阅");
-            this.updateById(examRecord);
+            transactionTemplate.executeWithoutResult(status -> {
+                this.updateById(examRecord);
+                learningSuggestionService.onRecordGraded(examRecord.getStudentName());
+            });
             return examRecord;
         }
 
-        // 2. 获取试卷中的所有题目及其分值
-        Paper paper = paperService.getPaperWithQuestions(examRecord.getExamId());
-        if (paper == null || paper.getQuestions() == null) {
+        // 2. 获取试卷的编译答案（试卷发布时已预编译并缓存，无需重新加载整份试卷）
+        AnswerKeyService.AnswerKey answerKey = answerKeyService.getAnswerKey(examRecord.getExamId());
+        if (answerKey == null) {
             throw new RuntimeException("试卷信息不完整");
         }
+
+        // 3. 客观题基于编译答案直接判分；主观题并发提交给AI判卷线程池，整场考试只等待约一次大模型调用
+        GradingOutcome outcome = gradeAnswers(answerRecords, answerKey);
+        int totalScore = outcome.totalScore;
+        int correctCount = outcome.correctCount;
+
+        if (outcome.pendingCount > 0) {
+            // AI服务熔断中：客观题结果先保存，考试记录保持"已完成"，事务提交后延迟重新入队判卷
+            transactionTemplate.executeWithoutResult(status -> {
+                GradingSupport.forEachChunk(outcome.gradedRecords, gradingConfig.getAnswerBatchSize(), answerRecordMapper::updateGradingBatch);
+                gradingQueueService.defer(examRecordId);
+            });
+            log.warn("AI服务熔断中，{}道主观题等待AI判卷，考试记录ID: {}", outcome.pendingCount, examRecordId);
+            return examRecord;
+        }
+
+        // 4. 考试总评：同一成绩区间的AI点评已缓存时直接使用，否则先写入默认总评，事务提交后在后台生成并回写
+        //    使用实际答题记录数量而不是试卷配置数量
+        String examSummary = examSummaryService.getInitialSummary(
+            totalScore, answerKey.getTotalScore(), answerRecords.size(), correctCount);
+        
+        // 5. 在一个写事务中批量回写判卷结果（按批次CASE更新，避免逐条UPDATE）并更新考试记录
+        examRecord.setScore(totalScore);
+        examRecord.setStatus("已批阅");
+        examRecord.setAnswers(examSummary); // 将总评存储在answers字段中
+        transactionTemplate.executeWithoutResult(status -> {
+            GradingSupport.forEachChunk(outcome.gradedRecords, gradingConfig.getAnswerBatchSize(), answerRecordMapper::updateGradingBatch);
+            this.updateById(examRecord);
+            examSummaryService.generateInBackground(examRecordId,
+                totalScore, answerKey.getTotalScore(), answerRecords.size(), correctCount);
+            learningSuggestionService.onRecordGraded(examRecord.getStudentName());
+        });
         
-        Map<Long, Question> questionMap = new java.util.HashMap<>();
-        paper.getQuestions().forEach(q -> questionMap.put(q.getId(), q));
-        //Map<Long, Question> questionMapNew = paper.getQuestions().stream().collect(Collectors.toMap(Question::getId, q -> q));
+        log.info("AI智能判卷完成，考试记录ID: {}, 总分: {}/{}", 
+            examRecordId, totalScore, answerKey.getTotalScore());
+
+        return examRecord;
+    }
 
-        Integer totalScore = 0;
-        Integer correctCount = 0;
+    /**
+     * 判分（不访问数据库）：客观题与编译答案比较，主观题并发提交AI判卷并等待结果
+     * @param answerRecords 答题记录，判分结果直接写入记录
+     * @param answerKey 编译答案
+     * @return 判分结果
+     */
+    GradingOutcome gradeAnswers(List<AnswerRecord> answerRecords, AnswerKeyService.AnswerKey answerKey) {
+        int totalScore = 0;
+        int correctCount = 0;
+        int pendingCount = 0;
         
         log.info("开始逐题判卷，共{}道题", answerRecords.size());
 
-        // 3. 使用AI判卷（简答题）或直接判卷（客观题）
+        List<AnswerRecord> gradedRecords = new ArrayList<>(answerRecords.size());
+        List<AnswerRecord> textRecords = new ArrayList<>();
+        List<KimiGradingService.GradingItem> textItems = new ArrayList<>();
         for (AnswerRecord record : answerRecords) {
-            Question question = questionMap.get(record.getQuestionId().longValue());
-            if (question == null) {
+            int index = answerKey.indexOf(record.getQuestionId());
+            if (index < 0) {
                 log.warn("题目ID: {} 在试卷中不存在，跳过", record.getQuestionId());
                 continue;
             }
+            gradedRecords.add(record);
 
             // 获取题目满分
-            Integer maxScore = question.getPaperScore() != null ? 
-                question.getPaperScore().intValue() : 10;
-            
+            int maxScore = answerKey.getMaxScore(index);
+            byte type = answerKey.getType(index);
+
+            if (type == AnswerKeyService.AnswerKey.TYPE_CHOICE || type == AnswerKeyService.AnswerKey.TYPE_JUDGE) {
+                // 客观题：与编译后的标准答案比较
+                if (GradingSupport.applyObjectiveResult(record, answerKey, index)) {
+                    correctCount++;
+                }
+                totalScore += record.getScore();
+                log.debug("客观题判卷完成，题目ID: {}, 用户答案: {}, 标准答案: {}, 得分: {}/{}",
+                    record.getQuestionId(), record.getUserAnswer(), answerKey.getRawAnswer(index), record.getScore(), maxScore);
+            } else if (type == AnswerKeyService.AnswerKey.TYPE_TEXT) {
+                // 主观题：收集后打包提交到有界线程池，稍后统一合并结果
+                textRecords.add(record);
+                textItems.add(new KimiGradingService.GradingItem(
+                    answerKey.getTextQuestion(index), record.getUserAnswer(), maxScore));
+            }
+        }
+
+        // 等待所有主观题AI判卷完成并合并得分：整份答卷共用一个截止时间，最坏情况只等待一次AI判卷超时
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(gradingConfig.getAiTimeoutSeconds());
+        List<CompletableFuture<KimiGradingService.GradingResult>> textFutures = new ArrayList<>();
+        if (!textRecords.isEmpty()) {
+            log.info("并发AI判卷主观题{}道，每包{}道，并发上限: {}", textRecords.size(),
+                gradingConfig.getBatchGradingSize(), gradingConfig.getAiConcurrency());
+            try {
+                // 截止时间同时传给大模型请求：到期后请求被取消，判卷线程不会继续阻塞
+                textFutures = kimiGradingService.gradeQuestionsAsync(textItems, LlmGateway.Priority.INTERACTIVE,
+                    gradingExecutor, deadline);
+            } catch (Exception e) {
+                log.error("提交AI判卷失败，错误: {}", e.getMessage());
+                textRecords.forEach(GradingSupport::markGradingFailed);
+                textRecords.clear();
+            }
+        }
+        for (int i = 0; i < textRecords.size(); i++) {
+            AnswerRecord record = textRecords.get(i);
+            CompletableFuture<KimiGradingService.GradingResult> future = textFutures.get(i);
+            int maxScore = answerKey.getMaxScore(answerKey.indexOf(record.getQuestionId()));
             try {
-                if ("CHOICE".equals(question.getType()) || "JUDGE".equals(question.getType())) {
-                    // 客观题：直接对比标准答案
-                    String userAnswer = record.getUserAnswer() != null ? record.getUserAnswer().trim() : "";
-                    String standardAnswer = question.getAnswer() != null ? question.getAnswer().getAnswer().trim() : "";
-                    
-                    // 对于判断题，需要处理T/F与TRUE/FALSE的映射
-                    if ("JUDGE".equals(question.getType())) {
-                        // 统一转换为TRUE/FALSE格式进行比较
-                        userAnswer = normalizeJudgeAnswer(userAnswer);
-                        standardAnswer = normalizeJudgeAnswer(standardAnswer);
-                    }
-                    
-                    if (userAnswer.equals(standardAnswer)) {
-                        // 答案完全正确
-                        record.setScore(maxScore);
-                        record.setIsCorrect(1); // 完全正确
-                        // 选择题和判断题不设置AI评语
-                        record.setAiCorrection(null);
-                        correctCount++;
-                    } else {
-                        // 答案错误
-                        record.setScore(0);
-                        record.setIsCorrect(0); // 错误
-                        // 选择题和判断题不设置AI评语
-                        record.setAiCorrection(null);
-                    }
-                    
-                    log.info("客观题判卷完成，题目ID: {}, 用户答案: {}, 标准答案: {}, 得分: {}/{}",
-                        question.getId(), record.getUserAnswer(), question.getAnswer().getAnswer(), record.getScore(), maxScore);
-                        
-                } else if ("TEXT".equals(question.getType())) {
-                    // 主观题：使用Kimi AI进行智能判卷
-                    KimiGradingService.GradingResult gradingResult = 
-                        kimiGradingService.gradeQuestion(question, record.getUserAnswer(), maxScore);
-                    
-                    // 更新答案记录
-                    record.setScore(gradingResult.getScore());
-                    record.setAiCorrection(gradingResult.getFeedback());
-                    
-                    // 设置正确性标记
-                    if (gradingResult.getScore().equals(maxScore)) {
-                        record.setIsCorrect(1); // 完全正确
-                        correctCount++;
-                    } else if (gradingResult.getScore() > 0) {
-                        record.setIsCorrect(2); // 部分正确
-                    } else {
-                        record.setIsCorrect(0); // 错误
-                    }
-                    
-                    log.info("主观题AI判卷完成，题目ID: {}, 得分: {}/{}", 
-                    question.getId(), gradingResult.getScore(), maxScore);
+                KimiGradingService.GradingResult gradingResult =
+                    future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+                if (gradingResult.isPendingAi()) {
+                    GradingSupport.markPendingAi(record, gradingResult);
+                    pendingCount++;
+                    continue;
+                }
+                if (GradingSupport.applyTextResult(record, gradingResult, maxScore)) {
+                    correctCount++;
                 }
-                
                 totalScore += record.getScore();
-                
+
+                log.info("主观题判卷完成，题目ID: {}, 得分: {}/{}, 判卷路径: {}",
+                    record.getQuestionId(), gradingResult.getScore(), maxScore, gradingResult.getSource());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                log.error("判卷被中断，题目ID: {}", record.getQuestionId());
+                GradingSupport.markGradingFailed(record);
             } catch (Exception e) {
-                log.error("判卷失败，题目ID: {}, 错误: {}", question.getId(), e.getMessage());
-                // 判卷失败时给0分
-                record.setScore(0);
-                record.setIsCorrect(0);
-                record.setAiCorrection("系统判卷失败，请联系管理员");
+                log.error("判卷失败，题目ID: {}, 错误: {}", record.getQuestionId(), e.getMessage());
+                future.cancel(true);
+                GradingSupport.markGradingFailed(record);
             }
-            
-            // 更新答案记录
-            answerRecordMapper.updateById(record);
         }
 
-        // 4. 生成考试总评，使用实际答题数量
-        String examSummary = kimiGradingService.generateExamSummary(
-            totalScore, paper.getTotalScore().intValue(), 
-            answerRecords.size(), correctCount); // 使用实际答题记录数量而不是试卷配置数量
-        
-        // 5. 更新考试记录
-        examRecord.setScore(totalScore);
-        examRecord.setStatus("已批阅");
-        examRecord.setAnswers(examSummary); // 将AI总评存储在answers字段中
-        this.updateById(examRecord);
-        
-        log.info("AI智能判卷完成，考试记录ID: {}, 总分: {}/{}", 
-            examRecordId, totalScore, paper.getTotalScore());
+        return new GradingOutcome(gradedRecords, totalScore, correctCount, pendingCount);
+    }
 
-        return examRecord;
+    /**
+     * 一份答卷的判分结果
+     */
+    static class GradingOutcome {
+        final List<AnswerRecord> gradedRecords; // 试卷中存在的题目对应的答题记录
+        final int totalScore;
+        final int correctCount;
+        final int pendingCount; // 因AI服务熔断而等待判卷的主观题数
+
+        GradingOutcome(List<AnswerRecord> gradedRecords, int totalScore, int correctCount, int pendingCount) {
+            this.gradedRecords = gradedRecords;
+            this.totalScore = totalScore;
+            this.correctCount = correctCount;
+            this.pendingCount = pendingCount;
+        }
     }
 
     /**
@@ -287,7 +416,7 @@ public class ExamServiceImpl extends ServiceImpl<ExamRecordMapper, ExamRecord> i
      * @param answer 原始答案
      * @return 标准化后的答案
      */
-    private String normalizeJudgeAnswer(String answer) {
+    static String normalizeJudgeAnswer(String answer) {
         if (answer == null || answer.trim().isEmpty()) {
             return "";
         }
@@ -0,0 +1,249 @@
+package com.exam.service.impl;
+
+import com.exam.common.CacheConstants;
+import com.exam.config.ExamSessionConfig;
+import com.exam.entity.ExamRecord;
+import com.exam.mapper.ExamRecordMapper;
+import com.exam.service.ExamSessionService;
+import com.exam.utils.RedisUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 考试会话服务实现类
+ * 索引key（试卷ID:考生 -> 考试记录ID）用于恢复考试；会话Hash保存开始时间、截止时间、心跳时间和窗口切换次数。
+ * 创建考试记录前先以占位值（0）SET NX索引key，保证并发开考时只创建一条"进行中"记录。
+ * 限时考试的截止时间（加自动交卷宽限时间）登记在ZSet中，由定时任务按分数取出到期记录自动交卷，无需轮询数据库
+ */
+@Slf4j
+@Service
+public class ExamSessionServiceImpl implements ExamSessionService {
+
+    private static final Integer CREATING = 0; // 索引key占位值：考试记录正在创建
+
+    @Autowired
+    private RedisUtils redisUtils;
+    @Autowired
+    private ExamSessionConfig examSessionConfig;
+    @Autowired
+    private ExamRecordMapper examRecordMapper;
+
+    @Override
+    public ExamRecord getActiveSession(Integer paperId, String studentName) {
+        Object examRecordId = redisUtils.get(activeKey(paperId, studentName));
+        if (examRecordId == null || CREATING.equals(examRecordId)) {
+            return null;
+        }
+        Map<Object, Object> session = redisUtils.hGetAll(CacheConstants.EXAM_SESSION_KEY + examRecordId);
+        if (session == null || session.isEmpty()) {
+            // 会话已过期但索引仍在，清理索引后按未开考处理
+            redisUtils.delete(activeKey(paperId, studentName));
+            return null;
+        }
+        return toExamRecord(session);
+    }
+
+    @Override
+    public boolean tryLockCreation(Integer paperId, String studentName) {
+        return Boolean.TRUE.equals(redisUtils.setIfAbsent(activeKey(paperId, studentName), CREATING,
+            examSessionConfig.getSessionCreateLockSeconds()));
+    }
+
+    @Override
+    public void releaseCreationLock(Integer paperId, String studentName) {
+        String activeKey = activeKey(paperId, studentName);
+        if (CREATING.equals(redisUtils.get(activeKey))) {
+            redisUtils.delete(activeKey);
+        }
+    }
+
+    @Override
+    public ExamRecord awaitActiveSession(Integer paperId, String studentName) {
+        long waitUntil = System.currentTimeMillis() + examSessionConfig.getSessionCreateWaitMs();
+        while (System.currentTimeMillis() < waitUntil) {
+            ExamRecord examRecord = getActiveSession(paperId, studentName);
+            if (examRecord != null) {
+                return examRecord;
+            }
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public void openSession(ExamRecord examRecord, Integer durationMinutes) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status == STATUS_COMMITTED) {
+                        doOpenSession(examRecord, durationMinutes);
+                    } else {
+                        releaseCreationLock(examRecord.getExamId(), examRecord.getStudentName());
+                    }
+                }
+            });
+        } else {
+            doOpenSession(examRecord, durationMinutes);
+        }
+    }
+
+    private void doOpenSession(ExamRecord examRecord, Integer durationMinutes) {
+        long startTime = toEpochMilli(examRecord.getStartTime());
+        long deadline = durationMinutes != null && durationMinutes > 0 ? startTime + durationMinutes * 60_000L : 0L;
+        long ttlSeconds = deadline > 0
+            ? Math.max(1, (deadline - System.currentTimeMillis()) / 1000) + examSessionConfig.getSessionGraceSeconds()
+            : examSessionConfig.getSessionNoLimitTtlSeconds();
+
+        Map<String, Object> session = new HashMap<>();
+        session.put("examRecordId", examRecord.getId());
+        session.put("paperId", examRecord.getExamId());
+        session.put("studentName", examRecord.getStudentName());
+        session.put("startTime", startTime);
+        session.put("deadline", deadline);
+        session.put("lastHeartbeat", System.currentTimeMillis());
+        session.put("windowSwitches", examRecord.getWindowSwitches() != null ? examRecord.getWindowSwitches() : 0);
+
+        String sessionKey = CacheConstants.EXAM_SESSION_KEY + examRecord.getId();
+        redisUtils.hSetAll(sessionKey, session);
+        redisUtils.expire(sessionKey, ttlSeconds);
+        redisUtils.set(activeKey(examRecord.getExamId(), examRecord.getStudentName()), examRecord.getId(), ttlSeconds);
+        if (deadline > 0) {
+            // 自动交卷在截止时间加宽限时间后执行，给临近截止时学生自己的交卷请求留出时间
+            redisUtils.zAdd(CacheConstants.EXAM_DEADLINE_KEY, examRecord.getId(),
+                deadline + examSessionConfig.getAutoSubmitGraceSeconds() * 1000);
+        }
+        log.info("考试会话已创建，考试记录ID: {}, 截止时间: {}", examRecord.getId(), deadline > 0 ? Instant.ofEpochMilli(deadline) : "不限时");
+    }
+
+    @Override
+    public Map<String, Object> heartbeat(Integer examRecordId) {
+        String sessionKey = CacheConstants.EXAM_SESSION_KEY + examRecordId;
+        if (!Boolean.TRUE.equals(redisUtils.hasKey(sessionKey))) {
+            throw new RuntimeException("考试会话不存在或已结束");
+        }
+        redisUtils.hSet(sessionKey, "lastHeartbeat", System.currentTimeMillis());
+        return getSessionState(examRecordId);
+    }
+
+    @Override
+    public Map<String, Object> getSessionState(Integer examRecordId) {
+        Map<Object, Object> session = redisUtils.hGetAll(CacheConstants.EXAM_SESSION_KEY + examRecordId);
+        if (session == null || session.isEmpty()) {
+            throw new RuntimeException("考试会话不存在或已结束");
+        }
+        long now = System.currentTimeMillis();
+        long deadline = asLong(session.get("deadline"));
+
+        Map<String, Object> state = new HashMap<>();
+        state.put("examRecordId", examRecordId);
+        state.put("paperId", session.get("paperId"));
+        state.put("startTime", asLong(session.get("startTime")));
+        state.put("deadline", deadline);
+        state.put("lastHeartbeat", asLong(session.get("lastHeartbeat")));
+        state.put("serverTime", now);
+        state.put("remainingSeconds", deadline > 0 ? Math.max(0, (deadline - now) / 1000) : -1);
+        state.put("expired", deadline > 0 && now >= deadline);
+        return state;
+    }
+
+    @Override
+    public List<Integer> pollExpiredSessions(int limit) {
+        Set<Object> expiredIds = redisUtils.zRangeByScore(CacheConstants.EXAM_DEADLINE_KEY,
+            0, System.currentTimeMillis(), 0, limit);
+        List<Integer> claimed = new ArrayList<>();
+        if (expiredIds == null) {
+            return claimed;
+        }
+        for (Object id : expiredIds) {
+            Long removed = redisUtils.zRemove(CacheConstants.EXAM_DEADLINE_KEY, id);
+            if (removed != null && removed > 0) {
+                claimed.add(Integer.valueOf(id.toString()));
+            }
+        }
+        return claimed;
+    }
+
+    @Override
+    public void rescheduleDeadline(Integer examRecordId, long delaySeconds) {
+        redisUtils.zAdd(CacheConstants.EXAM_DEADLINE_KEY, examRecordId, System.currentTimeMillis() + delaySeconds * 1000);
+    }
+
+    @Override
+    public void closeSession(Integer examRecordId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    doCloseSession(examRecordId);
+                }
+            });
+        } else {
+            doCloseSession(examRecordId);
+        }
+    }
+
+    private void doCloseSession(Integer examRecordId) {
+        try {
+            String sessionKey = CacheConstants.EXAM_SESSION_KEY + examRecordId;
+            Map<Object, Object> session = redisUtils.hGetAll(sessionKey);
+            if (session != null && !session.isEmpty()) {
+                redisUtils.delete(activeKey((Integer) session.get("paperId"), (String) session.get("studentName")));
+            }
+            redisUtils.delete(sessionKey);
+            redisUtils.zRemove(CacheConstants.EXAM_DEADLINE_KEY, examRecordId);
+        } catch (Exception e) {
+            // 会话会按过期时间自动清理
+            log.warn("关闭考试会话失败，考试记录ID: {}, 错误: {}", examRecordId, e.getMessage());
+        }
+    }
+
+    private ExamRecord toExamRecord(Map<Object, Object> session) {
+        ExamRecord examRecord = new ExamRecord();
+        examRecord.setId((Integer) session.get("examRecordId"));
+        examRecord.setExamId((Integer) session.get("paperId"));
+        examRecord.setStudentName((String) session.get("studentName"));
+        examRecord.setStartTime(LocalDateTime.ofInstant(
+            Instant.ofEpochMilli(asLong(session.get("startTime"))), ZoneId.systemDefault()));
+        examRecord.setStatus("进行中");
+        examRecord.setScore(0);
+        Object windowSwitches = session.get("windowSwitches");
+        if (windowSwitches instanceof Number number) {
+            examRecord.setWindowSwitches(number.intValue());
+        } else {
+            // 未记录窗口切换次数的会话（如升级前创建的会话）回退读取数据库
+            ExamRecord stored = examRecordMapper.selectById(examRecord.getId());
+            examRecord.setWindowSwitches(stored != null && stored.getWindowSwitches() != null ? stored.getWindowSwitches() : 0);
+        }
+        return examRecord;
+    }
+
+    private static String activeKey(Integer paperId, String studentName) {
+        return CacheConstants.EXAM_SESSION_ACTIVE_KEY + paperId + ":" + studentName;
+    }
+
+    private static long toEpochMilli(LocalDateTime time) {
+        return (time != null ? time : LocalDateTime.now()).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+
+    private static long asLong(Object value) {
+        return value instanceof Number number ? number.longValue() : 0L;
+    }
+}
@@ -0,0 +1,146 @@
+package com.exam.service.impl;
+
+import com.exam.common.CacheConstants;
+import com.exam.config.GradingConfig;
+import com.exam.entity.ExamRecord;
+import com.exam.mapper.ExamRecordMapper;
+import com.exam.service.GradingQueueService;
+import com.exam.utils.RedisUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamRecords;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 判卷任务队列服务实现类
+ * 使用Redis Stream作为持久化队列，消费者组保证任务在多节点间只被处理一次；
+ * AI服务熔断时判卷任务登记到延迟有序集合，到期后重新入队
+ */
+@Slf4j
+@Service
+public class GradingQueueServiceImpl implements GradingQueueService {
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    @Autowired
+    private RedisUtils redisUtils;
+    @Autowired
+    private ExamRecordMapper examRecordMapper;
+    @Autowired
+    private GradingConfig gradingConfig;
+
+    @Override
+    public void enqueue(Integer examRecordId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            // 事务提交后再入队，保证工作线程能读到已提交的答案
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    doEnqueue(examRecordId);
+                }
+            });
+        } else {
+            doEnqueue(examRecordId);
+        }
+    }
+
+    private void doEnqueue(Integer examRecordId) {
+        try {
+            updateStatus(examRecordId, STATUS_QUEUED);
+            RecordId recordId = stringRedisTemplate.opsForStream().add(
+                StreamRecords.string(Collections.singletonMap("examRecordId", String.valueOf(examRecordId)))
+                    .withStreamKey(CacheConstants.GRADING_STREAM_KEY));
+            log.info("判卷任务已入队，考试记录ID: {}, 消息ID: {}", examRecordId, recordId);
+        } catch (Exception e) {
+            // 入队失败不影响提交，考试记录保持"已完成"，可通过手动批阅接口补判
+            log.error("判卷任务入队失败，考试记录ID: {}, 错误: {}", examRecordId, e.getMessage());
+        }
+    }
+
+    @Override
+    public void defer(Integer examRecordId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    doDefer(examRecordId);
+                }
+            });
+        } else {
+            doDefer(examRecordId);
+        }
+    }
+
+    private void doDefer(Integer examRecordId) {
+        try {
+            long dueTime = System.currentTimeMillis() + gradingConfig.getDeferRetrySeconds() * 1000;
+            redisUtils.zAdd(CacheConstants.GRADING_DEFERRED_KEY, examRecordId, dueTime);
+            updateStatus(examRecordId, STATUS_PENDING_AI);
+            log.info("判卷任务延迟{}秒后重试，考试记录ID: {}", gradingConfig.getDeferRetrySeconds(), examRecordId);
+        } catch (Exception e) {
+            // 登记失败时考试记录保持"已完成"，可通过手动批阅接口补判
+            log.error("登记延迟判卷失败，考试记录ID: {}, 错误: {}", examRecordId, e.getMessage());
+        }
+    }
+
+    @Override
+    public int releaseDeferred(int limit) {
+        Set<Object> dueIds = redisUtils.zRangeByScore(CacheConstants.GRADING_DEFERRED_KEY, 0,
+            System.currentTimeMillis(), 0, limit);
+        if (dueIds == null || dueIds.isEmpty()) {
+            return 0;
+        }
+        int released = 0;
+        for (Object id : dueIds) {
+            // ZREM成功的节点才重新入队，多节点下不会重复投递
+            Long removed = redisUtils.zRemove(CacheConstants.GRADING_DEFERRED_KEY, id);
+            if (removed == null || removed == 0) {
+                continue;
+            }
+            doEnqueue(Integer.valueOf(id.toString()));
+            released++;
+        }
+        return released;
+    }
+
+    @Override
+    public void updateStatus(Integer examRecordId, String status) {
+        redisUtils.set(CacheConstants.GRADING_STATUS_KEY + examRecordId, status,
+            CacheConstants.GRADING_STATUS_EXPIRE_SECONDS);
+    }
+
+    @Override
+    public Map<String, Object> getGradingStatus(Integer examRecordId) {
+        ExamRecord examRecord = examRecordMapper.selectById(examRecordId);
+        if (examRecord == null) {
+            throw new RuntimeException("考试记录不存在");
+        }
+
+        Map<String, Object> result = new HashMap<>();
+        result.put("examRecordId", examRecordId);
+        result.put("recordStatus", examRecord.getStatus());
+
+        if ("已批阅".equals(examRecord.getStatus())) {
+            // 以数据库为准，判卷已完成
+            result.put("gradingStatus", STATUS_GRADED);
+            result.put("score", examRecord.getScore());
+            return result;
+        }
+
+        if ("已完成".equals(examRecord.getStatus())) {
+            // 已提交未批阅，任务状态以队列记录为准
+            Object status = redisUtils.get(CacheConstants.GRADING_STATUS_KEY + examRecordId);
+            result.put("gradingStatus", status != null ? status : STATUS_QUEUED);
+        }
+        return result;
+    }
+}
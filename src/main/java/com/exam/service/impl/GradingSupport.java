@@ -0,0 +1,78 @@
+package com.exam.service.impl;
+
+import com.exam.entity.AnswerRecord;
+import com.exam.service.AnswerKeyService;
+import com.exam.service.KimiGradingService;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * 判卷公共方法（交卷判卷与整卷重判共用）
+ */
+final class GradingSupport {
+
+    private GradingSupport() {
+    }
+
+    /**
+     * 按批次大小分段执行批量SQL，避免单条SQL过长
+     */
+    static void forEachChunk(List<AnswerRecord> records, int batchSize, Consumer<List<AnswerRecord>> batchWriter) {
+        int size = Math.max(1, batchSize);
+        for (int from = 0; from < records.size(); from += size) {
+            batchWriter.accept(records.subList(from, Math.min(from + size, records.size())));
+        }
+    }
+
+    /**
+     * 客观题判分：与编译后的标准答案比较，满分或0分
+     * @return 是否正确
+     */
+    static boolean applyObjectiveResult(AnswerRecord record, AnswerKeyService.AnswerKey answerKey, int index) {
+        boolean correct = answerKey.isCorrect(index, record.getUserAnswer());
+        record.setScore(correct ? answerKey.getMaxScore(index) : 0);
+        record.setIsCorrect(correct ? 1 : 0); // 1: 完全正确, 0: 错误
+        // 选择题和判断题不设置AI评语
+        record.setAiCorrection(null);
+        return correct;
+    }
+
+    /**
+     * 将AI判卷结果写入答案记录
+     * @return 是否完全正确
+     */
+    static boolean applyTextResult(AnswerRecord record, KimiGradingService.GradingResult gradingResult, int maxScore) {
+        record.setScore(gradingResult.getScore());
+        record.setAiCorrection(gradingResult.getFeedback());
+
+        // 设置正确性标记
+        if (gradingResult.getScore() == maxScore) {
+            record.setIsCorrect(1); // 完全正确
+            return true;
+        } else if (gradingResult.getScore() > 0) {
+            record.setIsCorrect(2); // 部分正确
+        } else {
+            record.setIsCorrect(0); // 错误
+        }
+        return false;
+    }
+
+    /**
+     * AI服务熔断时标记为等待AI判卷（暂记0分，考试记录保持未批阅，服务恢复后重新判卷）
+     */
+    static void markPendingAi(AnswerRecord record, KimiGradingService.GradingResult pendingResult) {
+        record.setScore(0);
+        record.setIsCorrect(0);
+        record.setAiCorrection(pendingResult.getFeedback());
+    }
+
+    /**
+     * 判卷失败时给0分
+     */
+    static void markGradingFailed(AnswerRecord record) {
+        record.setScore(0);
+        record.setIsCorrect(0);
+        record.setAiCorrection("系统判卷失败，请联系管理员");
+    }
+}
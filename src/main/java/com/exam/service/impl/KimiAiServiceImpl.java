@@ -3,30 +3,45 @@ package com.exam.service.impl;
 import com.alibaba.fastjson.JSON;
 import com.alibaba.fastjson.JSONArray;
 import com.alibaba.fastjson.JSONObject;
+import com.exam.config.AiGenerationConfig;
 import com.exam.dto.AiGenerateRequestDto;
 import com.exam.dto.QuestionImportDto;
+import com.exam.dto.ai.ChatMessage;
+import com.exam.dto.ai.LlmRequest;
 import com.exam.service.KimiAiService;
+import com.exam.service.LlmGateway;
+import com.exam.utils.JsonArrayStreamParser;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
-import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
-import java.time.Duration;
+import java.text.Normalizer;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * 千问AI服务实现类
- * 调用千问API智能生成题目
+ * 调用千问API智能生成题目，题目数量较多时拆分为多个子请求并发生成
  */
 @Slf4j
 @Service
 public class KimiAiServiceImpl implements KimiAiService {
 
+    @Autowired
+    private LlmGateway llmGateway; // 大模型网关
+
+    @Autowired
+    private AiGenerationConfig generationConfig; // 出题拆分配置
+
     @Value("${qwen.api.api-key:}")
     private String qwenApiKey; // 千问API密钥
 
@@ -36,14 +51,12 @@ public class KimiAiServiceImpl implements KimiAiService {
     @Value("${qwen.api.model:qwen-plus}")
     private String qwenModel; // 使用的模型
     
-    private final WebClient webClient;
-    
-    public KimiAiServiceImpl() {
-        this.webClient = WebClient.builder()
-                .defaultHeader(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
-                .build();
-    }
-    
+
+    /**
+     * 根据要求生成题目
+     * 数量超过子请求上限时按题型和数量拆分为多个子请求并发生成，合并后按题干去重；
+     * 部分子请求失败时返回已生成的题目，全部失败才抛出异常
+     */
     @Override
     public List<QuestionImportDto> generateQuestions(AiGenerateRequestDto request) {
         try {
@@ -52,9 +65,39 @@ public class KimiAiServiceImpl implements KimiAiService {
             log.info("qwenBaseUrl: {}", qwenBaseUrl);
             log.info("qwenModel: {}", qwenModel);
 
-            String prompt = buildPrompt(request);
-            String response = callQwenApi(prompt);
-            return parseResponse(response, request);
+            List<AiGenerateRequestDto> chunks = splitRequest(request);
+            AtomicInteger failedChunks = new AtomicInteger();
+            AtomicReference<Throwable> firstError = new AtomicReference<>();
+            List<List<QuestionImportDto>> chunkResults = Flux.range(0, chunks.size())
+                    .flatMapSequential(part -> callQwenApi(buildPrompt(chunks.get(part), part, chunks.size()))
+                            .map(response -> parseResponse(response, chunks.get(part)))
+                            .onErrorResume(e -> {
+                                // 单个子请求失败不影响其他子请求，返回已生成的部分
+                                log.warn("AI出题子请求失败，第{}/{}批，错误: {}", part + 1, chunks.size(), e.getMessage());
+                                failedChunks.incrementAndGet();
+                                firstError.compareAndSet(null, e);
+                                return Mono.empty();
+                            }), generationConfig.getConcurrency())
+                    .collectList()
+                    .block();
+            if (failedChunks.get() == chunks.size()) {
+                throw firstError.get() instanceof RuntimeException runtimeException
+                        ? runtimeException : new RuntimeException(firstError.get());
+            }
+
+            Set<String> seen = new HashSet<>();
+            List<QuestionImportDto> questions = new ArrayList<>(request.getCount());
+            for (List<QuestionImportDto> chunkQuestions : chunkResults) {
+                for (QuestionImportDto question : chunkQuestions) {
+                    if (seen.add(dedupeKey(question))) {
+                        questions.add(question);
+                    }
+                }
+            }
+            if (chunks.size() > 1) {
+                log.info("AI分{}批生成题目完成，失败{}批，去重后共{}道", chunks.size(), failedChunks.get(), questions.size());
+            }
+            return questions;
 
         } catch (Exception e) {
             log.error("调用千问API生成题目失败", e);
@@ -62,16 +105,128 @@ public class KimiAiServiceImpl implements KimiAiService {
         }
     }
     
+    @Override
+    public Flux<QuestionImportDto> generateQuestionsStream(AiGenerateRequestDto request) {
+        return Flux.defer(() -> {
+            List<AiGenerateRequestDto> chunks = splitRequest(request);
+            Set<String> seen = ConcurrentHashMap.newKeySet();
+            AtomicInteger generated = new AtomicInteger();
+            AtomicInteger failedChunks = new AtomicInteger();
+            AtomicReference<Throwable> firstError = new AtomicReference<>();
+            log.info("开始流式调用千问API生成题目，主题: {}, 数量: {}, 子请求数: {}",
+                    request.getTopic(), request.getCount(), chunks.size());
+            return Flux.range(0, chunks.size())
+                    .flatMap(part -> streamChunk(chunks.get(part), part, chunks.size())
+                            .onErrorResume(e -> {
+                                log.warn("AI流式出题子请求失败，第{}/{}批，错误: {}", part + 1, chunks.size(), e.getMessage());
+                                failedChunks.incrementAndGet();
+                                firstError.compareAndSet(null, e);
+                                return Flux.empty();
+                            }), generationConfig.getConcurrency())
+                    .filter(question -> seen.add(dedupeKey(question)))
+                    .doOnNext(question -> generated.incrementAndGet())
+                    .concatWith(Flux.defer(() -> failedChunks.get() == chunks.size()
+                            ? Flux.error(firstError.get()) : Flux.empty()))
+                    .doOnComplete(() -> log.info("AI流式生成题目完成，共{}道，失败子请求{}个", generated.get(), failedChunks.get()))
+                    .onErrorMap(e -> {
+                        log.error("流式调用千问API失败: {}", e.getMessage());
+                        return friendlyError(e);
+                    });
+        });
+    }
+
+    /**
+     * 流式生成一个子请求的题目，单道题目格式错误时跳过
+     */
+    private Flux<QuestionImportDto> streamChunk(AiGenerateRequestDto chunk, int part, int parts) {
+        JsonArrayStreamParser parser = new JsonArrayStreamParser();
+        return llmGateway.stream(buildLlmRequest(buildPrompt(chunk, part, parts)))
+                .concatMapIterable(parser::feed)
+                .handle((json, sink) -> {
+                    try {
+                        sink.next(toImportDto(JSON.parseObject(json), chunk));
+                    } catch (Exception e) {
+                        // 单道题目格式错误时跳过，不影响后续题目
+                        log.warn("解析AI流式生成的题目失败，已跳过: {}", e.getMessage());
+                    }
+                });
+    }
+
+    /**
+     * 拆分出题请求：数量不超过子请求上限时不拆分；否则先按题型平均分配数量，
+     * 再把每种题型的数量均分为若干个不超过上限的子请求
+     */
+    private List<AiGenerateRequestDto> splitRequest(AiGenerateRequestDto request) {
+        int chunkSize = Math.max(1, generationConfig.getChunkSize());
+        if (request.getCount() <= chunkSize) {
+            return List.of(request);
+        }
+        List<String> types = new ArrayList<>();
+        if (request.getTypes() != null) {
+            for (String type : request.getTypes().split(",")) {
+                if (!type.isBlank() && !types.contains(type.trim())) {
+                    types.add(type.trim());
+                }
+            }
+        }
+        if (types.isEmpty()) {
+            types.add(null); // 未指定题型，只按数量拆分
+        }
+
+        List<AiGenerateRequestDto> chunks = new ArrayList<>();
+        for (int t = 0; t < types.size(); t++) {
+            int typeCount = request.getCount() / types.size() + (t < request.getCount() % types.size() ? 1 : 0);
+            int parts = (typeCount + chunkSize - 1) / chunkSize;
+            for (int p = 0; p < parts; p++) {
+                int count = typeCount / parts + (p < typeCount % parts ? 1 : 0);
+                if (count > 0) {
+                    chunks.add(copyRequest(request, types.get(t) != null ? types.get(t) : request.getTypes(), count));
+                }
+            }
+        }
+        return chunks;
+    }
+
+    private static AiGenerateRequestDto copyRequest(AiGenerateRequestDto request, String types, int count) {
+        AiGenerateRequestDto chunk = new AiGenerateRequestDto();
+        chunk.setTopic(request.getTopic());
+        chunk.setCount(count);
+        chunk.setTypes(types);
+        chunk.setDifficulty(request.getDifficulty());
+        chunk.setCategoryId(request.getCategoryId());
+        chunk.setIncludeMultiple(request.getIncludeMultiple());
+        chunk.setRequirements(request.getRequirements());
+        return chunk;
+    }
+
+    /**
+     * 去重key：题型 + 规范化后的题干（全半角统一，忽略空白、标点和大小写）
+     */
+    private static String dedupeKey(QuestionImportDto question) {
+        String title = question.getTitle() != null
+                ? Normalizer.normalize(question.getTitle(), Normalizer.Form.NFKC).toLowerCase() : "";
+        StringBuilder key = new StringBuilder(String.valueOf(question.getType())).append(':'); // AI返回的题目可能缺少题型
+        title.codePoints().filter(Character::isLetterOrDigit).forEach(key::appendCodePoint);
+        return key.toString();
+    }
+
     /**
      * 构建发送给AI的提示词
+     * @param part 子请求序号（从0开始）
+     * @param parts 子请求总数，大于1时要求各批次侧重不同的知识点，减少重复题目
      */
-    private String buildPrompt(AiGenerateRequestDto request) {
+    private String buildPrompt(AiGenerateRequestDto request, int part, int parts) {
         StringBuilder prompt = new StringBuilder();
         
         prompt.append("请为我生成").append(request.getCount()).append("道关于【")
               .append(request.getTopic()).append("】的题目。\n\n");
         
         prompt.append("要求：\n");
+
+        if (parts > 1) {
+            prompt.append("- 本次是同一主题分批出题的第").append(part + 1).append("批（共").append(parts)
+                  .append("批），请覆盖该主题下不同的知识点，避免与其他批次出现相同或相似的题目\n");
+        }
         
         // 题目类型要求
         if (request.getTypes() != null && !request.getTypes().isEmpty()) {
@@ -164,93 +319,56 @@ public class KimiAiServiceImpl implements KimiAiService {
         return prompt.toString();
     }
     
-    private String callQwenApi(String prompt) {
-        if (qwenApiKey == null || qwenApiKey.isEmpty()) {
-            throw new RuntimeException("未配置千问API密钥，请在配置文件中设置qwen.api.api-key");
-        }
-
+    private Mono<String> callQwenApi(String prompt) {
         log.info("开始调用千问API生成题目...");
 
-        JSONObject requestBody = new JSONObject();
-        requestBody.put("model", qwenModel);
-        requestBody.put("max_tokens", 4000);
-        requestBody.put("temperature", 0.7);
-        
-        JSONArray messages = new JSONArray();
-        JSONObject message = new JSONObject();
-        message.put("role", "user");
-        message.put("content", prompt);
-        messages.add(message);
-        requestBody.put("messages", messages);
-        
-        // 重试机制
-        int maxRetries = 3;
-        for (int attempt = 1; attempt <= maxRetries; attempt++) {
-            try {
-                log.info("第{}次尝试调用千问API", attempt);
-
-                Mono<String> responseMono = webClient.post()
-                        .uri(qwenBaseUrl + "/chat/completions")
-                        .header(HttpHeaders.AUTHORIZATION, "Bearer " + qwenApiKey)
-                        .bodyValue(requestBody.toJSONString())
-                        .retrieve()
-                        .bodyToMono(String.class)
-                        .timeout(Duration.ofSeconds(120));
-
-                String response = responseMono.block();
-                log.info("千问API调用成功，响应长度: {}", response != null ? response.length() : 0);
-
-                JSONObject responseJson = JSON.parseObject(response);
-                if (responseJson.containsKey("error")) {
-                    JSONObject error = responseJson.getJSONObject("error");
-                    String errorMessage = error.getString("message");
-                    log.error("千问API返回错误: {}", errorMessage);
-                    // 如果是限流错误，等待后重试
-                    if (errorMessage.contains("rate limit") || errorMessage.contains("too many requests")) {
-                        if (attempt < maxRetries) {
-                            log.info("遇到限流，等待{}秒后重试...", attempt * 5);
-                            Thread.sleep(attempt * 5000); // 等待5秒、10秒、15秒
-                            continue;
-                        }
+        return llmGateway.chat(buildLlmRequest(prompt))
+                .<String>handle((response, sink) -> {
+                    String content = response.getContent();
+                    if (content == null) {
+                        sink.error(new RuntimeException("千问API返回的响应格式不正确"));
+                        return;
                     }
-                    throw new RuntimeException("千问API错误: " + errorMessage);
-                }
+                    log.info("AI生成内容获取成功，内容长度: {}, 消耗token: {}", content.length(), response.getTotalTokens());
+                    sink.next(content);
+                })
+                .onErrorMap(e -> {
+                    log.error("调用千问API失败: {}", e.getMessage());
+                    return friendlyError(e);
+                });
+    }
 
-                JSONArray choices = responseJson.getJSONArray("choices");
-                if (choices != null && !choices.isEmpty()) {
-                    String content = choices.getJSONObject(0).getJSONObject("message").getString("content");
-                    log.info("AI生成内容获取成功，内容长度: {}", content.length());
-                    return content;
-                } else {
-                    throw new RuntimeException("千问API返回的响应格式不正确");
-                }
+    /**
+     * 构建出题请求：出题属于后台批量请求，限流、排队和退避重试由网关处理，交卷判卷请求优先派发
+     */
+    private LlmRequest buildLlmRequest(String prompt) {
+        return LlmRequest.builder()
+                .messages(List.of(new ChatMessage("user", prompt)))
+                .model(qwenModel)
+                .maxTokens(4000)
+                .temperature(0.7)
+                .priority(LlmGateway.Priority.BULK)
+                .timeoutSeconds(120L)
+                .caller(LlmGateway.CALLER_GENERATION)
+                .build();
+    }
 
-            } catch (Exception e) {
-                log.error("第{}次调用千问API失败: {}", attempt, e.getMessage());
-                
-                if (attempt == maxRetries) {
-                    // 最后一次尝试失败，返回友好的错误信息
-                    if (e.getMessage().contains("timeout")) {
-                        throw new RuntimeException("AI服务响应超时，请稍后重试。如果问题持续存在，建议减少生成题目数量或简化需求描述。");
-                    } else if (e.getMessage().contains("rate limit")) {
-                        throw new RuntimeException("AI服务请求过于频繁，请稍后再试。");
-                    } else if (e.getMessage().contains("unauthorized") || e.getMessage().contains("invalid")) {
-                        throw new RuntimeException("AI服务认证失败，请检查API密钥配置。");
-                    } else {
-                        throw new RuntimeException("AI服务暂时不可用: " + e.getMessage() + "。请稍后重试或联系管理员。");
-                    }
-                }
-                
-                // 非最后一次尝试，等待后重试
-                try {
-                    Thread.sleep(2000); // 等待2秒后重试
-                } catch (InterruptedException ie) {
-                    Thread.currentThread().interrupt();
-                    throw new RuntimeException("AI生成被中断");
-                }
-            }
+    /**
+     * 将大模型调用异常转换为友好的错误信息
+     */
+    private RuntimeException friendlyError(Throwable e) {
+        String message = String.valueOf(e.getMessage());
+        if (message.contains("未配置千问API密钥") || message.contains("AI服务繁忙")) {
+            return new RuntimeException(message);
+        } else if (message.contains("timeout") || message.contains("Timeout")) {
+            return new RuntimeException("AI服务响应超时，请稍后重试。如果问题持续存在，建议减少生成题目数量或简化需求描述。");
+        } else if (message.contains("rate limit") || message.contains("429")) {
+            return new RuntimeException("AI服务请求过于频繁，请稍后再试。");
+        } else if (message.contains("unauthorized") || message.contains("invalid") || message.contains("401")) {
+            return new RuntimeException("AI服务认证失败，请检查API密钥配置。");
+        } else {
+            return new RuntimeException("AI服务暂时不可用: " + message + "。请稍后重试或联系管理员。");
         }
-        throw new RuntimeException("AI生成题目失败，已重试" + maxRetries + "次");
     }
 
     /**
@@ -267,53 +385,7 @@ public class KimiAiServiceImpl implements KimiAiService {
             JSONArray questionsArray = jsonResponse.getJSONArray("questions");
             
             for (int i = 0; i < questionsArray.size(); i++) {
-                JSONObject questionJson = questionsArray.getJSONObject(i);
-                QuestionImportDto question = new QuestionImportDto();
-                
-                question.setTitle(questionJson.getString("title"));
-                question.setType(questionJson.getString("type"));
-                question.setMulti(questionJson.getBoolean("multi"));
-                question.setDifficulty(questionJson.getString("difficulty"));
-                question.setScore(questionJson.getInteger("score"));
-                question.setAnalysis(questionJson.getString("analysis"));
-                question.setCategoryId(request.getCategoryId());
-                
-                // 处理选择题选项
-                if ("CHOICE".equals(question.getType()) && questionJson.containsKey("choices")) {
-                    JSONArray choicesArray = questionJson.getJSONArray("choices");
-                    List<QuestionImportDto.ChoiceImportDto> choices = new ArrayList<>();
-                    
-                    for (int j = 0; j < choicesArray.size(); j++) {
-                        JSONObject choiceJson = choicesArray.getJSONObject(j);
-                        QuestionImportDto.ChoiceImportDto choice = new QuestionImportDto.ChoiceImportDto();
-                        choice.setContent(choiceJson.getString("content"));
-                        choice.setIsCorrect(choiceJson.getBoolean("isCorrect"));
-                        choice.setSort(choiceJson.getInteger("sort"));
-                        choices.add(choice);
-                    }
-                    question.setChoices(choices);
-                } else {
-                    // 判断题和简答题
-                    String rawAnswer = questionJson.getString("answer");
-                    
-                    // 对判断题答案进行标准化处理
-                    if ("JUDGE".equals(question.getType()) && rawAnswer != null) {
-                        // 将中文答案转换为英文标准答案
-                        if ("正确".equals(rawAnswer) || "对".equals(rawAnswer) || "TRUE".equalsIgnoreCase(rawAnswer)) {
-                            rawAnswer = "TRUE";
-                        } else if ("错误".equals(rawAnswer) || "错".equals(rawAnswer) || "FALSE".equalsIgnoreCase(rawAnswer)) {
-                            rawAnswer = "FALSE";
-                        }
-                        // 如果都不匹配，记录日志但不抛异常，让验证逻辑处理
-                        if (!"TRUE".equals(rawAnswer) && !"FALSE".equals(rawAnswer)) {
-                            log.warn("AI生成的判断题答案格式不标准: {}, 题目: {}", rawAnswer, question.getTitle());
-                        }
-                    }
-                    
-                    question.setAnswer(rawAnswer);
-                }
-                
-                questions.add(question);
+                questions.add(toImportDto(questionsArray.getJSONObject(i), request));
             }
             
         } catch (Exception e) {
@@ -324,6 +396,57 @@ public class KimiAiServiceImpl implements KimiAiService {
         return questions;
     }
     
+    /**
+     * 将AI返回的单道题目JSON转换为导入DTO
+     */
+    private QuestionImportDto toImportDto(JSONObject questionJson, AiGenerateRequestDto request) {
+        QuestionImportDto question = new QuestionImportDto();
+        
+        question.setTitle(questionJson.getString("title"));
+        question.setType(questionJson.getString("type"));
+        question.setMulti(questionJson.getBoolean("multi"));
+        question.setDifficulty(questionJson.getString("difficulty"));
+        question.setScore(questionJson.getInteger("score"));
+        question.setAnalysis(questionJson.getString("analysis"));
+        question.setCategoryId(request.getCategoryId());
+        
+        // 处理选择题选项
+        if ("CHOICE".equals(question.getType()) && questionJson.containsKey("choices")) {
+            JSONArray choicesArray = questionJson.getJSONArray("choices");
+            List<QuestionImportDto.ChoiceImportDto> choices = new ArrayList<>();
+            
+            for (int j = 0; j < choicesArray.size(); j++) {
+                JSONObject choiceJson = choicesArray.getJSONObject(j);
+                QuestionImportDto.ChoiceImportDto choice = new QuestionImportDto.ChoiceImportDto();
+                choice.setContent(choiceJson.getString("content"));
+                choice.setIsCorrect(choiceJson.getBoolean("isCorrect"));
+                choice.setSort(choiceJson.getInteger("sort"));
+                choices.add(choice);
+            }
+            question.setChoices(choices);
+        } else {
+            // 判断题和简答题
+            String rawAnswer = questionJson.getString("answer");
+            
+            // 对判断题答案进行标准化处理
+            if ("JUDGE".equals(question.getType()) && rawAnswer != null) {
+                // 将中文答案转换为英文标准答案
+                if ("正确".equals(rawAnswer) || "对".equals(rawAnswer) || "TRUE".equalsIgnoreCase(rawAnswer)) {
+                    rawAnswer = "TRUE";
+                } else if ("错误".equals(rawAnswer) || "错".equals(rawAnswer) || "FALSE".equalsIgnoreCase(rawAnswer)) {
+                    rawAnswer = "FALSE";
+                }
+                // 如果都不匹配，记录日志但不抛异常，让验证逻辑处理
+                if (!"TRUE".equals(rawAnswer) && !"FALSE".equals(rawAnswer)) {
+                    log.warn("AI生成的判断题答案格式不标准: {}, 题目: {}", rawAnswer, question.getTitle());
+                }
+            }
+            
+            question.setAnswer(rawAnswer);
+        }
+        return question;
+    }
+
     /**
      * 从响应中提取JSON内容
      */
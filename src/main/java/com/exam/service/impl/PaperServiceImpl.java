@@ -16,6 +16,7 @@ import com.exam.mapper.QuestionChoiceMapper;
 import com.exam.mapper.QuestionMapper;
 import com.exam.mapper.QuestionAnswerMapper;
 import com.exam.service.AIService;
+import com.exam.service.AnswerKeyService;
 import com.exam.service.PaperService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -55,6 +56,9 @@ public class PaperServiceImpl extends ServiceImpl<PaperMapper, Paper> implements
     @Autowired
     private AIService aiService; // AI服务
 
+    @Autowired
+    private AnswerKeyService answerKeyService; // 编译答案服务
+
     /**
      * 创建试卷（手动组卷）
      * @param paperDto 试卷数据
@@ -286,6 +290,13 @@ public class PaperServiceImpl extends ServiceImpl<PaperMapper, Paper> implements
         paper.setId(paperId);
         paper.setStatus(status);
         this.updateById(paper);
+
+        // 发布时预编译标准答案，供交卷后的客观题判分直接使用
+        if ("PUBLISHED".equals(status)) {
+            answerKeyService.preload(paperId);
+        } else {
+            answerKeyService.evict(paperId);
+        }
     }
 
     @Override
@@ -313,6 +324,9 @@ public class PaperServiceImpl extends ServiceImpl<PaperMapper, Paper> implements
                 .collect(Collectors.toList());
         paperQuestions.forEach(paperQuestionMapper::insert);
 
+        // 5. 题目或分值变化后，已编译的答案失效（事务提交后执行）
+        answerKeyService.evict(paperId);
+
         return paper;
     }
 } 
\ No newline at end of file
@@ -0,0 +1,479 @@
+package com.exam.service.impl;
+
+import com.exam.common.CacheConstants;
+import com.exam.config.QuestionImportConfig;
+import com.exam.dto.QuestionImportDto;
+import com.exam.dto.QuestionImportPreviewDto;
+import com.exam.dto.QuestionImportResultDto;
+import com.exam.service.QuestionImportJobService;
+import com.exam.service.QuestionService;
+import com.exam.utils.ExcelUtil;
+import com.exam.utils.RedisUtils;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Service;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 题目导入任务服务实现类
+ * 任务文件保存在任务目录中，任务状态保存在Redis中：执行节点每提交一段题目就推进检查点并续期任务锁，
+ * 节点宕机后任务锁过期，恢复任务（QuestionImportRecoveryTask）重新调度，跳过检查点之前已导入的题目继续执行。
+ * 恢复任务只调度任务文件在本节点任务目录中可见的任务：任务目录为共享目录时任何节点都可接管，
+ * 否则中断的任务只能由保存任务文件的节点重启后续跑
+ *
+ * 检查点在每段题目提交后写入，若恰好在提交与写入检查点之间宕机，续跑时该段题目会被再次导入
+ */
+@Slf4j
+@Service
+public class QuestionImportJobServiceImpl implements QuestionImportJobService {
+
+    private static final String SOURCE_EXCEL_XLSX = ".xlsx";
+    private static final String SOURCE_EXCEL_XLS = ".xls";
+    private static final String SOURCE_JSON = ".json";
+    private static final String SOURCE_JSON_GZIP = ".json.gz";
+
+    @Autowired
+    private QuestionService questionService;
+    @Autowired
+    private QuestionImportConfig importConfig;
+    @Autowired
+    private RedisUtils redisUtils;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    @Qualifier("importExecutor")
+    private Executor importExecutor;
+
+    /**
+     * 已提交到本节点线程池（排队或执行中）的任务，避免恢复任务重复提交
+     */
+    private final Set<String> localJobs = ConcurrentHashMap.newKeySet();
+
+    private volatile boolean stopping;
+
+    @Override
+    public Map<String, Object> submitExcel(MultipartFile file) {
+        String fileName = file.getOriginalFilename();
+        String jobId = newJobId();
+        String sourceType = fileName != null && fileName.endsWith(".xlsx") ? SOURCE_EXCEL_XLSX : SOURCE_EXCEL_XLS;
+        Path source = sourcePath(jobId, sourceType);
+        try (InputStream inputStream = file.getInputStream()) {
+            Files.createDirectories(source.getParent());
+            Files.copy(inputStream, source, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new RuntimeException("保存导入文件失败: " + e.getMessage());
+        }
+        return createJob(jobId, fileName, sourceType);
+    }
+
+    @Override
+    public Map<String, Object> submitQuestions(List<QuestionImportDto> questions) {
+        String jobId = newJobId();
+        Path source = sourcePath(jobId, SOURCE_JSON);
+        try {
+            Files.createDirectories(source.getParent());
+            objectMapper.writeValue(source.toFile(), questions);
+        } catch (IOException e) {
+            throw new RuntimeException("保存导入题目失败: " + e.getMessage());
+        }
+        return createJob(jobId, "题目列表（" + questions.size() + "道）", SOURCE_JSON);
+    }
+
+    @Override
+    public QuestionImportPreviewDto savePreview(String fileName, List<QuestionImportDto> questions,
+                                                List<QuestionImportDto> validQuestions, List<String> errors) {
+        QuestionImportPreviewDto preview = new QuestionImportPreviewDto();
+        preview.setFileName(fileName);
+        preview.setTotal(questions.size());
+        preview.setValidCount(validQuestions.size());
+        preview.setErrors(errors);
+        preview.setQuestions(questions);
+
+        // 只保存校验通过的题目，以gzip压缩的JSON保存，确认导入时原样写入任务文件，不再解压和重新序列化
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(buffer)) {
+            objectMapper.writeValue(gzip, validQuestions);
+        } catch (IOException e) {
+            throw new RuntimeException("保存预览结果失败: " + e.getMessage());
+        }
+        if (buffer.size() > importConfig.getPreviewMaxBytes()) {
+            log.warn("预览结果过大，不保存预览令牌，文件: {}, 压缩后大小: {}字节", fileName, buffer.size());
+            return preview;
+        }
+
+        String token = newJobId();
+        String previewKey = CacheConstants.QUESTION_IMPORT_PREVIEW_KEY + token;
+        Map<String, Object> entries = new HashMap<>();
+        entries.put("fileName", fileName != null ? fileName : "");
+        entries.put("total", validQuestions.size());
+        entries.put("errors", new ArrayList<>(errors));
+        entries.put("questions", Base64.getEncoder().encodeToString(buffer.toByteArray()));
+        redisUtils.hSetAll(previewKey, entries);
+        redisUtils.expire(previewKey, importConfig.getPreviewTtlSeconds());
+        log.debug("预览结果已保存，文件: {}, 题目数: {}, 校验通过: {}, 压缩后大小: {}字节", fileName, questions.size(), validQuestions.size(), buffer.size());
+
+        preview.setToken(token);
+        preview.setExpireSeconds(importConfig.getPreviewTtlSeconds());
+        return preview;
+    }
+
+    @Override
+    public Map<String, Object> submitPreview(String token) {
+        String previewKey = CacheConstants.QUESTION_IMPORT_PREVIEW_KEY + token;
+        Map<Object, Object> entries = redisUtils.hGetAll(previewKey);
+        if (entries == null || !(entries.get("questions") instanceof String encoded)) {
+            throw new RuntimeException("预览已过期，请重新上传文件");
+        }
+        // 令牌只能使用一次：并发提交同一令牌时只有删除成功的请求继续导入，避免重复导入
+        if (!Boolean.TRUE.equals(redisUtils.delete(previewKey))) {
+            throw new RuntimeException("预览已过期，请重新上传文件");
+        }
+
+        String jobId = newJobId();
+        Path source = sourcePath(jobId, SOURCE_JSON_GZIP);
+        try {
+            Files.createDirectories(source.getParent());
+            Files.write(source, Base64.getDecoder().decode(encoded));
+        } catch (IOException e) {
+            throw new RuntimeException("保存导入题目失败: " + e.getMessage());
+        }
+        Object fileName = entries.get("fileName");
+        return createJob(jobId, fileName != null && !fileName.toString().isEmpty() ? fileName.toString()
+            : "题目列表（" + entries.get("total") + "道）", SOURCE_JSON_GZIP);
+    }
+
+    @Override
+    public Map<String, Object> resume(String jobId) {
+        Map<String, Object> progress = getProgress(jobId, false);
+        if (progress.isEmpty()) {
+            throw new RuntimeException("导入任务不存在");
+        }
+        if (STATUS_COMPLETED.equals(progress.get("status"))) {
+            throw new RuntimeException("导入任务已完成");
+        }
+        if (Boolean.TRUE.equals(redisUtils.hasKey(CacheConstants.QUESTION_IMPORT_LOCK_KEY + jobId))) {
+            throw new RuntimeException("导入任务正在执行中");
+        }
+        if (!Files.exists(sourcePath(jobId, String.valueOf(progress.get("sourceType"))))) {
+            throw new RuntimeException("导入文件不在本节点的任务目录中（已清理或任务目录未共享），无法续跑");
+        }
+
+        String jobKey = CacheConstants.QUESTION_IMPORT_JOB_KEY + jobId;
+        redisUtils.hSetAll(jobKey, Map.of("status", STATUS_QUEUED, "message", "等待从检查点续跑",
+            "updateTime", System.currentTimeMillis()));
+        redisUtils.zAdd(CacheConstants.QUESTION_IMPORT_JOBS_KEY, jobId, asLong(progress.get("createTime")));
+        submit(jobId);
+        return getProgress(jobId, false);
+    }
+
+    @Override
+    public Map<String, Object> getProgress(String jobId, boolean includeFailures) {
+        Map<Object, Object> entries = redisUtils.hGetAll(CacheConstants.QUESTION_IMPORT_JOB_KEY + jobId);
+        Map<String, Object> progress = new HashMap<>();
+        if (entries == null || entries.isEmpty()) {
+            return progress;
+        }
+        entries.forEach((key, value) -> progress.put(key.toString(), value));
+        if (includeFailures) {
+            progress.put("failures", redisUtils.lRange(CacheConstants.QUESTION_IMPORT_FAILURES_KEY + jobId, 0, -1));
+        }
+        return progress;
+    }
+
+    @Override
+    public int recoverJobs() {
+        if (stopping) {
+            return 0;
+        }
+        int submitted = 0;
+        Set<Object> jobIds = redisUtils.zRangeByScore(CacheConstants.QUESTION_IMPORT_JOBS_KEY, 0, Double.MAX_VALUE);
+        if (jobIds == null) {
+            return 0;
+        }
+        for (Object id : jobIds) {
+            String jobId = id.toString();
+            Object status = redisUtils.hGet(CacheConstants.QUESTION_IMPORT_JOB_KEY + jobId, "status");
+            if (status == null) {
+                // 任务进度已过期（失败后长期未续跑），清理任务文件
+                redisUtils.zRemove(CacheConstants.QUESTION_IMPORT_JOBS_KEY, jobId);
+                deleteSources(jobId);
+                continue;
+            }
+            if (STATUS_COMPLETED.equals(status)) {
+                redisUtils.zRemove(CacheConstants.QUESTION_IMPORT_JOBS_KEY, jobId);
+                continue;
+            }
+            if (STATUS_FAILED.equals(status) || localJobs.contains(jobId)
+                || Boolean.TRUE.equals(redisUtils.hasKey(CacheConstants.QUESTION_IMPORT_LOCK_KEY + jobId))) {
+                continue; // 失败的任务需手动续跑；有任务锁说明正在某个节点上执行
+            }
+            Object sourceType = redisUtils.hGet(CacheConstants.QUESTION_IMPORT_JOB_KEY + jobId, "sourceType");
+            if (!Files.exists(sourcePath(jobId, String.valueOf(sourceType)))) {
+                continue; // 任务文件不在本节点的任务目录中（任务目录未共享），留给保存文件的节点续跑
+            }
+            if (!submit(jobId)) {
+                break; // 本节点线程池已满，剩余任务留待下次调度
+            }
+            submitted++;
+        }
+        return submitted;
+    }
+
+    @PreDestroy
+    public void destroy() {
+        stopping = true; // 执行中的任务在下一道题目处停止，保持执行中状态，由恢复任务在重启后（任务目录共享时也可在其他节点）续跑
+    }
+
+    private Map<String, Object> createJob(String jobId, String fileName, String sourceType) {
+        long now = System.currentTimeMillis();
+        Map<String, Object> job = new HashMap<>();
+        job.put("jobId", jobId);
+        job.put("fileName", fileName != null ? fileName : jobId + sourceType);
+        job.put("sourceType", sourceType);
+        job.put("status", STATUS_QUEUED);
+        job.put("parsed", 0);
+        job.put("inserted", 0);
+        job.put("failed", 0);
+        job.put("checkpoint", 0);
+        job.put("message", "");
+        job.put("createTime", now);
+        job.put("updateTime", now);
+        String jobKey = CacheConstants.QUESTION_IMPORT_JOB_KEY + jobId;
+        redisUtils.hSetAll(jobKey, job);
+        redisUtils.expire(jobKey, CacheConstants.QUESTION_IMPORT_JOB_EXPIRE_SECONDS);
+        redisUtils.zAdd(CacheConstants.QUESTION_IMPORT_JOBS_KEY, jobId, now);
+
+        if (!submit(jobId)) {
+            redisUtils.hSet(jobKey, "message", "导入任务较多，排队等待中");
+        }
+        log.info("题目导入任务已提交，任务ID: {}, 文件: {}", jobId, job.get("fileName"));
+        return getProgress(jobId, false);
+    }
+
+    /**
+     * 提交到本节点线程池
+     * @return 线程池已满时返回false，任务保持排队状态，由恢复任务稍后重新调度
+     */
+    private boolean submit(String jobId) {
+        if (!localJobs.add(jobId)) {
+            return true;
+        }
+        try {
+            importExecutor.execute(() -> {
+                try {
+                    runJob(jobId);
+                } finally {
+                    localJobs.remove(jobId);
+                }
+            });
+            return true;
+        } catch (TaskRejectedException e) {
+            localJobs.remove(jobId);
+            return false;
+        }
+    }
+
+    /**
+     * 执行导入：流式解析任务文件，跳过检查点之前的题目，其余题目按段导入并推进检查点
+     */
+    private void runJob(String jobId) {
+        String lockKey = CacheConstants.QUESTION_IMPORT_LOCK_KEY + jobId;
+        String lockOwner = newJobId(); // 本次执行的锁持有者标识，只续期和释放自己持有的锁
+        if (!Boolean.TRUE.equals(redisUtils.setIfAbsent(lockKey, lockOwner, importConfig.getJobLockSeconds()))) {
+            return; // 其他节点正在执行
+        }
+        String jobKey = CacheConstants.QUESTION_IMPORT_JOB_KEY + jobId;
+        ImportRun run = null;
+        try {
+            Map<String, Object> job = getProgress(jobId, false);
+            if (job.isEmpty() || STATUS_COMPLETED.equals(job.get("status")) || STATUS_FAILED.equals(job.get("status"))) {
+                return;
+            }
+            run = new ImportRun(jobId, lockOwner, asInt(job.get("checkpoint")), asInt(job.get("inserted")), asInt(job.get("failed")));
+            redisUtils.hSetAll(jobKey, Map.of("status", STATUS_RUNNING,
+                "message", run.checkpoint > 0 ? "从检查点续跑" : "", "updateTime", System.currentTimeMillis()));
+            log.info("题目导入任务开始执行，任务ID: {}, 检查点: {}", jobId, run.checkpoint);
+
+            String sourceType = String.valueOf(job.get("sourceType"));
+            Path source = sourcePath(jobId, sourceType);
+            if (SOURCE_JSON.equals(sourceType) || SOURCE_JSON_GZIP.equals(sourceType)) {
+                try (InputStream inputStream = SOURCE_JSON_GZIP.equals(sourceType)
+                         ? new GZIPInputStream(Files.newInputStream(source)) : Files.newInputStream(source);
+                     MappingIterator<QuestionImportDto> iterator =
+                         objectMapper.readerFor(QuestionImportDto.class).readValues(inputStream)) {
+                    while (iterator.hasNext()) {
+                        run.accept(iterator.next());
+                    }
+                }
+            } else {
+                ExcelUtil.parseExcel(source, run);
+            }
+            run.flush();
+
+            redisUtils.hSetAll(jobKey, Map.of("status", STATUS_COMPLETED, "message", "",
+                "updateTime", System.currentTimeMillis()));
+            redisUtils.zRemove(CacheConstants.QUESTION_IMPORT_JOBS_KEY, jobId);
+            Files.deleteIfExists(source);
+            log.info("题目导入任务完成，任务ID: {}, 导入: {}, 失败: {}", jobId, run.inserted, run.failed);
+        } catch (JobLockLostException e) {
+            // 锁已过期，任务已被重新调度，进度由新的执行负责更新
+            log.warn("题目导入任务锁已失效，停止执行，任务ID: {}, 检查点: {}", jobId, run.checkpoint);
+        } catch (JobStoppedException e) {
+            log.info("节点停止，题目导入任务暂停，任务ID: {}, 检查点: {}", jobId, run.checkpoint);
+            redisUtils.hSet(jobKey, "message", "节点停止，等待续跑");
+        } catch (Exception e) {
+            log.error("题目导入任务失败，任务ID: {}, 检查点: {}, 错误: {}",
+                jobId, run != null ? run.checkpoint : 0, e.getMessage(), e);
+            redisUtils.hSetAll(jobKey, Map.of("status", STATUS_FAILED, "message", String.valueOf(e.getMessage()),
+                "updateTime", System.currentTimeMillis()));
+        } finally {
+            redisUtils.deleteIfEquals(lockKey, lockOwner);
+        }
+    }
+
+    private Path sourcePath(String jobId, String sourceType) {
+        return Paths.get(importConfig.getJobDir(), jobId + sourceType);
+    }
+
+    private void deleteSources(String jobId) {
+        for (String sourceType : List.of(SOURCE_EXCEL_XLSX, SOURCE_EXCEL_XLS, SOURCE_JSON, SOURCE_JSON_GZIP)) {
+            try {
+                Files.deleteIfExists(sourcePath(jobId, sourceType));
+            } catch (IOException e) {
+                log.warn("删除导入任务文件失败，任务ID: {}, 错误: {}", jobId, e.getMessage());
+            }
+        }
+    }
+
+    private static String newJobId() {
+        return UUID.randomUUID().toString().replace("-", "");
+    }
+
+    private static int asInt(Object value) {
+        return value instanceof Number number ? number.intValue() : 0;
+    }
+
+    private static long asLong(Object value) {
+        return value instanceof Number number ? number.longValue() : System.currentTimeMillis();
+    }
+
+    /**
+     * 一次任务执行：累积解析出的题目，满一段即导入并推进检查点
+     */
+    private class ImportRun implements Consumer<QuestionImportDto> {
+        private final String jobKey;
+        private final String lockKey;
+        private final String lockOwner;
+        private final String failuresKey;
+        private final int skip;
+        private final List<QuestionImportDto> buffer = new ArrayList<>();
+        private int parsed;
+        private int checkpoint;
+        private int inserted;
+        private int failed;
+
+        ImportRun(String jobId, String lockOwner, int checkpoint, int inserted, int failed) {
+            this.jobKey = CacheConstants.QUESTION_IMPORT_JOB_KEY + jobId;
+            this.lockKey = CacheConstants.QUESTION_IMPORT_LOCK_KEY + jobId;
+            this.lockOwner = lockOwner;
+            this.failuresKey = CacheConstants.QUESTION_IMPORT_FAILURES_KEY + jobId;
+            this.skip = checkpoint;
+            this.checkpoint = checkpoint;
+            this.inserted = inserted;
+            this.failed = failed;
+        }
+
+        @Override
+        public void accept(QuestionImportDto question) {
+            if (stopping) {
+                throw new JobStoppedException();
+            }
+            if (++parsed <= skip) {
+                return; // 检查点之前的题目已导入
+            }
+            buffer.add(question);
+            if (buffer.size() >= Math.max(1, importConfig.getChunkSize())) {
+                flush();
+            }
+        }
+
+        /**
+         * 导入已累积的题目，记录失败明细并推进检查点
+         */
+        void flush() {
+            // 续期任务锁；锁已不属于本次执行时立即停止，避免与接管的节点重复导入
+            if (!redisUtils.expireIfEquals(lockKey, lockOwner, importConfig.getJobLockSeconds())) {
+                throw new JobLockLostException();
+            }
+            if (!buffer.isEmpty()) {
+                QuestionImportResultDto result = questionService.importQuestions(buffer);
+                List<Object> failures = new ArrayList<>();
+                for (QuestionImportResultDto.FailedRow failure : result.getFailures()) {
+                    if (failed + failures.size() >= importConfig.getMaxFailureDetails()) {
+                        break;
+                    }
+                    // 序号换算为整个导入中的位置
+                    failures.add(new QuestionImportResultDto.FailedRow(checkpoint + failure.getRow(),
+                        failure.getTitle(), failure.getReason()));
+                }
+                if (!failures.isEmpty()) {
+                    redisUtils.lPushAll(failuresKey, failures, CacheConstants.QUESTION_IMPORT_JOB_EXPIRE_SECONDS);
+                }
+                inserted += result.getSuccessCount();
+                failed += result.getFailedCount();
+                checkpoint += buffer.size();
+                buffer.clear();
+            }
+            Map<String, Object> progress = new HashMap<>();
+            progress.put("parsed", parsed);
+            progress.put("inserted", inserted);
+            progress.put("failed", failed);
+            progress.put("checkpoint", checkpoint);
+            progress.put("updateTime", System.currentTimeMillis());
+            redisUtils.hSetAll(jobKey, progress);
+        }
+    }
+
+    /**
+     * 节点停止时中断导入任务
+     */
+    private static class JobStoppedException extends RuntimeException {
+        JobStoppedException() {
+            super("节点停止，导入任务暂停");
+        }
+    }
+
+    /**
+     * 任务锁已失效（过期后被其他节点获取）时中断导入任务
+     */
+    private static class JobLockLostException extends RuntimeException {
+        JobLockLostException() {
+            super("任务锁已失效，导入任务停止");
+        }
+    }
+}
@@ -3,25 +3,34 @@ package com.exam.service.impl;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.exam.common.CacheConstants;
+import com.exam.config.QuestionImportConfig;
 import com.exam.entity.Question;
 import com.exam.entity.QuestionChoice;
 import com.exam.entity.QuestionAnswer;
 import com.exam.dto.QuestionImportDto;
+import com.exam.dto.QuestionImportResultDto;
 import com.exam.mapper.QuestionMapper;
 import com.exam.mapper.QuestionChoiceMapper;
 import com.exam.mapper.QuestionAnswerMapper;
+import com.exam.service.AnswerKeyService;
 import com.exam.service.QuestionService;
 import com.exam.utils.RedisUtils;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.core.NestedExceptionUtils;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.util.CollectionUtils;
 
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -39,6 +48,19 @@ public class QuestionServiceImpl extends ServiceImpl<QuestionMapper, Question> i
     private QuestionAnswerMapper questionAnswerMapper;
     @Autowired
     private RedisUtils redisUtils;
+    @Autowired
+    private AnswerKeyService answerKeyService;
+    @Autowired
+    private QuestionImportConfig importConfig;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+
+    private static final int MAX_RANDOM_COUNT = 100; // 单次随机抽题数量上限
+
+    /**
+     * 随机抽题候选池，key：分类ID:难度
+     */
+    private final Map<String, RandomPool> randomPools = new ConcurrentHashMap<>();
     
     /**
      * 保存题目及其详细信息
@@ -61,6 +83,7 @@ public class QuestionServiceImpl extends ServiceImpl<QuestionMapper, Question> i
         // 1. 保存题目主表
         this.save(question);
         Long questionId = question.getId();
+        invalidateRandomPools();
 
         // 2. 根据类型处理答案和选项
         if ("CHOICE".equals(question.getType())) {
@@ -115,9 +138,10 @@ public class QuestionServiceImpl extends ServiceImpl<QuestionMapper, Question> i
     @Transactional
     @CacheEvict(value = CacheConstants.QUESTION_CACHE, allEntries = true)
     public void updateQuestionWithDetails(Question question) {
-        // 1. 更新题目主表
+        // 1. 更新题目主表（分类、难度可能变化）
         this.updateById(question);
         Long questionId = question.getId();
+        invalidateRandomPools();
 
         // 2. 删除旧的答案和选项
         questionAnswerMapper.delete(new QueryWrapper<QuestionAnswer>().eq("question_id", questionId));
@@ -156,6 +180,9 @@ public class QuestionServiceImpl extends ServiceImpl<QuestionMapper, Question> i
                 questionAnswerMapper.insert(answer);
             }
         }
+
+        // 4. 标准答案可能已变化，引用该题的试卷需重新编译答案
+        answerKeyService.evictAll();
     }
     
     /**
@@ -208,39 +235,275 @@ public class QuestionServiceImpl extends ServiceImpl<QuestionMapper, Question> i
         return questions;
     }
     
+    /**
+     * 随机获取题目
+     * 候选题目ID按筛选条件缓存在本节点，每次请求对ID数组做部分Fisher-Yates洗牌抽取count个，
+     * 只加载抽中的题目（选项和答案批量查询）；抽中的题目已被删除时继续抽取补足
+     */
     @Override
     public List<Question> getRandomQuestions(Integer count, Long categoryId, String difficulty) {
-        // 实现随机获取题目的逻辑
-        return Collections.emptyList();
+        int need = Math.min(count != null && count > 0 ? count : 10, MAX_RANDOM_COUNT);
+        long[] ids = getRandomPool(categoryId, difficulty);
+        if (ids.length == 0) {
+            return Collections.emptyList();
+        }
+
+        PartialShuffle shuffle = new PartialShuffle(ids);
+        List<Question> result = new ArrayList<>(need);
+        while (result.size() < need && shuffle.hasNext()) {
+            List<Long> picked = new ArrayList<>(need - result.size());
+            while (picked.size() < need - result.size() && shuffle.hasNext()) {
+                picked.add(shuffle.next());
+            }
+            Map<Long, Question> loaded = this.listByIds(picked).stream()
+                    .collect(Collectors.toMap(Question::getId, question -> question));
+            if (loaded.size() < picked.size()) {
+                invalidateRandomPools(); // 候选池中有已删除的题目，下次请求重新加载
+            }
+            for (Long id : picked) {
+                Question question = loaded.get(id);
+                if (question != null) {
+                    result.add(question); // 按抽中顺序返回
+                }
+            }
+        }
+        fillChoicesAndAnswer(result);
+        log.debug("随机抽题完成，分类ID: {}, 难度: {}, 候选题目数: {}, 抽取数量: {}",
+                categoryId, difficulty, ids.length, result.size());
+        return result;
     }
 
+    /**
+     * 删除题目后清空随机抽题候选池
+     */
     @Override
-    @Transactional
+    public boolean removeById(java.io.Serializable id) {
+        boolean removed = super.removeById(id);
+        invalidateRandomPools();
+        return removed;
+    }
+
+    /**
+     * 获取筛选条件对应的候选题目ID数组，未加载或已过期时重新查询（同一条件只有一个线程加载）
+     */
+    private long[] getRandomPool(Long categoryId, String difficulty) {
+        String key = categoryId + ":" + difficulty;
+        RandomPool pool = randomPools.computeIfAbsent(key, k -> new RandomPool());
+        long expireMillis = CacheConstants.RANDOM_POOL_EXPIRE_SECONDS * 1000;
+        long[] ids = pool.ids;
+        if (ids != null && System.currentTimeMillis() - pool.loadedAt < expireMillis) {
+            return ids;
+        }
+        synchronized (pool) {
+            if (pool.ids == null || System.currentTimeMillis() - pool.loadedAt >= expireMillis) {
+                QueryWrapper<Question> wrapper = new QueryWrapper<Question>().select("id");
+                if (categoryId != null) {
+                    wrapper.eq("category_id", categoryId);
+                }
+                if (difficulty != null && !difficulty.isEmpty()) {
+                    wrapper.eq("difficulty", difficulty);
+                }
+                pool.ids = this.listObjs(wrapper, id -> ((Number) id).longValue()).stream()
+                        .mapToLong(Long::longValue).toArray();
+                pool.loadedAt = System.currentTimeMillis();
+                log.debug("随机抽题候选池已加载，分类ID: {}, 难度: {}, 题目数: {}", categoryId, difficulty, pool.ids.length);
+            }
+            return pool.ids;
+        }
+    }
+
+    /**
+     * 清空本节点的随机抽题候选池（题目增删改后调用）
+     * 若当前处于事务中，则在事务提交后才清空，避免提交前有请求用旧数据重新加载候选池
+     */
+    private void invalidateRandomPools() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    randomPools.clear();
+                }
+            });
+        } else {
+            randomPools.clear();
+        }
+    }
+
+    /**
+     * 按筛选条件缓存的候选题目ID
+     */
+    private static class RandomPool {
+        private volatile long[] ids;
+        private volatile long loadedAt;
+    }
+
+    /**
+     * 部分Fisher-Yates洗牌：每次从剩余元素中等概率抽取一个，被交换的位置记录在HashMap中，
+     * 不复制也不修改原数组，抽取k个元素的耗时和内存都只与k有关
+     */
+    private static class PartialShuffle {
+        private final long[] ids;
+        private final Map<Integer, Long> swapped = new HashMap<>();
+        private int position;
+
+        PartialShuffle(long[] ids) {
+            this.ids = ids;
+        }
+
+        boolean hasNext() {
+            return position < ids.length;
+        }
+
+        long next() {
+            int target = position + ThreadLocalRandom.current().nextInt(ids.length - position);
+            long chosen = swapped.getOrDefault(target, ids[target]);
+            swapped.put(target, swapped.getOrDefault(position, ids[position]));
+            position++;
+            return chosen;
+        }
+    }
+
+    @Override
+    @CacheEvict(value = CacheConstants.QUESTION_CACHE, allEntries = true)
     public int batchImportQuestions(List<QuestionImportDto> questionImports) {
+        return importQuestions(questionImports).getSuccessCount();
+    }
+
+    /**
+     * 批量导入题目
+     * 
+     * 【性能说明】
+     * 原实现对每道题分别执行题目、选项、答案的单行INSERT，且整个导入包在一个事务里，
+     * 上万道题时既有大量数据库往返，又长时间持有一个大事务。现在：
+     * 1. 每段（chunkSize道题）一个事务，题目、选项、答案分别按batchSize行一条多行INSERT写入
+     * 2. 题目的自增ID由多行INSERT回填，再据此设置选项和答案的questionId
+     * 3. 某一段写入失败时该段整体回滚，再逐题各自提交，只有出错的题目记为失败
+     */
+    @Override
+    @CacheEvict(value = CacheConstants.QUESTION_CACHE, allEntries = true)
+    public QuestionImportResultDto importQuestions(List<QuestionImportDto> questionImports) {
+        QuestionImportResultDto result = new QuestionImportResultDto();
         if (CollectionUtils.isEmpty(questionImports)) {
-            return 0;
+            return result;
         }
-        
-        int successCount = 0;
-        for (QuestionImportDto importDto : questionImports) {
+        result.setTotal(questionImports.size());
+
+        // 1. 校验并转换，记录每道题在导入列表中的序号
+        List<Question> questions = new ArrayList<>(questionImports.size());
+        List<Integer> rows = new ArrayList<>(questionImports.size());
+        for (int i = 0; i < questionImports.size(); i++) {
+            QuestionImportDto importDto = questionImports.get(i);
+            String error = validateImportDto(importDto);
+            if (error != null) {
+                result.addFailure(i + 1, importDto != null ? importDto.getTitle() : null, error);
+                continue;
+            }
+            questions.add(convertImportDtoToQuestion(importDto));
+            rows.add(i + 1);
+        }
+
+        // 2. 分段写入
+        int chunkSize = Math.max(1, importConfig.getChunkSize());
+        for (int from = 0; from < questions.size(); from += chunkSize) {
+            List<Question> chunk = questions.subList(from, Math.min(from + chunkSize, questions.size()));
             try {
-                // 转换DTO为实体
-                Question question = convertImportDtoToQuestion(importDto);
-                
-                // 保存题目及其详细信息
-                saveQuestionWithDetails(question);
-                successCount++;
-                
-                log.info("成功导入题目: {}", question.getTitle());
-                
+                transactionTemplate.executeWithoutResult(status -> insertQuestions(chunk));
+                result.setSuccessCount(result.getSuccessCount() + chunk.size());
             } catch (Exception e) {
-                log.error("导入题目失败: {}, 错误: {}", importDto.getTitle(), e.getMessage());
-                // 继续处理下一个题目，不中断整个导入过程
+                log.warn("题目导入第 {}-{} 题写入失败，逐题重试: {}", rows.get(from), rows.get(from + chunk.size() - 1),
+                    NestedExceptionUtils.getMostSpecificCause(e).getMessage());
+                for (int i = 0; i < chunk.size(); i++) {
+                    Question question = chunk.get(i);
+                    try {
+                        transactionTemplate.executeWithoutResult(status -> insertQuestions(List.of(question)));
+                        result.setSuccessCount(result.getSuccessCount() + 1);
+                    } catch (Exception ex) {
+                        String reason = NestedExceptionUtils.getMostSpecificCause(ex).getMessage();
+                        log.error("导入题目失败: {}, 错误: {}", question.getTitle(), reason);
+                        result.addFailure(rows.get(from + i), question.getTitle(), reason);
+                    }
+                }
             }
         }
-        
-        log.info("批量导入完成，成功导入 {} / {} 道题目", successCount, questionImports.size());
-        return successCount;
+        invalidateRandomPools();
+
+        log.info("批量导入完成，成功导入 {} / {} 道题目", result.getSuccessCount(), result.getTotal());
+        return result;
+    }
+
+    /**
+     * 导入前校验：题目内容不能为空，题目类型必须是CHOICE、JUDGE或TEXT
+     * @return 校验失败原因，通过时返回null
+     */
+    private String validateImportDto(QuestionImportDto importDto) {
+        if (importDto == null || importDto.getTitle() == null || importDto.getTitle().trim().isEmpty()) {
+            return "题目内容不能为空";
+        }
+        if (!"CHOICE".equals(importDto.getType()) && !"JUDGE".equals(importDto.getType())
+            && !"TEXT".equals(importDto.getType())) {
+            return "题目类型必须是CHOICE、JUDGE或TEXT";
+        }
+        return null;
+    }
+
+    /**
+     * 写入一段题目及其选项和答案（在调用方的事务中执行）
+     */
+    private void insertQuestions(List<Question> questions) {
+        int batchSize = Math.max(1, importConfig.getBatchSize());
+        for (int from = 0; from < questions.size(); from += batchSize) {
+            baseMapper.insertBatch(questions.subList(from, Math.min(from + batchSize, questions.size())));
+        }
+
+        List<QuestionChoice> choices = new ArrayList<>();
+        List<QuestionAnswer> answers = new ArrayList<>();
+        for (Question question : questions) {
+            Long questionId = question.getId();
+            QuestionAnswer answer;
+            if ("CHOICE".equals(question.getType())) {
+                List<QuestionChoice> questionChoices = question.getChoices();
+                if (CollectionUtils.isEmpty(questionChoices)) {
+                    continue;
+                }
+                questionChoices.forEach(choice -> choice.setQuestionId(questionId));
+                choices.addAll(questionChoices);
+                String correctAnswer = buildChoiceAnswer(questionChoices);
+                if (correctAnswer.isEmpty()) {
+                    continue;
+                }
+                answer = new QuestionAnswer();
+                answer.setAnswer(correctAnswer);
+            } else {
+                answer = question.getAnswer();
+                if (answer == null) {
+                    continue;
+                }
+            }
+            answer.setQuestionId(questionId);
+            answers.add(answer);
+        }
+        for (int from = 0; from < choices.size(); from += batchSize) {
+            questionChoiceMapper.insertBatch(choices.subList(from, Math.min(from + batchSize, choices.size())));
+        }
+        for (int from = 0; from < answers.size(); from += batchSize) {
+            questionAnswerMapper.insertBatch(answers.subList(from, Math.min(from + batchSize, answers.size())));
+        }
+    }
+
+    /**
+     * 根据正确选项生成选择题答案，如"A,C"
+     */
+    private static String buildChoiceAnswer(List<QuestionChoice> choices) {
+        StringBuilder correctAnswer = new StringBuilder();
+        for (int i = 0; i < choices.size(); i++) {
+            if (Boolean.TRUE.equals(choices.get(i).getIsCorrect())) {
+                if (correctAnswer.length() > 0) {
+                    correctAnswer.append(",");
+                }
+                correctAnswer.append((char) ('A' + i));
+            }
+        }
+        return correctAnswer.toString();
     }
     
     @Override
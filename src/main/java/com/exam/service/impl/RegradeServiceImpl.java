@@ -0,0 +1,355 @@
+package com.exam.service.impl;
+
+import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
+import com.exam.common.CacheConstants;
+import com.exam.config.GradingConfig;
+import com.exam.entity.AnswerRecord;
+import com.exam.entity.ExamRecord;
+import com.exam.mapper.AnswerRecordMapper;
+import com.exam.mapper.ExamRecordMapper;
+import com.exam.mapper.PaperMapper;
+import com.exam.service.AnswerKeyService;
+import com.exam.service.ExamSummaryService;
+import com.exam.service.KimiGradingService;
+import com.exam.service.LlmGateway;
+import com.exam.service.RegradeService;
+import com.exam.utils.RedisUtils;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 整卷重判服务实现类
+ * 编译答案只加载一次；按考试记录ID分页，每页用游标流式读取答题记录，
+ * 客观题即时判分、主观题并发提交到后台批量AI线程池判卷，整页完成后批量回写并在Redis中记录检查点
+ */
+@Slf4j
+@Service
+public class RegradeServiceImpl implements RegradeService {
+
+    @Autowired
+    private SqlSessionFactory sqlSessionFactory;
+    @Autowired
+    private AnswerRecordMapper answerRecordMapper;
+    @Autowired
+    private ExamRecordMapper examRecordMapper;
+    @Autowired
+    private PaperMapper paperMapper;
+    @Autowired
+    private AnswerKeyService answerKeyService;
+    @Autowired
+    private KimiGradingService kimiGradingService;
+    @Autowired
+    private ExamSummaryService examSummaryService;
+    @Autowired
+    private GradingConfig gradingConfig;
+    @Autowired
+    private RedisUtils redisUtils;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    @Qualifier("bulkGradingExecutor")
+    private Executor bulkGradingExecutor; // 独立于交卷判卷线程池，重判不会挤占交卷判卷
+    @Autowired
+    @Qualifier("regradeExecutor")
+    private Executor regradeExecutor;
+
+    @Override
+    public Map<String, Object> startRegrade(Integer paperId, boolean resume) {
+        if (paperMapper.selectById(paperId) == null) {
+            throw new RuntimeException("试卷不存在");
+        }
+        String lockKey = CacheConstants.REGRADE_LOCK_KEY + paperId;
+        String lockOwner = UUID.randomUUID().toString(); // 本次重判的锁持有者标识，只续期和释放自己持有的锁
+        if (!Boolean.TRUE.equals(redisUtils.setIfAbsent(lockKey, lockOwner, gradingConfig.getRegradeLockSeconds()))) {
+            throw new RuntimeException("该试卷正在重判中");
+        }
+
+        String progressKey = CacheConstants.REGRADE_PROGRESS_KEY + paperId;
+        Map<Object, Object> previous = redisUtils.hGetAll(progressKey);
+        boolean resumable = resume && previous != null && !previous.isEmpty()
+            && !STATUS_COMPLETED.equals(previous.get("status"));
+        int checkpoint = resumable ? asInt(previous.get("checkpoint")) : 0;
+        int processed = resumable ? asInt(previous.get("processed")) : 0;
+        int failedAnswers = resumable ? asInt(previous.get("failedAnswers")) : 0;
+
+        Long total = examRecordMapper.selectCount(new QueryWrapper<ExamRecord>()
+            .eq("exam_id", paperId).eq("status", "已批阅"));
+        Map<String, Object> progress = new HashMap<>();
+        progress.put("paperId", paperId);
+        progress.put("status", STATUS_RUNNING);
+        progress.put("total", total);
+        progress.put("processed", processed);
+        progress.put("checkpoint", checkpoint);
+        progress.put("failedAnswers", failedAnswers);
+        progress.put("startTime", System.currentTimeMillis());
+        progress.put("updateTime", System.currentTimeMillis());
+        progress.put("message", resumable ? "从检查点续跑" : "");
+        redisUtils.delete(progressKey);
+        redisUtils.hSetAll(progressKey, progress);
+        redisUtils.expire(progressKey, CacheConstants.REGRADE_PROGRESS_EXPIRE_SECONDS);
+
+        try {
+            regradeExecutor.execute(() -> runRegrade(paperId, lockOwner, checkpoint, processed, failedAnswers));
+        } catch (TaskRejectedException e) {
+            redisUtils.deleteIfEquals(lockKey, lockOwner);
+            redisUtils.hSet(progressKey, "status", STATUS_FAILED);
+            redisUtils.hSet(progressKey, "message", "重判任务过多，请稍后重试");
+            throw new RuntimeException("重判任务过多，请稍后重试");
+        }
+        log.info("整卷重判任务已启动，试卷ID: {}, 考试记录数: {}, 检查点: {}", paperId, total, checkpoint);
+        return getRegradeProgress(paperId);
+    }
+
+    @Override
+    public Map<String, Object> getRegradeProgress(Integer paperId) {
+        Map<Object, Object> entries = redisUtils.hGetAll(CacheConstants.REGRADE_PROGRESS_KEY + paperId);
+        Map<String, Object> progress = new HashMap<>();
+        if (entries != null) {
+            entries.forEach((key, value) -> progress.put(key.toString(), value));
+        }
+        return progress;
+    }
+
+    /**
+     * 执行重判：逐页读取、判分、回写并记录检查点
+     */
+    private void runRegrade(Integer paperId, String lockOwner, int checkpoint, int processed, int failedAnswers) {
+        String progressKey = CacheConstants.REGRADE_PROGRESS_KEY + paperId;
+        String lockKey = CacheConstants.REGRADE_LOCK_KEY + paperId;
+        try {
+            // 标准答案可能刚被修改，重新编译一次，整个任务共用
+            answerKeyService.evict(paperId);
+            AnswerKeyService.AnswerKey answerKey = answerKeyService.getAnswerKey(paperId);
+            if (answerKey == null) {
+                throw new RuntimeException("试卷信息不完整");
+            }
+
+            while (true) {
+                // 续期任务锁；锁已过期并被新的重判任务获取时立即停止，进度由新任务负责更新
+                if (!redisUtils.expireIfEquals(lockKey, lockOwner, gradingConfig.getRegradeLockSeconds())) {
+                    log.warn("整卷重判任务锁已失效，停止执行，试卷ID: {}, 检查点: {}", paperId, checkpoint);
+                    return;
+                }
+                List<ExamRecord> page = examRecordMapper.selectList(new QueryWrapper<ExamRecord>()
+                    .select("id")
+                    .eq("exam_id", paperId)
+                    .eq("status", "已批阅")
+                    .gt("id", checkpoint)
+                    .orderByAsc("id")
+                    .last("LIMIT " + Math.max(1, gradingConfig.getRegradePageSize())));
+                if (page.isEmpty()) {
+                    break;
+                }
+
+                // 整页主观题共用一个截止时间，最坏情况只等待一次AI判卷超时（而不是每道题各等一次）
+                long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(gradingConfig.getAiTimeoutSeconds());
+                Map<Integer, RegradeItem> items = readAndGrade(page, answerKey, deadline);
+                failedAnswers += writeResults(items.values(), answerKey, deadline);
+
+                checkpoint = page.get(page.size() - 1).getId();
+                processed += page.size();
+                redisUtils.hSet(progressKey, "checkpoint", checkpoint);
+                redisUtils.hSet(progressKey, "processed", processed);
+                redisUtils.hSet(progressKey, "failedAnswers", failedAnswers);
+                redisUtils.hSet(progressKey, "updateTime", System.currentTimeMillis());
+                log.info("整卷重判进度，试卷ID: {}, 已处理: {}, 检查点: {}", paperId, processed, checkpoint);
+            }
+
+            redisUtils.hSet(progressKey, "status", STATUS_COMPLETED);
+            log.info("整卷重判完成，试卷ID: {}, 考试记录数: {}, 判卷失败的答案数: {}", paperId, processed, failedAnswers);
+        } catch (Exception e) {
+            log.error("整卷重判失败，试卷ID: {}, 检查点: {}, 错误: {}", paperId, checkpoint, e.getMessage(), e);
+            redisUtils.hSet(progressKey, "status", STATUS_FAILED);
+            redisUtils.hSet(progressKey, "message", String.valueOf(e.getMessage()));
+        } finally {
+            redisUtils.hSet(progressKey, "updateTime", System.currentTimeMillis());
+            redisUtils.deleteIfEquals(lockKey, lockOwner);
+        }
+    }
+
+    /**
+     * 用游标流式读取一页考试记录的答题记录：客观题即时判分，主观题读取完成后打包提交到后台批量AI线程池
+     */
+    private Map<Integer, RegradeItem> readAndGrade(List<ExamRecord> page, AnswerKeyService.AnswerKey answerKey,
+                                                   long deadline) throws IOException {
+        Map<Integer, RegradeItem> items = new LinkedHashMap<>();
+        List<Integer> examRecordIds = new ArrayList<>(page.size());
+        for (ExamRecord examRecord : page) {
+            items.put(examRecord.getId(), new RegradeItem(examRecord.getId()));
+            examRecordIds.add(examRecord.getId());
+        }
+        List<RegradeItem> textOwners = new ArrayList<>();
+        List<KimiGradingService.GradingItem> textItems = new ArrayList<>();
+
+        // 独立的SqlSession，游标占用的连接不会与回写使用的连接冲突
+        try (SqlSession sqlSession = sqlSessionFactory.openSession();
+             Cursor<AnswerRecord> cursor = sqlSession.getMapper(AnswerRecordMapper.class)
+                 .streamByExamRecordIds(examRecordIds)) {
+            for (AnswerRecord record : cursor) {
+                RegradeItem item = items.get(record.getExamRecordId());
+                item.answerCount++;
+                int index = answerKey.indexOf(record.getQuestionId());
+                if (index < 0) {
+                    continue; // 题目已不在试卷中，保留原判分
+                }
+                item.gradedRecords.add(record);
+
+                byte type = answerKey.getType(index);
+                if (type == AnswerKeyService.AnswerKey.TYPE_CHOICE || type == AnswerKeyService.AnswerKey.TYPE_JUDGE) {
+                    if (GradingSupport.applyObjectiveResult(record, answerKey, index)) {
+                        item.correctCount++;
+                    }
+                    item.totalScore += record.getScore();
+                } else if (type == AnswerKeyService.AnswerKey.TYPE_TEXT) {
+                    item.textRecords.add(record);
+                    textOwners.add(item);
+                    textItems.add(new KimiGradingService.GradingItem(
+                        answerKey.getTextQuestion(index), record.getUserAnswer(), answerKey.getMaxScore(index)));
+                }
+            }
+        }
+
+        // 整页主观题一起打包判卷，同一道题不同学生的答案合并到同一个提示词
+        List<CompletableFuture<KimiGradingService.GradingResult>> textFutures =
+            kimiGradingService.gradeQuestionsAsync(textItems, LlmGateway.Priority.BULK, bulkGradingExecutor, deadline);
+        for (int i = 0; i < textFutures.size(); i++) {
+            textOwners.get(i).textFutures.add(textFutures.get(i));
+        }
+        return items;
+    }
+
+    /**
+     * 合并主观题结果、生成考试总评，并在一个事务中批量回写整页结果
+     * @return 判卷失败的答案数
+     */
+    private int writeResults(Iterable<RegradeItem> items, AnswerKeyService.AnswerKey answerKey, long deadline) {
+        int failed = 0;
+        List<AnswerRecord> gradedRecords = new ArrayList<>();
+        List<ExamRecord> examRecords = new ArrayList<>();
+        List<CompletableFuture<String>> summaryFutures = new ArrayList<>();
+
+        boolean pendingAi = false;
+        for (RegradeItem item : items) {
+            Set<AnswerRecord> failedRecords = Collections.newSetFromMap(new IdentityHashMap<>());
+            for (int i = 0; i < item.textRecords.size() && !pendingAi; i++) {
+                AnswerRecord record = item.textRecords.get(i);
+                int maxScore = answerKey.getMaxScore(answerKey.indexOf(record.getQuestionId()));
+                KimiGradingService.GradingResult gradingResult = null;
+                try {
+                    gradingResult = item.textFutures.get(i).get(remainingNanos(deadline), TimeUnit.NANOSECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("重判任务被中断");
+                } catch (Exception e) {
+                    log.error("重判失败，考试记录ID: {}, 题目ID: {}, 错误: {}",
+                        item.examRecordId, record.getQuestionId(), e.getMessage());
+                    item.textFutures.get(i).cancel(true);
+                }
+                if (gradingResult != null && gradingResult.isPendingAi()) {
+                    pendingAi = true;
+                    continue;
+                }
+                if (gradingResult == null || gradingResult.isFailed()) {
+                    // 判卷失败：保留原得分和评语，不回写该答案
+                    failedRecords.add(record);
+                    failed++;
+                    if (Integer.valueOf(1).equals(record.getIsCorrect())) {
+                        item.correctCount++;
+                    }
+                } else if (GradingSupport.applyTextResult(record, gradingResult, maxScore)) {
+                    item.correctCount++;
+                }
+                item.totalScore += record.getScore() != null ? record.getScore() : 0;
+            }
+            if (pendingAi) {
+                // AI服务熔断中：本页结果不回写、检查点不推进，服务恢复后从检查点继续即可
+                items.forEach(pending -> pending.textFutures.forEach(future -> future.cancel(true)));
+                summaryFutures.forEach(future -> future.cancel(true));
+                throw new RuntimeException("AI服务不可用（熔断中），重判已暂停，可稍后从检查点继续");
+            }
+            item.gradedRecords.stream().filter(record -> !failedRecords.contains(record)).forEach(gradedRecords::add);
+
+            if (item.answerCount == 0) {
+                continue; // 没有答题记录，保持原成绩
+            }
+            int totalScore = item.totalScore;
+            int correctCount = item.correctCount;
+            int answerCount = item.answerCount;
+            summaryFutures.add(CompletableFuture.supplyAsync(() -> examSummaryService.getSummary(
+                totalScore, answerKey.getTotalScore(), answerCount, correctCount, LlmGateway.Priority.BULK), bulkGradingExecutor));
+            ExamRecord examRecord = new ExamRecord();
+            examRecord.setId(item.examRecordId);
+            examRecord.setScore(totalScore);
+            examRecords.add(examRecord);
+        }
+
+        // 整页考试总评同样共用一个截止时间
+        long summaryDeadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(gradingConfig.getAiTimeoutSeconds());
+        for (int i = 0; i < examRecords.size(); i++) {
+            try {
+                examRecords.get(i).setAnswers(
+                    summaryFutures.get(i).get(remainingNanos(summaryDeadline), TimeUnit.NANOSECONDS));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("重判任务被中断");
+            } catch (Exception e) {
+                summaryFutures.get(i).cancel(true);
+                // 总评生成失败时保留原总评，不影响成绩
+                log.warn("重判生成考试总评失败，考试记录ID: {}, 错误: {}", examRecords.get(i).getId(), e.getMessage());
+            }
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            GradingSupport.forEachChunk(gradedRecords, gradingConfig.getAnswerBatchSize(),
+                answerRecordMapper::updateGradingBatch);
+            examRecords.forEach(examRecordMapper::updateById);
+        });
+        return failed;
+    }
+
+    private static long remainingNanos(long deadline) {
+        return Math.max(0, deadline - System.nanoTime());
+    }
+
+    private static int asInt(Object value) {
+        return value instanceof Number number ? number.intValue() : 0;
+    }
+
+    /**
+     * 单个考试记录的重判中间结果
+     */
+    private static class RegradeItem {
+        private final Integer examRecordId;
+        private final List<AnswerRecord> gradedRecords = new ArrayList<>();
+        private final List<AnswerRecord> textRecords = new ArrayList<>();
+        private final List<CompletableFuture<KimiGradingService.GradingResult>> textFutures = new ArrayList<>();
+        private int answerCount;
+        private int totalScore;
+        private int correctCount;
+
+        RegradeItem(Integer examRecordId) {
+            this.examRecordId = examRecordId;
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.exam.task;
+
+import com.exam.config.GradingConfig;
+import com.exam.service.GradingQueueService;
+import com.exam.service.LlmGateway;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 延迟判卷任务
+ * AI服务熔断期间交卷的考试只完成了客观题判分，到期后重新加入判卷队列；熔断未恢复时暂不处理，避免任务反复入队
+ */
+@Slf4j
+@Component
+public class DeferredGradingTask {
+
+    @Autowired
+    private GradingQueueService gradingQueueService;
+    @Autowired
+    private LlmGateway llmGateway;
+    @Autowired
+    private GradingConfig gradingConfig;
+
+    @Scheduled(fixedDelayString = "${grading.defer-scan-interval-ms:5000}")
+    public void releaseDeferredGrading() {
+        if (!llmGateway.isAvailable()) {
+            return;
+        }
+        try {
+            int released = gradingQueueService.releaseDeferred(gradingConfig.getDeferBatchSize());
+            if (released > 0) {
+                log.info("延迟判卷任务重新入队{}个", released);
+            }
+        } catch (Exception e) {
+            log.error("处理延迟判卷任务失败: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.exam.task;
+
+import com.exam.service.ExamDraftService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 答题草稿回写任务
+ * 定期将长时间未更新的草稿回写到数据库，避免考生中途离开后答案只存在于缓存中
+ */
+@Slf4j
+@Component
+public class DraftFlushTask {
+
+    @Autowired
+    private ExamDraftService examDraftService;
+
+    @Scheduled(fixedDelayString = "${exam.session.draft-flush-interval-ms:60000}")
+    public void flushIdleDrafts() {
+        try {
+            int flushed = examDraftService.flushIdleDrafts();
+            if (flushed > 0) {
+                log.info("答题草稿回写完成，本次回写{}份", flushed);
+            }
+        } catch (Exception e) {
+            log.error("答题草稿回写任务执行失败: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.exam.task;
+
+import com.exam.config.ExamSessionConfig;
+import com.exam.service.ExamService;
+import com.exam.service.ExamSessionService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * 考试截止时间检查任务
+ * 从截止时间ZSet中领取已到期的考试并自动交卷；每次只读取到期的成员，与进行中的考试总数无关
+ */
+@Slf4j
+@Component
+public class ExamDeadlineTask {
+
+    @Autowired
+    private ExamService examService;
+    @Autowired
+    private ExamSessionService examSessionService;
+    @Autowired
+    private ExamSessionConfig examSessionConfig;
+
+    @Scheduled(fixedDelayString = "${exam.session.deadline-scan-interval-ms:1000}")
+    public void submitExpiredExams() {
+        List<Integer> expiredIds;
+        try {
+            expiredIds = examSessionService.pollExpiredSessions(examSessionConfig.getDeadlineBatchSize());
+        } catch (Exception e) {
+            log.error("读取到期考试失败: {}", e.getMessage());
+            return;
+        }
+
+        for (Integer examRecordId : expiredIds) {
+            try {
+                examService.autoSubmit(examRecordId);
+            } catch (Exception e) {
+                log.error("自动交卷失败，考试记录ID: {}, {}秒后重试, 错误: {}",
+                    examRecordId, examSessionConfig.getDeadlineRetrySeconds(), e.getMessage());
+                examSessionService.rescheduleDeadline(examRecordId, examSessionConfig.getDeadlineRetrySeconds());
+            }
+        }
+    }
+}
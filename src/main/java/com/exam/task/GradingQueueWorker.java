@@ -0,0 +1,237 @@
+package com.exam.task;
+
+import com.exam.common.CacheConstants;
+import com.exam.config.GradingConfig;
+import com.exam.entity.ExamRecord;
+import com.exam.service.ExamService;
+import com.exam.service.GradingQueueService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.stream.Consumer;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.PendingMessage;
+import org.springframework.data.redis.connection.stream.PendingMessages;
+import org.springframework.data.redis.connection.stream.ReadOffset;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamOffset;
+import org.springframework.data.redis.connection.stream.StreamReadOptions;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StreamOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 判卷队列消费者
+ * 每个节点启动若干工作线程，通过Redis Stream消费者组领取判卷任务；
+ * 节点宕机后未确认的任务会在超时后被其他节点接管，超过最大投递次数则标记为失败
+ */
+@Slf4j
+@Component
+public class GradingQueueWorker {
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+    @Autowired
+    private ExamService examService;
+    @Autowired
+    private GradingQueueService gradingQueueService;
+    @Autowired
+    private GradingConfig gradingConfig;
+
+    private final String consumerName = "grader-" + ManagementFactory.getRuntimeMXBean().getName(); // pid@host，节点内唯一
+    private final AtomicLong lastClaimTime = new AtomicLong(0);
+    private volatile boolean running;
+    private volatile boolean groupReady;
+    private ExecutorService workers;
+
+    /**
+     * 启动判卷工作线程
+     */
+    @PostConstruct
+    public void start() {
+        running = true;
+        int workerCount = Math.max(1, gradingConfig.getQueueWorkers());
+        AtomicInteger threadIndex = new AtomicInteger();
+        workers = Executors.newFixedThreadPool(workerCount, r -> {
+            Thread thread = new Thread(r, "grading-worker-" + threadIndex.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        for (int i = 0; i < workerCount; i++) {
+            workers.submit(this::consumeLoop);
+        }
+        log.info("判卷队列消费者已启动，消费者: {}, 工作线程数: {}", consumerName, workerCount);
+    }
+
+    /**
+     * 停止判卷工作线程，等待正在判卷的任务完成
+     */
+    @PreDestroy
+    public void stop() {
+        running = false;
+        workers.shutdown();
+        try {
+            if (!workers.awaitTermination(30, TimeUnit.SECONDS)) {
+                workers.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            workers.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void consumeLoop() {
+        StreamOperations<String, Object, Object> ops = stringRedisTemplate.opsForStream();
+        while (running) {
+            try {
+                ensureGroup();
+                claimStaleTasks(ops);
+
+                List<MapRecord<String, Object, Object>> records = ops.read(
+                    Consumer.from(CacheConstants.GRADING_CONSUMER_GROUP, consumerName),
+                    StreamReadOptions.empty().count(1).block(Duration.ofSeconds(2)),
+                    StreamOffset.create(CacheConstants.GRADING_STREAM_KEY, ReadOffset.lastConsumed()));
+                if (records != null) {
+                    records.forEach(record -> handle(ops, record));
+                }
+            } catch (Exception e) {
+                if (!running) {
+                    break;
+                }
+                groupReady = false;
+                log.error("消费判卷队列失败: {}", e.getMessage());
+                sleepQuietly(1000);
+            }
+        }
+    }
+
+    /**
+     * 处理单个判卷任务，成功（或无需判卷）时确认并删除消息；失败时保留在待确认列表中等待重试
+     */
+    private void handle(StreamOperations<String, Object, Object> ops, MapRecord<String, Object, Object> record) {
+        Integer examRecordId = Integer.valueOf(String.valueOf(record.getValue().get("examRecordId")));
+        try {
+            ExamRecord examRecord = examService.getById(examRecordId);
+            if (examRecord == null || !"已完成".equals(examRecord.getStatus())) {
+                // 记录不存在或已被批阅（例如重复投递），直接确认
+                log.info("考试记录ID: {} 无需判卷，当前状态: {}", examRecordId,
+                    examRecord != null ? examRecord.getStatus() : "不存在");
+                if (examRecord != null && "已批阅".equals(examRecord.getStatus())) {
+                    gradingQueueService.updateStatus(examRecordId, GradingQueueService.STATUS_GRADED);
+                }
+                acknowledge(ops, record.getId());
+                return;
+            }
+
+            gradingQueueService.updateStatus(examRecordId, GradingQueueService.STATUS_GRADING);
+            ExamRecord gradedRecord = examService.gradeExam(examRecordId);
+            acknowledge(ops, record.getId());
+            if (!"已批阅".equals(gradedRecord.getStatus())) {
+                // AI服务熔断，任务已登记为延迟判卷，状态由延迟登记更新
+                log.info("异步判卷延后，等待AI服务恢复，考试记录ID: {}", examRecordId);
+                return;
+            }
+            gradingQueueService.updateStatus(examRecordId, GradingQueueService.STATUS_GRADED);
+            log.info("异步判卷完成，考试记录ID: {}", examRecordId);
+        } catch (Exception e) {
+            log.error("异步判卷失败，考试记录ID: {}, 将在{}秒后重试, 错误: {}",
+                examRecordId, gradingConfig.getQueueClaimIdleSeconds(), e.getMessage());
+            gradingQueueService.updateStatus(examRecordId, GradingQueueService.STATUS_QUEUED);
+        }
+    }
+
+    /**
+     * 接管长时间未确认的任务（节点宕机或判卷失败），超过最大投递次数的任务标记为失败
+     */
+    private void claimStaleTasks(StreamOperations<String, Object, Object> ops) {
+        long now = System.currentTimeMillis();
+        long interval = TimeUnit.SECONDS.toMillis(gradingConfig.getQueueClaimIdleSeconds()) / 2;
+        long last = lastClaimTime.get();
+        if (now - last < interval || !lastClaimTime.compareAndSet(last, now)) {
+            return;
+        }
+
+        Duration minIdle = Duration.ofSeconds(gradingConfig.getQueueClaimIdleSeconds());
+        PendingMessages pending = ops.pending(CacheConstants.GRADING_STREAM_KEY,
+            CacheConstants.GRADING_CONSUMER_GROUP, Range.unbounded(), 50);
+        List<RecordId> toClaim = new ArrayList<>();
+        for (PendingMessage message : pending) {
+            if (message.getElapsedTimeSinceLastDelivery().compareTo(minIdle) < 0) {
+                continue;
+            }
+            if (message.getTotalDeliveryCount() >= gradingConfig.getQueueMaxAttempts()) {
+                markFailed(ops, message.getId());
+            } else {
+                toClaim.add(message.getId());
+            }
+        }
+        if (toClaim.isEmpty()) {
+            return;
+        }
+
+        List<MapRecord<String, Object, Object>> claimed = ops.claim(CacheConstants.GRADING_STREAM_KEY,
+            CacheConstants.GRADING_CONSUMER_GROUP, consumerName, minIdle, toClaim.toArray(new RecordId[0]));
+        log.info("接管超时未确认的判卷任务{}个", claimed.size());
+        claimed.forEach(record -> handle(ops, record));
+    }
+
+    private void markFailed(StreamOperations<String, Object, Object> ops, RecordId recordId) {
+        List<MapRecord<String, Object, Object>> records = ops.range(CacheConstants.GRADING_STREAM_KEY,
+            Range.closed(recordId.getValue(), recordId.getValue()));
+        if (records != null && !records.isEmpty()) {
+            Integer examRecordId = Integer.valueOf(String.valueOf(records.get(0).getValue().get("examRecordId")));
+            gradingQueueService.updateStatus(examRecordId, GradingQueueService.STATUS_FAILED);
+            log.error("判卷任务超过最大重试次数，标记为失败，考试记录ID: {}", examRecordId);
+        }
+        acknowledge(ops, recordId);
+    }
+
+    private void acknowledge(StreamOperations<String, Object, Object> ops, RecordId recordId) {
+        ops.acknowledge(CacheConstants.GRADING_STREAM_KEY, CacheConstants.GRADING_CONSUMER_GROUP, recordId);
+        ops.delete(CacheConstants.GRADING_STREAM_KEY, recordId); // 已处理的消息直接删除，避免Stream无限增长
+    }
+
+    /**
+     * 创建消费者组（Stream不存在时一并创建），组已存在时忽略
+     */
+    private void ensureGroup() {
+        if (groupReady) {
+            return;
+        }
+        try {
+            stringRedisTemplate.execute((RedisCallback<String>) (RedisConnection connection) ->
+                connection.streamCommands().xGroupCreate(
+                    CacheConstants.GRADING_STREAM_KEY.getBytes(StandardCharsets.UTF_8),
+                    CacheConstants.GRADING_CONSUMER_GROUP, ReadOffset.from("0-0"), true));
+        } catch (Exception e) {
+            if (!String.valueOf(e.getMessage()).contains("BUSYGROUP")
+                && (e.getCause() == null || !String.valueOf(e.getCause().getMessage()).contains("BUSYGROUP"))) {
+                throw e;
+            }
+        }
+        groupReady = true;
+    }
+
+    private void sleepQuietly(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
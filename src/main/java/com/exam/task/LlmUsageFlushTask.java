@@ -0,0 +1,28 @@
+package com.exam.task;
+
+import com.exam.service.LlmUsageRecorder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 大模型用量汇总任务
+ * 定期将本节点累计的调用次数、Token数和耗时合并到Redis日汇总，避免每次调用都访问Redis
+ */
+@Slf4j
+@Component
+public class LlmUsageFlushTask {
+
+    @Autowired
+    private LlmUsageRecorder llmUsageRecorder;
+
+    @Scheduled(fixedDelayString = "${llm.gateway.usage-flush-interval-ms:10000}")
+    public void flushUsage() {
+        try {
+            llmUsageRecorder.flush();
+        } catch (Exception e) {
+            log.error("写入大模型用量汇总失败: {}", e.getMessage());
+        }
+    }
+}
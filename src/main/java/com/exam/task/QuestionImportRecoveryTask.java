@@ -0,0 +1,31 @@
+package com.exam.task;
+
+import com.exam.service.QuestionImportJobService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * 题目导入任务恢复
+ * 定期调度排队中的导入任务（提交时线程池已满）和执行中断的导入任务（执行节点宕机或重启），从检查点继续导入
+ */
+@Slf4j
+@Component
+public class QuestionImportRecoveryTask {
+
+    @Autowired
+    private QuestionImportJobService questionImportJobService;
+
+    @Scheduled(fixedDelayString = "${question.import.recovery-interval-ms:30000}")
+    public void recoverImportJobs() {
+        try {
+            int submitted = questionImportJobService.recoverJobs();
+            if (submitted > 0) {
+                log.info("调度待执行的题目导入任务{}个", submitted);
+            }
+        } catch (Exception e) {
+            log.error("调度题目导入任务失败: {}", e.getMessage());
+        }
+    }
+}
@@ -1,15 +1,35 @@
 package com.exam.utils;
 
 import com.exam.dto.QuestionImportDto;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.openxml4j.exceptions.OpenXML4JException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
 import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.util.XMLHelper;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.model.SharedStrings;
+import org.apache.poi.xssf.model.StylesTable;
+import org.apache.poi.xssf.usermodel.XSSFCellStyle;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
-import org.apache.poi.hssf.usermodel.HSSFWorkbook;
 import org.springframework.web.multipart.MultipartFile;
+import org.xml.sax.Attributes;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
 
+import javax.xml.parsers.ParserConfigurationException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.function.Consumer;
 
 /**
  * Excel文件处理工具类
@@ -17,6 +37,11 @@ import java.util.List;
  */
 public class ExcelUtil {
     
+    /**
+     * 题目导入模板的列数：题目内容|题目类型|是否多选|分类ID|难度|分值|选项A|选项B|选项C|选项D|正确答案|解析
+     */
+    private static final int COLUMN_COUNT = 12;
+
     /**
      * 解析Excel文件并转换为题目导入DTO列表
      * 
@@ -29,20 +54,94 @@ public class ExcelUtil {
      */
     public static List<QuestionImportDto> parseExcel(MultipartFile file) throws IOException {
         List<QuestionImportDto> questions = new ArrayList<>();
-        
-        // 获取文件输入流
-        InputStream inputStream = file.getInputStream();
-        Workbook workbook = null;
-        
+        parseExcel(file, questions::add);
+        return questions;
+    }
+
+    /**
+     * 流式解析Excel文件，每解析出一道有效题目就交给consumer处理
+     * 
+     * .xlsx文件使用POI的事件模型（XSSFReader + SAX）逐行读取工作表XML，不构建整个工作簿的对象树，
+     * 解析过程占用的内存与行数无关（共享字符串表按唯一字符串加载）；.xls文件最多65536行，仍使用HSSFWorkbook读取
+     * 
+     * @param file Excel文件
+     * @param consumer 题目处理器，按Excel中的行顺序调用
+     * @return 解析出的有效题目数量
+     * @throws IOException 文件读取或格式异常
+     */
+    public static int parseExcel(MultipartFile file, Consumer<QuestionImportDto> consumer) throws IOException {
+        String fileName = file.getOriginalFilename();
+        if (fileName != null && fileName.endsWith(".xlsx")) {
+            // 上传内容先落到临时文件，OPCPackage按文件随机读取ZIP条目，避免把整个压缩包解压到内存
+            Path tempFile = Files.createTempFile("question-import-", ".xlsx");
+            try {
+                try (InputStream inputStream = file.getInputStream()) {
+                    Files.copy(inputStream, tempFile, StandardCopyOption.REPLACE_EXISTING);
+                }
+                return parseXlsx(tempFile, consumer); // Excel 2007+
+            } finally {
+                Files.deleteIfExists(tempFile);
+            }
+        }
+        try (InputStream inputStream = file.getInputStream()) {
+            return parseXls(inputStream, consumer); // Excel 97-2003
+        }
+    }
+
+    /**
+     * 流式解析磁盘上的Excel文件（按扩展名区分.xlsx和.xls），每解析出一道有效题目就交给consumer处理
+     * 
+     * @param file Excel文件路径
+     * @param consumer 题目处理器，按Excel中的行顺序调用
+     * @return 解析出的有效题目数量
+     * @throws IOException 文件读取或格式异常
+     */
+    public static int parseExcel(Path file, Consumer<QuestionImportDto> consumer) throws IOException {
+        if (file.getFileName().toString().endsWith(".xlsx")) {
+            return parseXlsx(file, consumer);
+        }
+        try (InputStream inputStream = Files.newInputStream(file)) {
+            return parseXls(inputStream, consumer);
+        }
+    }
+
+    /**
+     * 使用事件模型读取.xlsx文件的第一个工作表
+     */
+    private static int parseXlsx(Path file, Consumer<QuestionImportDto> consumer) throws IOException {
+        OPCPackage pkg = null;
         try {
-            // 根据文件扩展名选择对应的工作簿类型
-            String fileName = file.getOriginalFilename();
-            if (fileName != null && fileName.endsWith(".xlsx")) {
-                workbook = new XSSFWorkbook(inputStream); // Excel 2007+
-            } else {
-                workbook = new HSSFWorkbook(inputStream); // Excel 97-2003
+            pkg = OPCPackage.open(file.toFile(), PackageAccess.READ);
+            XSSFReader reader = new XSSFReader(pkg);
+            SharedStrings sharedStrings = new ReadOnlySharedStringsTable(pkg, false);
+            StylesTable styles = reader.getStylesTable();
+
+            Iterator<InputStream> sheets = reader.getSheetsData();
+            if (!sheets.hasNext()) {
+                return 0;
             }
-            
+            SheetHandler handler = new SheetHandler(sharedStrings, styles, consumer);
+            try (InputStream sheet = sheets.next()) {
+                XMLReader xmlReader = XMLHelper.newXMLReader();
+                xmlReader.setContentHandler(handler);
+                xmlReader.parse(new InputSource(sheet));
+            }
+            return handler.count;
+        } catch (OpenXML4JException | SAXException | ParserConfigurationException e) {
+            throw new IOException("Excel文件格式错误: " + e.getMessage(), e);
+        } finally {
+            if (pkg != null) {
+                pkg.revert(); // 只读打开，关闭时不回写
+            }
+        }
+    }
+
+    /**
+     * 使用HSSFWorkbook读取.xls文件的第一个工作表
+     */
+    private static int parseXls(InputStream inputStream, Consumer<QuestionImportDto> consumer) throws IOException {
+        int count = 0;
+        try (Workbook workbook = new HSSFWorkbook(inputStream)) {
             // 获取第一个工作表
             Sheet sheet = workbook.getSheetAt(0);
             
@@ -51,79 +150,255 @@ public class ExcelUtil {
                 Row row = sheet.getRow(i);
                 if (row == null) continue;
                 
-                QuestionImportDto question = new QuestionImportDto();
-                
-                // 读取基本信息
-                question.setTitle(getCellValue(row.getCell(0))); // 题目内容
-                question.setType(getCellValue(row.getCell(1))); // 题目类型
-                question.setMulti("是".equals(getCellValue(row.getCell(2))) || "true".equalsIgnoreCase(getCellValue(row.getCell(2)))); // 是否多选
-                
-                // 分类ID
-                String categoryIdStr = getCellValue(row.getCell(3));
-                if (categoryIdStr != null && !categoryIdStr.isEmpty()) {
-                    try {
-                        question.setCategoryId(Long.parseLong(categoryIdStr));
-                    } catch (NumberFormatException e) {
-                        question.setCategoryId(1L); // 默认分类
+                String[] cells = new String[COLUMN_COUNT];
+                for (int j = 0; j < COLUMN_COUNT; j++) {
+                    cells[j] = getCellValue(row.getCell(j));
+                }
+                QuestionImportDto question = toQuestion(cells);
+                if (question != null) {
+                    consumer.accept(question);
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 将一行单元格的值转换为题目导入DTO
+     * @param cells 按列顺序的单元格值（空单元格为null）
+     * @return 题目导入DTO，题目内容或题目类型为空时返回null
+     */
+    private static QuestionImportDto toQuestion(String[] cells) {
+        QuestionImportDto question = new QuestionImportDto();
+        
+        // 读取基本信息
+        question.setTitle(cells[0]); // 题目内容
+        question.setType(cells[1]); // 题目类型
+        question.setMulti("是".equals(cells[2]) || "true".equalsIgnoreCase(cells[2])); // 是否多选
+        
+        // 分类ID
+        String categoryIdStr = cells[3];
+        if (categoryIdStr != null && !categoryIdStr.isEmpty()) {
+            try {
+                question.setCategoryId(Long.parseLong(categoryIdStr));
+            } catch (NumberFormatException e) {
+                question.setCategoryId(1L); // 默认分类
+            }
+        }
+        
+        question.setDifficulty(cells[4]); // 难度
+        
+        // 分值
+        String scoreStr = cells[5];
+        if (scoreStr != null && !scoreStr.isEmpty()) {
+            try {
+                question.setScore(Integer.parseInt(scoreStr));
+            } catch (NumberFormatException e) {
+                question.setScore(5); // 默认分值
+            }
+        }
+        
+        // 处理选择题选项
+        if ("CHOICE".equals(question.getType())) {
+            List<QuestionImportDto.ChoiceImportDto> choices = new ArrayList<>();
+            String correctAnswer = cells[10]; // 正确答案列
+            
+            // 读取选项A-D
+            for (int j = 0; j < 4; j++) {
+                String optionContent = cells[6 + j];
+                if (optionContent != null && !optionContent.trim().isEmpty()) {
+                    QuestionImportDto.ChoiceImportDto choice = new QuestionImportDto.ChoiceImportDto();
+                    choice.setContent(optionContent);
+                    choice.setSort(j + 1);
+                    
+                    // 判断是否为正确答案
+                    char optionLabel = (char) ('A' + j);
+                    boolean isCorrect = correctAnswer != null && correctAnswer.contains(String.valueOf(optionLabel));
+                    choice.setIsCorrect(isCorrect);
+                    
+                    choices.add(choice);
+                }
+            }
+            question.setChoices(choices);
+        } else {
+            // 判断题和简答题直接设置答案
+            question.setAnswer(cells[10]);
+        }
+        
+        question.setAnalysis(cells[11]); // 解析
+        
+        // 验证必填字段
+        if (question.getTitle() != null && !question.getTitle().trim().isEmpty() &&
+            question.getType() != null && !question.getType().trim().isEmpty()) {
+            return question;
+        }
+        return null;
+    }
+
+    /**
+     * 工作表XML的SAX处理器
+     * 逐个读取&lt;row&gt;中的&lt;c&gt;单元格，行结束时转换为题目；单元格取值规则与getCellValue一致：
+     * 字符串去除首尾空白，数字取整数部分，日期格式的数字转换为日期字符串，公式单元格返回公式文本，错误值和空单元格为null
+     */
+    private static class SheetHandler extends DefaultHandler {
+        private final SharedStrings sharedStrings;
+        private final StylesTable styles;
+        private final Consumer<QuestionImportDto> consumer;
+        private final StringBuilder text = new StringBuilder();
+
+        private String[] cells;
+        private int rowIndex = -1;
+        private int columnIndex;
+        private String cellType;
+        private String cellStyle;
+        private String formula;
+        private String value;
+        private boolean inValue;
+        private boolean inInlineText;
+        private boolean inFormula;
+        private boolean inPhonetic;
+        private int count;
+
+        SheetHandler(SharedStrings sharedStrings, StylesTable styles, Consumer<QuestionImportDto> consumer) {
+            this.sharedStrings = sharedStrings;
+            this.styles = styles;
+            this.consumer = consumer;
+        }
+
+        @Override
+        public void startElement(String uri, String localName, String qName, Attributes attributes) {
+            switch (localName) {
+                case "row" -> {
+                    String ref = attributes.getValue("r");
+                    rowIndex = ref != null ? Integer.parseInt(ref) - 1 : rowIndex + 1;
+                    cells = new String[COLUMN_COUNT];
+                    columnIndex = -1;
+                }
+                case "c" -> {
+                    String ref = attributes.getValue("r");
+                    columnIndex = ref != null ? columnOf(ref) : columnIndex + 1;
+                    cellType = attributes.getValue("t");
+                    cellStyle = attributes.getValue("s");
+                    formula = null;
+                    value = null;
+                }
+                case "v" -> {
+                    inValue = true;
+                    text.setLength(0);
+                }
+                case "f" -> {
+                    inFormula = true;
+                    text.setLength(0);
+                }
+                case "t" -> {
+                    if ("inlineStr".equals(cellType) && !inPhonetic) {
+                        if (!inInlineText) {
+                            value = "";
+                        }
+                        inInlineText = true;
+                        text.setLength(0);
                     }
                 }
-                
-                question.setDifficulty(getCellValue(row.getCell(4))); // 难度
-                
-                // 分值
-                String scoreStr = getCellValue(row.getCell(5));
-                if (scoreStr != null && !scoreStr.isEmpty()) {
-                    try {
-                        question.setScore(Integer.parseInt(scoreStr));
-                    } catch (NumberFormatException e) {
-                        question.setScore(5); // 默认分值
+                case "rPh" -> inPhonetic = true;
+                default -> {
+                }
+            }
+        }
+
+        @Override
+        public void endElement(String uri, String localName, String qName) {
+            switch (localName) {
+                case "v" -> {
+                    inValue = false;
+                    value = text.toString();
+                }
+                case "f" -> {
+                    inFormula = false;
+                    formula = text.toString();
+                }
+                case "t" -> {
+                    if (inInlineText) {
+                        value += text; // 富文本由多段<t>组成
+                        text.setLength(0);
                     }
                 }
-                
-                // 处理选择题选项
-                if ("CHOICE".equals(question.getType())) {
-                    List<QuestionImportDto.ChoiceImportDto> choices = new ArrayList<>();
-                    String correctAnswer = getCellValue(row.getCell(10)); // 正确答案列
-                    
-                    // 读取选项A-D
-                    for (int j = 0; j < 4; j++) {
-                        String optionContent = getCellValue(row.getCell(6 + j));
-                        if (optionContent != null && !optionContent.trim().isEmpty()) {
-                            QuestionImportDto.ChoiceImportDto choice = new QuestionImportDto.ChoiceImportDto();
-                            choice.setContent(optionContent);
-                            choice.setSort(j + 1);
-                            
-                            // 判断是否为正确答案
-                            char optionLabel = (char) ('A' + j);
-                            boolean isCorrect = correctAnswer != null && correctAnswer.contains(String.valueOf(optionLabel));
-                            choice.setIsCorrect(isCorrect);
-                            
-                            choices.add(choice);
+                case "is" -> inInlineText = false;
+                case "rPh" -> inPhonetic = false;
+                case "c" -> {
+                    if (columnIndex >= 0 && columnIndex < COLUMN_COUNT) {
+                        cells[columnIndex] = cellValue();
+                    }
+                }
+                case "row" -> {
+                    if (rowIndex >= 1) { // 第一行是标题
+                        QuestionImportDto question = toQuestion(cells);
+                        if (question != null) {
+                            consumer.accept(question);
+                            count++;
                         }
                     }
-                    question.setChoices(choices);
-                } else {
-                    // 判断题和简答题直接设置答案
-                    question.setAnswer(getCellValue(row.getCell(10)));
                 }
-                
-                question.setAnalysis(getCellValue(row.getCell(11))); // 解析
-                
-                // 验证必填字段
-                if (question.getTitle() != null && !question.getTitle().trim().isEmpty() &&
-                    question.getType() != null && !question.getType().trim().isEmpty()) {
-                    questions.add(question);
+                default -> {
                 }
             }
-            
-        } finally {
-            if (workbook != null) {
-                workbook.close();
+        }
+
+        @Override
+        public void characters(char[] ch, int start, int length) {
+            if (inValue || inFormula || (inInlineText && !inPhonetic)) {
+                text.append(ch, start, length);
             }
-            inputStream.close();
         }
-        
-        return questions;
+
+        private String cellValue() {
+            if (formula != null && !formula.isEmpty()) {
+                return formula; // 公式单元格返回公式文本
+            }
+            if (cellType == null || "n".equals(cellType)) {
+                return numericValue();
+            }
+            switch (cellType) {
+                case "s":
+                    if (value == null || value.isEmpty()) {
+                        return null;
+                    }
+                    return sharedStrings.getItemAt(Integer.parseInt(value)).getString().trim();
+                case "inlineStr":
+                case "str":
+                    return value != null ? value.trim() : null;
+                case "b":
+                    return value != null ? String.valueOf("1".equals(value)) : null;
+                default:
+                    return null; // 错误值等
+            }
+        }
+
+        private String numericValue() {
+            if (value == null || value.isEmpty()) {
+                return null; // 空单元格
+            }
+            double number = Double.parseDouble(value);
+            if (cellStyle != null && styles != null) {
+                XSSFCellStyle style = styles.getStyleAt(Integer.parseInt(cellStyle));
+                if (style != null && DateUtil.isADateFormat(style.getDataFormat(), style.getDataFormatString())
+                    && DateUtil.isValidExcelDate(number)) {
+                    return DateUtil.getJavaDate(number).toString();
+                }
+            }
+            return String.valueOf((long) number);
+        }
+
+        /**
+         * 单元格引用（如"K12"）转换为从0开始的列号
+         */
+        private static int columnOf(String ref) {
+            int column = 0;
+            for (int i = 0; i < ref.length() && Character.isLetter(ref.charAt(i)); i++) {
+                column = column * 26 + (ref.charAt(i) - 'A' + 1);
+            }
+            return column - 1;
+        }
     }
     
     /**
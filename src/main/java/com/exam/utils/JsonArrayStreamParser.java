@@ -0,0 +1,96 @@
+package com.exam.utils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * JSON数组增量解析工具类
+ * 用于解析大模型流式返回的内容：逐段输入文本，每当第一个JSON数组中的某个对象元素完整出现时立即返回该对象的文本，
+ * 无需等待整个响应结束。兼容 {"questions": [...]}、裸数组以及带 ```json 代码块标记的响应
+ *
+ * 非线程安全，每次生成使用一个新实例
+ */
+public class JsonArrayStreamParser {
+
+    private final StringBuilder buffer = new StringBuilder();
+    private final Deque<Character> containers = new ArrayDeque<>(); // 当前所在的对象/数组嵌套栈
+    private int position;           // 下一个待扫描字符在buffer中的位置
+    private int objectStart = -1;   // 当前数组元素对象的起始位置，-1表示不在元素对象内
+    private int arrayDepth = -1;    // 元素数组所在的嵌套深度，-1表示尚未遇到数组
+    private boolean finished;       // 元素数组已结束
+    private boolean inString;
+    private boolean escaped;
+
+    /**
+     * 输入一段文本
+     * @param chunk 文本片段
+     * @return 本次输入后新出现的完整对象文本（可能为空）
+     */
+    public List<String> feed(String chunk) {
+        List<String> objects = new ArrayList<>();
+        if (finished || chunk == null || chunk.isEmpty()) {
+            return objects;
+        }
+        buffer.append(chunk);
+        for (; position < buffer.length() && !finished; position++) {
+            char c = buffer.charAt(position);
+            if (inString) {
+                if (escaped) {
+                    escaped = false;
+                } else if (c == '\\') {
+                    escaped = true;
+                } else if (c == '"') {
+                    inString = false;
+                }
+                continue;
+            }
+            switch (c) {
+                case '"' -> inString = !containers.isEmpty(); // JSON结构之外的引号属于说明文字，忽略
+                case '[' -> {
+                    containers.push(c);
+                    if (arrayDepth < 0) {
+                        arrayDepth = containers.size();
+                    }
+                }
+                case '{' -> {
+                    containers.push(c);
+                    if (arrayDepth > 0 && containers.size() == arrayDepth + 1) {
+                        objectStart = position;
+                    }
+                }
+                case '}', ']' -> {
+                    if (containers.isEmpty()) {
+                        continue;
+                    }
+                    containers.pop();
+                    if (c == '}' && objectStart >= 0 && containers.size() == arrayDepth) {
+                        objects.add(buffer.substring(objectStart, position + 1));
+                        objectStart = -1;
+                    } else if (c == ']' && containers.size() == arrayDepth - 1) {
+                        finished = true;
+                    }
+                }
+                default -> {
+                }
+            }
+        }
+        compact();
+        return objects;
+    }
+
+    /**
+     * 丢弃已扫描且不再需要的文本，缓冲区只保留当前未完成的元素对象
+     */
+    private void compact() {
+        int keepFrom = objectStart >= 0 ? objectStart : position;
+        if (keepFrom > 0) {
+            buffer.delete(0, keepFrom);
+            position -= keepFrom;
+            if (objectStart >= 0) {
+                objectStart = 0;
+            }
+        }
+    }
+}
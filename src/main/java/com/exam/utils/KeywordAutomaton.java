@@ -0,0 +1,100 @@
+package com.exam.utils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 关键词多模式匹配工具类（Aho-Corasick自动机）
+ * 构建一次后可反复使用，一次扫描文本即可找出所有出现的关键词，耗时与文本长度成正比、与关键词数量无关
+ *
+ * 构建完成后只读，可在多线程间共享
+ */
+public class KeywordAutomaton {
+
+    private final List<Map<Character, Integer>> transitions = new ArrayList<>(); // 每个节点的转移边
+    private final List<BitSet> outputs = new ArrayList<>();                       // 每个节点结束的关键词编号（含失败链上的）
+    private final int[] failures;
+    private final int keywordCount;
+
+    /**
+     * 构建自动机
+     * @param keywords 关键词列表（空字符串会被忽略，重复关键词各自计数）
+     */
+    public KeywordAutomaton(List<String> keywords) {
+        newNode();
+        for (int k = 0; k < keywords.size(); k++) {
+            String keyword = keywords.get(k);
+            if (keyword == null || keyword.isEmpty()) {
+                continue;
+            }
+            int node = 0;
+            for (int i = 0; i < keyword.length(); i++) {
+                Integer next = transitions.get(node).get(keyword.charAt(i));
+                if (next == null) {
+                    next = newNode();
+                    transitions.get(node).put(keyword.charAt(i), next);
+                }
+                node = next;
+            }
+            outputs.get(node).set(k);
+        }
+        this.keywordCount = keywords.size();
+        this.failures = new int[transitions.size()];
+
+        // 按层次遍历计算失败指针，并把失败节点的输出合并到当前节点
+        Deque<Integer> queue = new ArrayDeque<>(transitions.get(0).values());
+        while (!queue.isEmpty()) {
+            int node = queue.poll();
+            for (Map.Entry<Character, Integer> edge : transitions.get(node).entrySet()) {
+                int child = edge.getValue();
+                int fallback = failures[node];
+                while (fallback > 0 && !transitions.get(fallback).containsKey(edge.getKey())) {
+                    fallback = failures[fallback];
+                }
+                Integer target = transitions.get(fallback).get(edge.getKey());
+                failures[child] = target != null && target != child ? target : 0;
+                outputs.get(child).or(outputs.get(failures[child]));
+                queue.add(child);
+            }
+        }
+    }
+
+    /**
+     * 扫描文本，返回出现过的关键词编号
+     * @param text 文本
+     * @return 出现过的关键词编号集合（与构建时的下标对应）
+     */
+    public BitSet match(String text) {
+        BitSet matched = new BitSet(keywordCount);
+        int node = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            Integer next = transitions.get(node).get(c);
+            while (next == null && node > 0) {
+                node = failures[node];
+                next = transitions.get(node).get(c);
+            }
+            node = next != null ? next : 0;
+            matched.or(outputs.get(node));
+        }
+        return matched;
+    }
+
+    /**
+     * 关键词数量
+     */
+    public int size() {
+        return keywordCount;
+    }
+
+    private int newNode() {
+        transitions.add(new HashMap<>(4));
+        outputs.add(new BitSet());
+        return transitions.size() - 1;
+    }
+}
@@ -3,6 +3,8 @@ package com.exam.utils;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.core.ZSetOperations;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
 import org.springframework.stereotype.Component;
 
 import java.util.Collection;
@@ -19,6 +21,15 @@ import java.util.stream.Collectors;
 @Component
 public class RedisUtils {
 
+    /** 值等于指定值时才删除key */
+    private static final RedisScript<Long> DELETE_IF_EQUALS_SCRIPT = new DefaultRedisScript<>(
+        "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end", Long.class);
+
+    /** 值等于指定值时才设置过期时间 */
+    private static final RedisScript<Long> EXPIRE_IF_EQUALS_SCRIPT = new DefaultRedisScript<>(
+        "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('expire', KEYS[1], ARGV[2]) else return 0 end",
+        Long.class);
+
     @Autowired
     private RedisTemplate<String, Object> redisTemplate;
 
@@ -41,6 +52,17 @@ public class RedisUtils {
         redisTemplate.opsForValue().set(key, value, timeout, TimeUnit.SECONDS);
     }
 
+    /**
+     * 缓存不存在时才设置（SET NX），并设置过期时间
+     * @param key 缓存键
+     * @param value 缓存值
+     * @param timeout 过期时间（秒）
+     * @return 是否设置成功
+     */
+    public Boolean setIfAbsent(String key, Object value, long timeout) {
+        return redisTemplate.opsForValue().setIfAbsent(key, value, timeout, TimeUnit.SECONDS);
+    }
+
     /**
      * 获取缓存
      * @param key 缓存键
@@ -53,9 +75,10 @@ public class RedisUtils {
     /**
      * 删除缓存
      * @param key 缓存键
+     * @return 是否删除了key（key不存在时返回false）
      */
-    public void delete(String key) {
-        redisTemplate.delete(key);
+    public Boolean delete(String key) {
+        return redisTemplate.delete(key);
     }
 
     /**
@@ -76,6 +99,29 @@ public class RedisUtils {
         return redisTemplate.expire(key, timeout, TimeUnit.SECONDS);
     }
 
+    /**
+     * 缓存值等于指定值时才删除（原子操作），用于只释放自己持有的锁
+     * @param key 缓存键
+     * @param value 期望的缓存值
+     * @return 是否删除成功
+     */
+    public boolean deleteIfEquals(String key, Object value) {
+        Long result = redisTemplate.execute(DELETE_IF_EQUALS_SCRIPT, List.of(key), value);
+        return result != null && result > 0;
+    }
+
+    /**
+     * 缓存值等于指定值时才设置过期时间（原子操作），用于只续期自己持有的锁
+     * @param key 缓存键
+     * @param value 期望的缓存值
+     * @param timeout 过期时间（秒）
+     * @return 是否续期成功
+     */
+    public boolean expireIfEquals(String key, Object value, long timeout) {
+        Long result = redisTemplate.execute(EXPIRE_IF_EQUALS_SCRIPT, List.of(key), value, timeout);
+        return result != null && result > 0;
+    }
+
     /**
      * 判断key是否存在
      * @param key 缓存键
@@ -143,6 +189,17 @@ public class RedisUtils {
         return redisTemplate.opsForHash().entries(key);
     }
 
+    /**
+     * Hash值原子递增
+     * @param key 缓存键
+     * @param hashKey Hash键
+     * @param delta 增量
+     * @return 递增后的值
+     */
+    public Long hIncrement(String key, String hashKey, long delta) {
+        return redisTemplate.opsForHash().increment(key, hashKey, delta);
+    }
+
     /**
      * 删除Hash缓存中的某个键
      * @param key 缓存键
@@ -301,6 +358,19 @@ public class RedisUtils {
         return redisTemplate.opsForZSet().rangeByScore(key, min, max);
     }
     
+    /**
+     * 分页获取有序集合中指定分数范围的元素（从低到高）
+     * @param key 缓存键
+     * @param min 最小分数
+     * @param max 最大分数
+     * @param offset 偏移量
+     * @param count 最多返回的元素数
+     * @return 元素集合
+     */
+    public Set<Object> zRangeByScore(String key, double min, double max, long offset, long count) {
+        return redisTemplate.opsForZSet().rangeByScore(key, min, max, offset, count);
+    }
+
     /**
      * 获取有序集合中指定排名范围的元素（从高到低）
      * @param key 缓存键
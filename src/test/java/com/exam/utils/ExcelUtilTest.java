@@ -0,0 +1,154 @@
+package com.exam.utils;
+
+import com.exam.dto.QuestionImportDto;
+import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.zip.ZipFile;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * ExcelUtil 单元测试：.xlsx的SAX解析（共享字符串、内联字符串、公式、日期单元格）与.xls的取值规则一致
+ */
+class ExcelUtilTest {
+
+    private static final Date DATE = Date.from(LocalDate.of(2024, 3, 1).atStartOfDay(ZoneId.systemDefault()).toInstant());
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void parsesSharedStringCells() throws IOException {
+        assertQuestions(parse(write(new XSSFWorkbook(), "shared.xlsx"))); // XSSFWorkbook使用共享字符串表
+    }
+
+    @Test
+    void parsesInlineStringCells() throws IOException {
+        Path file = write(new SXSSFWorkbook(), "inline.xlsx");            // SXSSFWorkbook默认写入内联字符串
+        assertTrue(sheetXml(file).contains("inlineStr"));
+        assertQuestions(parse(file));
+    }
+
+    @Test
+    void xlsxMatchesXlsCellValues() throws IOException {
+        List<QuestionImportDto> xls = parse(write(new HSSFWorkbook(), "questions.xls"));
+        List<QuestionImportDto> xlsx = parse(write(new XSSFWorkbook(), "questions.xlsx"));
+        assertEquals(xls, xlsx);
+    }
+
+    @Test
+    void skipsHeaderAndRowsWithoutTitleOrType() throws IOException {
+        List<QuestionImportDto> questions = parse(write(new XSSFWorkbook(), "rows.xlsx"));
+        assertEquals(3, questions.size());
+        assertTrue(questions.stream().noneMatch(question -> "题目内容".equals(question.getTitle())));
+    }
+
+    private static void assertQuestions(List<QuestionImportDto> questions) {
+        assertEquals(3, questions.size());
+
+        QuestionImportDto choice = questions.get(0);
+        assertEquals("下列哪些是Java关键字", choice.getTitle()); // 首尾空白已去除
+        assertEquals("CHOICE", choice.getType());
+        assertTrue(choice.getMulti());
+        assertEquals(3L, choice.getCategoryId());
+        assertEquals(10, choice.getScore());
+        assertEquals(4, choice.getChoices().size());
+        assertEquals(List.of(true, false, true, false),
+            choice.getChoices().stream().map(QuestionImportDto.ChoiceImportDto::getIsCorrect).toList());
+
+        QuestionImportDto judge = questions.get(1);
+        assertEquals("JUDGE", judge.getType());
+        assertEquals("TRUE", judge.getAnswer());
+        assertEquals("CONCATENATE(\"参考\",\"解析\")", judge.getAnalysis()); // 公式单元格返回公式文本
+        assertNull(judge.getScore());
+
+        QuestionImportDto text = questions.get(2);
+        assertEquals("TEXT", text.getType());
+        assertEquals("事务的四个特性", text.getAnswer());
+        assertEquals(DATE.toString(), text.getAnalysis());                  // 日期格式的数字转换为日期字符串
+    }
+
+    private Path write(Workbook workbook, String fileName) throws IOException {
+        Path file = tempDir.resolve(fileName);
+        try (workbook; OutputStream out = Files.newOutputStream(file)) {
+            CellStyle dateStyle = workbook.createCellStyle();
+            dateStyle.setDataFormat(workbook.getCreationHelper().createDataFormat().getFormat("yyyy-mm-dd"));
+
+            Sheet sheet = workbook.createSheet("题目");
+            Row header = sheet.createRow(0);
+            String[] titles = {"题目内容", "题目类型", "是否多选", "分类ID", "难度", "分值",
+                "选项A", "选项B", "选项C", "选项D", "正确答案", "解析"};
+            for (int i = 0; i < titles.length; i++) {
+                header.createCell(i).setCellValue(titles[i]);
+            }
+
+            Row choice = sheet.createRow(1);
+            choice.createCell(0).setCellValue("  下列哪些是Java关键字 ");
+            choice.createCell(1).setCellValue("CHOICE");
+            choice.createCell(2).setCellValue("是");
+            choice.createCell(3).setCellValue(3);
+            choice.createCell(4).setCellValue("EASY");
+            choice.createCell(5).setCellValue(10.0);
+            choice.createCell(6).setCellValue("class");
+            choice.createCell(7).setCellValue("main");
+            choice.createCell(8).setCellValue("final");
+            choice.createCell(9).setCellValue("String");
+            choice.createCell(10).setCellValue("A,C");
+
+            Row judge = sheet.createRow(2);
+            judge.createCell(0).setCellValue("Java是面向对象的语言");
+            judge.createCell(1).setCellValue("JUDGE");
+            judge.createCell(10).setCellValue("TRUE");
+            judge.createCell(11).setCellFormula("CONCATENATE(\"参考\",\"解析\")");
+
+            sheet.createRow(3).createCell(0).setCellValue("缺少题目类型的行");
+
+            // 跳过一行，验证按行号定位
+            Row text = sheet.createRow(5);
+            text.createCell(0).setCellValue("简述事务的ACID特性");
+            text.createCell(1).setCellValue("TEXT");
+            text.createCell(10).setCellValue("事务的四个特性");
+            text.createCell(11).setCellValue(DATE);
+            text.getCell(11).setCellStyle(dateStyle);
+
+            workbook.write(out);
+            if (workbook instanceof SXSSFWorkbook streaming) {
+                streaming.dispose();
+            }
+        }
+        return file;
+    }
+
+    private static List<QuestionImportDto> parse(Path file) throws IOException {
+        List<QuestionImportDto> questions = new ArrayList<>();
+        ExcelUtil.parseExcel(file, questions::add);
+        return questions;
+    }
+
+    private static String sheetXml(Path file) throws IOException {
+        try (ZipFile zip = new ZipFile(file.toFile())) {
+            return new String(zip.getInputStream(zip.getEntry("xl/worksheets/sheet1.xml")).readAllBytes(),
+                StandardCharsets.UTF_8);
+        }
+    }
+}
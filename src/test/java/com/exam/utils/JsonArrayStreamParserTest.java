@@ -0,0 +1,67 @@
+package com.exam.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * JsonArrayStreamParser 单元测试
+ */
+class JsonArrayStreamParserTest {
+
+    @Test
+    void emitsEachObjectAsSoonAsItCompletes() {
+        JsonArrayStreamParser parser = new JsonArrayStreamParser();
+        assertEquals(List.of("{\"title\": \"题目1\"}"), parser.feed("{\"questions\": [{\"title\": \"题目1\"}, {\"ti"));
+        assertEquals(List.of("{\"title\": \"题目2\"}"), parser.feed("tle\": \"题目2\"}]}"));
+    }
+
+    @Test
+    void escapedQuoteSplitAcrossChunksStaysInsideString() {
+        JsonArrayStreamParser parser = new JsonArrayStreamParser();
+        // 反斜杠在第一段末尾、被转义的引号在第二段开头，不能被当作字符串结束
+        assertTrue(parser.feed("[{\"title\": \"a\\").isEmpty());
+        assertTrue(parser.feed("\"}]").isEmpty());
+        List<String> objects = parser.feed("\"}, {\"title\": \"b\"}]");
+        assertEquals(List.of("{\"title\": \"a\\\"}]\"}", "{\"title\": \"b\"}"), objects);
+    }
+
+    @Test
+    void escapedBackslashSplitAcrossChunksEndsString() {
+        JsonArrayStreamParser parser = new JsonArrayStreamParser();
+        // 第一段以转义的反斜杠结尾，第二段开头的引号是字符串的结束
+        assertTrue(parser.feed("[{\"path\": \"C:\\\\").isEmpty());
+        assertEquals(List.of("{\"path\": \"C:\\\\\"}"), parser.feed("\"}]"));
+    }
+
+    @Test
+    void bracesInsideStringsAreIgnored() {
+        JsonArrayStreamParser parser = new JsonArrayStreamParser();
+        List<String> objects = parser.feed("[{\"title\": \"a}]{[\"}, {\"title\": \"b\"}]");
+        assertEquals(List.of("{\"title\": \"a}]{[\"}", "{\"title\": \"b\"}"), objects);
+    }
+
+    @Test
+    void toleratesCodeFenceAndTextAroundTheArray() {
+        JsonArrayStreamParser parser = new JsonArrayStreamParser();
+        List<String> objects = new ArrayList<>();
+        objects.addAll(parser.feed("以下是\"题目\"：\n```json\n[{\"a\": 1}"));
+        objects.addAll(parser.feed("]\n```\n[{\"ignored\": true}]"));
+        assertEquals(List.of("{\"a\": 1}"), objects);
+    }
+
+    @Test
+    void nestedObjectsAreKeptWithTheirElement() {
+        JsonArrayStreamParser parser = new JsonArrayStreamParser();
+        List<String> objects = new ArrayList<>();
+        String json = "[{\"choices\": [{\"content\": \"A\"}, {\"content\": \"B\"}]}]";
+        for (char c : json.toCharArray()) {
+            objects.addAll(parser.feed(String.valueOf(c)));
+        }
+        assertEquals(List.of("{\"choices\": [{\"content\": \"A\"}, {\"content\": \"B\"}]}"), objects);
+    }
+}
@@ -0,0 +1,51 @@
+package com.exam.utils;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * KeywordAutomaton 单元测试
+ */
+class KeywordAutomatonTest {
+
+    @Test
+    void findsOverlappingKeywords() {
+        KeywordAutomaton automaton = new KeywordAutomaton(List.of("he", "she", "his", "hers"));
+        assertEquals(bits(0, 1, 3), automaton.match("ushers"));
+    }
+
+    @Test
+    void findsKeywordThatIsSuffixOfAnotherViaFailureLinks() {
+        KeywordAutomaton automaton = new KeywordAutomaton(List.of("线程安全", "程安", "安全"));
+        assertEquals(bits(0, 1, 2), automaton.match("保证线程安全"));
+        assertEquals(bits(1, 2), automaton.match("进程安全"));
+    }
+
+    @Test
+    void recoversAfterPartialMatch() {
+        KeywordAutomaton automaton = new KeywordAutomaton(List.of("abcd", "bce"));
+        assertEquals(bits(1), automaton.match("abce"));
+    }
+
+    @Test
+    void ignoresEmptyKeywordsButKeepsIndexes() {
+        KeywordAutomaton automaton = new KeywordAutomaton(Arrays.asList("索引", "", null, "事务"));
+        assertEquals(4, automaton.size());
+        assertEquals(bits(0, 3), automaton.match("事务和索引"));
+        assertTrue(automaton.match("无关内容").isEmpty());
+    }
+
+    private static BitSet bits(int... indexes) {
+        BitSet bits = new BitSet();
+        for (int index : indexes) {
+            bits.set(index);
+        }
+        return bits;
+    }
+}